@@ -0,0 +1,183 @@
+package de.hub.mse.emf.generator;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+
+import org.eclipse.emf.common.util.URI;
+import org.eclipse.emf.ecore.EClass;
+import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.emf.ecore.resource.ResourceSet;
+
+import com.pholser.junit.quickcheck.random.SourceOfRandomness;
+
+import de.hub.mse.emf.generator.cgf.MetamodelCoverage;
+import de.hub.mse.emf.generator.internal.GenerationMetrics;
+import de.hub.mse.emf.generator.internal.MetamodelUtil;
+
+/**
+ * Generates batches of instance models concurrently on a fixed thread pool,
+ * e.g. to pre-build a large corpus of seed models.
+ *
+ * Every model is generated by its own {@link ModelGenerator} with a fresh
+ * {@link MetamodelCoverage} and a source of randomness created from the model's seed,
+ * i.e. each model only depends on its seed and not on the models generated before
+ * or concurrently. The same seeds therefore yield the same models, regardless of the
+ * number of threads. All tasks share the configuration and the (immutable)
+ * {@link MetamodelUtil}, whose caches are thread-safe. Each pool thread creates
+ * the resources of its models in its own {@link ResourceSet}.
+ *
+ * All tasks count into one shared {@link GenerationMetrics} registry.
+ *
+ * @author Lam
+ *
+ */
+public class BatchModelGenerator implements AutoCloseable {
+
+	/** The model configuration parameters shared by all tasks. */
+	private final IModelGenerationConfig config;
+
+	/** The metamodel data shared by all tasks. */
+	private final MetamodelUtil metamodelUtil;
+
+	/** The counters of all tasks. */
+	private final GenerationMetrics metrics = new GenerationMetrics();
+
+	/** The thread pool generating the models. */
+	private final ExecutorService executor;
+
+	/** The resource set of each pool thread. */
+	private final ThreadLocal<ResourceSet> resourceSets;
+
+	/**
+	 * Creates a new batch generator.
+	 *
+	 * @param config             the model generation configuration parameters
+	 * @param metamodelUtil      the metamodel data
+	 * @param resourceSetFactory creates the resource set of a pool thread, with the
+	 *                           metamodel and resource factories registered
+	 * @param numThreads         the number of threads generating models
+	 */
+	public BatchModelGenerator(IModelGenerationConfig config, MetamodelUtil metamodelUtil,
+			Supplier<ResourceSet> resourceSetFactory, int numThreads) {
+		this.config = config;
+		this.metamodelUtil = metamodelUtil;
+		this.resourceSets = ThreadLocal.withInitial(resourceSetFactory);
+		this.executor = Executors.newFixedThreadPool(numThreads, new ThreadFactory() {
+			private final AtomicInteger count = new AtomicInteger();
+
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread thread = new Thread(r, "mofuzz-generator-" + count.getAndIncrement());
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		initMetamodel();
+	}
+
+	/**
+	 * EMF computes derived metamodel data (e.g. all supertypes or features of a class)
+	 * lazily and without synchronization. Compute it once on the calling thread, before
+	 * the pool threads read it concurrently.
+	 */
+	private void initMetamodel() {
+		for (EClass eClass : metamodelUtil.getAllEClasses()) {
+			eClass.getEAllSuperTypes();
+			eClass.getEAllStructuralFeatures();
+			eClass.getEAllAttributes();
+			eClass.getEAllReferences();
+			eClass.getEAllContainments();
+			metamodelUtil.eAllAttributes(eClass);
+			metamodelUtil.eAllContainment(eClass);
+			metamodelUtil.eAllNonContainment(eClass);
+		}
+	}
+
+	/**
+	 * Generates one model per seed and waits until all models have been generated.
+	 * The resources remain in the resource sets of the pool threads.
+	 *
+	 * @param seeds the seed of each model
+	 * @return the resources containing the models, in the order of the seeds
+	 * @throws InterruptedException if interrupted while waiting for the models
+	 * @throws ExecutionException   if the generation of a model failed
+	 */
+	public List<Resource> generate(long[] seeds) throws InterruptedException, ExecutionException {
+		List<Resource> resources = new ArrayList<Resource>(seeds.length);
+		for (Future<Resource> model : submit(seeds, null)) {
+			resources.add(model.get());
+		}
+		return resources;
+	}
+
+	/**
+	 * Generates one model per seed and passes each model on to a consumer, which is
+	 * invoked on the pool thread that generated the model (e.g. to save and unload it).
+	 * Waits until all models have been consumed.
+	 *
+	 * @param seeds    the seed of each model
+	 * @param consumer receives the index of the seed and the resource containing the model
+	 * @throws InterruptedException if interrupted while waiting for the models
+	 * @throws ExecutionException   if the generation or consumption of a model failed
+	 */
+	public void generate(long[] seeds, BiConsumer<Integer, Resource> consumer)
+			throws InterruptedException, ExecutionException {
+		for (Future<Resource> model : submit(seeds, consumer)) {
+			model.get();
+		}
+	}
+
+	private List<Future<Resource>> submit(long[] seeds, BiConsumer<Integer, Resource> consumer) {
+		List<Future<Resource>> models = new ArrayList<Future<Resource>>(seeds.length);
+		for (int i = 0; i < seeds.length; i++) {
+			final int idx = i;
+			final long seed = seeds[i];
+			models.add(executor.submit(new Callable<Resource>() {
+				@Override
+				public Resource call() {
+					Resource resource = generateModel(idx, seed);
+					if (consumer != null) {
+						consumer.accept(idx, resource);
+					}
+					return resource;
+				}
+			}));
+		}
+		return models;
+	}
+
+	/** Generates a single model on the current (pool) thread. */
+	private Resource generateModel(int idx, long seed) {
+		ResourceSet resourceSet = resourceSets.get();
+		Resource resource = resourceSet.createResource(URI.createFileURI("model_" + idx + "_" + seed + ".uml"));
+
+		// Per-task generation state, which is independent of all other tasks
+		MetamodelCoverage coverage = new MetamodelCoverage(metamodelUtil.getAllEClasses(),
+				metamodelUtil.getAllEContainmentRefs());
+		ModelGenerator generator = new ModelGenerator(config, metamodelUtil, coverage);
+		generator.setMetrics(metrics);
+		generator.generate(resource, new SourceOfRandomness(new Random(seed)), null);
+		return resource;
+	}
+
+	/** Returns the counters of all models generated by this batch generator. */
+	public GenerationMetrics getMetrics() {
+		return metrics;
+	}
+
+	/** Stops the pool threads once all submitted models have been generated. */
+	@Override
+	public void close() {
+		executor.shutdown();
+	}
+}
@@ -12,14 +12,8 @@
  *******************************************************************************/
 package de.hub.mse.emf.generator;
 
-import java.util.Collections;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
-import java.util.LinkedHashSet;
-import java.util.LinkedList;
-import java.util.List;
-import java.util.Map;
 import java.util.Set;
 
 //import org.eclipse.emf.common.util.TreeIterator;
@@ -32,6 +26,7 @@ import org.eclipse.emf.ecore.EReference;
 import com.google.common.collect.ImmutableSet;
 import com.pholser.junit.quickcheck.random.SourceOfRandomness;
 
+import de.hub.mse.emf.generator.internal.EClassHierarchy;
 import de.hub.mse.emf.generator.internal.MetamodelResource;
 
 public class ModelGenerationConfigImpl implements IModelGenerationConfig{
@@ -57,6 +52,9 @@ public class ModelGenerationConfigImpl implements IModelGenerationConfig{
 	/** The maximum attribute value size, i.e. length of strings. */
 	protected final int MAX_VALUE_SIZE;
 	
+	/** The root as possible root set, if specified. */
+	private final ImmutableSet<EClass> rootEClasses;
+	
 	
 	/**
 	 * Constructor that also provides a root of the metamodel.
@@ -80,6 +78,7 @@ public class ModelGenerationConfigImpl implements IModelGenerationConfig{
 		
 		this.metamodelResource = metamodelResource;
 		this.rootEClass = root;
+		this.rootEClasses = root != null ? ImmutableSet.of(root) : null;
 		this.eClassWhitelist = whitelist;
 		this.MAX_OBJECT_COUNT = max_object_count;
 		this.MAX_DEPTH = max_depth;
@@ -106,6 +105,7 @@ public class ModelGenerationConfigImpl implements IModelGenerationConfig{
 		
 		this.metamodelResource = metamodelResource;
 		this.rootEClass = null;
+		this.rootEClasses = null;
 		this.eClassWhitelist = whitelist;
 		this.MAX_OBJECT_COUNT = max_object_count;
 		this.MAX_DEPTH = max_depth; 
@@ -136,87 +136,14 @@ public class ModelGenerationConfigImpl implements IModelGenerationConfig{
 
 	@Override
 	public ImmutableSet<EClass> possibleRootEClasses() {
-		List<EClass> eClasses = new LinkedList<EClass>();
-		
 		if(this.rootEClass != null) {
-			eClasses.add(this.rootEClass);
-			return ImmutableSet.copyOf(eClasses);
+			return this.rootEClasses;
 		}
 		else {
-			// creating a subtypes map
-			Map<EClass,Set<EClass>> eSubtypesMap = computeSubtypesMap();
-			
-			// Eclasses.filter( instance of EClass && not abstract && not interface) 
-			for (Iterator<EObject> it = metamodelResource.getAllContents(); it.hasNext();) {
-				EObject eObject = (EObject) it.next();
-				if (eObject instanceof EClass) {
-					EClass eClass = (EClass) eObject;
-					if (!eClass.isAbstract() && !eClass.isInterface()) {
-						eClasses.add(eClass);
-						}
-				}
-			}
-			
-			// copying the list of eClasses 
-			List <EClass> result = new LinkedList<EClass>(eClasses);
-			//Collections.copy(result , eClasses);
-			
-			// iterating eClasses and removing elements (along with subtypes) being 
-			// subject to a container reference 
-			for (EClass cls : eClasses ) {
-				for (EReference cont : cls.getEAllContainments()) {
-					Set<EClass> list = eSubtypesClosure(eSubtypesMap, (EClass)cont.getEType());
-					if (list.size() == 0) {
-						result.remove((EClass)cont.getEType());
-					} else {
-						result.removeAll(list); 
-						}
-				}
-			}
-			return ImmutableSet.copyOf(result);
+			return metamodelResource.getEClassHierarchy().getPossibleRootEClasses();
 		}		
 	}
 	
-	@SuppressWarnings("unchecked")
-	private Set<EClass> eSubtypesClosure(Map<EClass, Set<EClass>> eSubtypesMap, EClass eType) {
-		Set<EClass> result = new LinkedHashSet<EClass> ();
-			if (!eSubtypesMap.containsKey(eType)) {
-				return Collections.EMPTY_SET;
-			} else {
-				result.addAll(eSubtypesMap.get(eType));
-				for (EClass eSubType : eSubtypesMap.get(eType)) {
-					if (! eSubType.equals(eType)) 
-						result.addAll(eSubtypesClosure(eSubtypesMap, eSubType));
-				}
-			}
-		return result;
-	}
-
-
-	private Map<EClass, Set <EClass>> computeSubtypesMap() {
-		Map<EClass, Set<EClass>> result = new HashMap<EClass, Set<EClass>> (); 
-		Iterator<EObject> iter = metamodelResource.getAllContents();
-		
-		 for (EObject ecls = null ;  iter.hasNext(); ) {
-			 ecls = iter.next();
-			 if (ecls instanceof EClass) {
-				 EClass clazz = (EClass) ecls;
-				 for (EClass cls : clazz.getEAllSuperTypes()) {
-					 if (result.containsKey(cls)) {
-						 result.get(cls).add(clazz);
-					 } else {
-						 Set<EClass> list = new HashSet<EClass>();
-						 list.add(cls);
-						 list.add(clazz);
-						 result.put(cls, list);
-					 }
-				 }
-			 }
-		 }
-			 
-		return result;
-	}
-
 
 	/**
 	 * Returns whether instances of this {@link EClass} need a container, i.e.,
@@ -256,7 +183,12 @@ public class ModelGenerationConfigImpl implements IModelGenerationConfig{
 
 	@Override
 	public EClass getNextRootEClass(ImmutableSet<EClass> rootEClasses, SourceOfRandomness random) {
-		return rootEClasses.asList().get(random.nextInt(rootEClasses.size()));
+		int idx = random.nextInt(rootEClasses.size());
+		EClassHierarchy hierarchy = metamodelResource.getEClassHierarchy();
+		if (this.rootEClass == null && rootEClasses == hierarchy.getPossibleRootEClasses()) {
+			return hierarchy.getPossibleRootEClass(idx);
+		}
+		return rootEClasses.asList().get(idx);
 	}
 
 	@Override
@@ -5,12 +5,15 @@ import static com.google.common.primitives.Primitives.isWrapperType;
 import static com.google.common.primitives.Primitives.unwrap;
 
 import java.text.MessageFormat;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.LinkedList;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Random;
 import java.util.Set;
 import java.util.logging.Logger;
@@ -45,9 +48,12 @@ import com.pholser.junit.quickcheck.generator.GenerationStatus;
 import com.pholser.junit.quickcheck.random.SourceOfRandomness;
 
 import de.hub.mse.emf.generator.cgf.MetamodelCoverage;
-import de.hub.mse.emf.generator.internal.EClassReferencePair;
+import de.hub.mse.emf.generator.internal.CandidateIndex;
+import de.hub.mse.emf.generator.internal.GenerationMetrics;
+import de.hub.mse.emf.generator.internal.GenerationMetrics.Counter;
 import de.hub.mse.emf.generator.internal.MetamodelUtil;
-import de.hub.mse.emf.generator.internal.ModelGenerationStats;
+import de.hub.mse.emf.generator.internal.SamplingPool;
+import de.hub.mse.emf.generator.internal.ValuePool;
 
 /**
  * A generic instance model generator.
@@ -96,6 +102,21 @@ public class ModelGenerator {
 	/** The metamodel coverage */
 	MetamodelCoverage metamodelCoverage;
 
+	/** Objects contained in the model root, which are the possible targets of cross-references. */
+	protected final CandidateIndex candidateIndex = new CandidateIndex(UMLPackage.Literals.MODEL);
+
+	/** Reusable pool of the values that can still be assigned to the current cross-reference. */
+	protected final SamplingPool<EObject> availableValues = new SamplingPool<EObject>();
+
+	/** The counters of the model generation, possibly shared with other generators. */
+	protected GenerationMetrics metrics = new GenerationMetrics();
+
+	/** The number of objects per class of the last generated model. */
+	protected final Map<EClass, int[]> eClassCounts = new HashMap<EClass, int[]>();
+
+	/** The number of objects of the last generated model. */
+	protected int modelSize;
+
 	/** The random source used to generate an instance model. */
 	//protected SourceOfRandomness randomGenerator = new SourceOfRandomness(new Random(12));
 	protected SourceOfRandomness randomGenerator = null;
@@ -107,6 +128,15 @@ public class ModelGenerator {
 	public static boolean useValidityCache = true;
 	
 	public static boolean trackMetamodelCoverage = true;
+
+	/**
+	 * Select attribute values from preallocated pools instead of generating
+	 * (and boxing) a new value for every attribute.
+	 */
+	public static boolean usePooledValues = true;
+
+	/** The pooled attribute values, shared by all generators. */
+	private static final ValuePool VALUE_POOL = new ValuePool();
 	
 	/**
 	 * Instantiate a generic model generator.
@@ -160,6 +190,8 @@ public class ModelGenerator {
 		currentObjectCount = 0;
 		coveredEReferences = new HashSet<EReference>();
 		coveredEClasses = new HashSet<EClass>();
+		eClassCounts.clear();
+		modelSize = 0;
 
 		ImmutableSet<EClass> possibleRootEClasses = config.possibleRootEClasses();
 
@@ -195,12 +227,25 @@ public class ModelGenerator {
 		 */
 		List<EObject> allEObjects = new ArrayList<EObject>();
 		for (TreeIterator<EObject> it = resource.getAllContents(); it.hasNext();) {
-			allEObjects.add(it.next());
+			EObject eObject = it.next();
+			allEObjects.add(eObject);
+			int[] count = eClassCounts.get(eObject.eClass());
+			if (count == null) {
+				count = new int[1];
+				eClassCounts.put(eObject.eClass(), count);
+			}
+			count[0]++;
 		}
+		modelSize = allEObjects.size();
 
+		candidateIndex.reset(resource);
 		for (EObject eobj : allEObjects) {
 			generateCrossReferences(eobj, indexByKind, random);
 		}
+		candidateIndex.clear();
+		availableValues.clear();
+		metrics.increment(Counter.MODELS);
+		metrics.addModelSize(modelSize);
 		
 		// Update coverage
 		if(trackMetamodelCoverage) {
@@ -248,8 +293,12 @@ public class ModelGenerator {
 	/**
 	 * Attempts to generate an {@link EObject} of a given {@link EClass} by 1)
 	 * instantiation of the {@link EClass}, 2) randomly setting the attributes, and
-	 * 3) randomly generating the contained {@link EClass}es by recursively calling
-	 * this method.
+	 * 3) randomly generating the contained {@link EClass}es.
+	 * 
+	 * The containment tree is generated depth-first with an explicit stack of
+	 * {@link Frame}s rather than nested method calls, so the depth of the generated
+	 * models is not limited by the call stack. A child object is attached to its
+	 * container once its own subtree has been generated.
 	 * 
 	 * @param eClass      the {@link EClass} to instantiate
 	 * @param indexByKind the map mapping the instantiated {@link EClass}es so far
@@ -259,14 +308,77 @@ public class ModelGenerator {
 	 */
 	protected Optional<EObject> generateEObject(EClass eClass, ListMultimap<EClass, EObject> indexByKind,
 			SourceOfRandomness random) {
-		final EObject eObject;
+		final EObject eObject = newEObject(eClass, indexByKind, random);
+		startEObject(eObject, null);
+
+		Deque<Frame> stack = new ArrayDeque<Frame>();
+		stack.push(new ObjectFrame(eObject, eClass, indexByKind, random));
+		while (!stack.isEmpty()) {
+			try {
+				Frame next = stack.peek().next();
+				if (next != null) {
+					stack.push(next);
+					continue;
+				}
+				Frame finished = stack.pop();
+				if (finished instanceof ObjectFrame) {
+					endEObject(((ObjectFrame) finished).eObject);
+					if (!stack.isEmpty()) {
+						stack.peek().childGenerated(((ObjectFrame) finished).eObject);
+					}
+				}
+			} catch (IllegalArgumentException e) {
+				// Abandon the subtree up to the single containment reference being generated
+				while (!stack.peek().handle(e)) {
+					Frame abandoned = stack.pop();
+					if (abandoned instanceof ObjectFrame) {
+						endEObject(((ObjectFrame) abandoned).eObject);
+					}
+					if (stack.isEmpty()) {
+						throw e;
+					}
+				}
+			}
+		}
+		return Optional.fromNullable(eObject);
+	}
+
+	/**
+	 * Called after an object and its attributes have been generated, before its
+	 * contained objects are generated. Does nothing by default.
+	 * 
+	 * @param eObject               the new object
+	 * @param eContainmentReference the reference which will contain the object,
+	 *                              or {@code null} for the root object
+	 */
+	protected void startEObject(EObject eObject, EReference eContainmentReference) {
+	}
+
+	/**
+	 * Called after all contained objects of an object have been generated, before
+	 * the object is added to its container. Does nothing by default.
+	 * 
+	 * @param eObject the finished object
+	 */
+	protected void endEObject(EObject eObject) {
+	}
+
+	/**
+	 * Instantiates the given {@link EClass} and randomly sets its attributes.
+	 * 
+	 * @param eClass      the {@link EClass} to instantiate
+	 * @param indexByKind the instance map of the model
+	 * @param random      the random source
+	 * @return the new object, without any contained objects
+	 */
+	protected EObject newEObject(EClass eClass, ListMultimap<EClass, EObject> indexByKind,
+			SourceOfRandomness random) {
 		currentObjectCount++;
 		LOGGER.fine(MessageFormat.format("Generating EObject {0} / ~{1} (EClass={2})", currentObjectCount,
 				goalObjectCount, eClass.getName()));
-		eObject = createEObject(eClass, indexByKind);
+		EObject eObject = createEObject(eClass, indexByKind);
 		generateEAttributes(eObject, eClass, random);
-		generateEContainmentReferences(eObject, eClass, indexByKind, random);
-		return Optional.fromNullable(eObject);
+		return eObject;
 	}
 
 	/**
@@ -315,149 +427,260 @@ public class ModelGenerator {
 	}
 
 	/**
-	 * Generates a random number of containment {@link EReference}s for a given
+	 * A step of the containment tree generation in {@link #generateEObject}.
+	 */
+	private abstract class Frame {
+
+		/**
+		 * Performs the next step of this frame.
+		 * @return the frame to be processed before continuing with this one, or
+		 *         {@code null} if this frame is finished
+		 */
+		abstract Frame next();
+
+		/** Called with the object of a finished child {@link ObjectFrame}. */
+		void childGenerated(EObject child) {
+		}
+
+		/**
+		 * Handles an exception thrown while generating a child of this frame.
+		 * @return {@code false} if the exception has to be passed to the enclosing frame
+		 */
+		boolean handle(IllegalArgumentException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Generates a random number of containment {@link EReference}s for an
 	 * {@link EObject} in the model. Mandatory and previously uncovered references
 	 * are prioritized.
-	 * 
-	 * @param eObject     the parent object
-	 * @param eClass      the class of the parent object
-	 * @param indexByKind the instance map
-	 * @param random      the source of randomness
 	 */
-	protected void generateEContainmentReferences(EObject eObject, EClass eClass,
-			ListMultimap<EClass, EObject> indexByKind, SourceOfRandomness random) {
+	private class ObjectFrame extends Frame {
 
-		// Determine all (and uncovered) containment eReferences
-		List<EReference> allContainmentReferences = new ArrayList<EReference>();
-		List<EReference> uncoveredContainmentReferences = new ArrayList<EReference>();
+		final EObject eObject;
+		final EClass eClass;
+		final ListMultimap<EClass, EObject> indexByKind;
+		final SourceOfRandomness random;
+
+		final Iterator<EReference> eContainmentReferences;
+
+		// All (and uncovered) optional containment eReferences
+		final List<EReference> allContainmentReferences = new ArrayList<EReference>();
+		final List<EReference> uncoveredContainmentReferences = new ArrayList<EReference>();
+
+		boolean breadthSampled;
+		int breadth;
+		int i;
+
+		ObjectFrame(EObject eObject, EClass eClass, ListMultimap<EClass, EObject> indexByKind,
+				SourceOfRandomness random) {
+			this.eObject = eObject;
+			this.eClass = eClass;
+			this.indexByKind = indexByKind;
+			this.random = random;
+			this.eContainmentReferences = metamodelUtil.eAllContainment(eClass).iterator();
+		}
 
-		for (EReference eReference : metamodelUtil.eAllContainment(eClass)) {
+		@Override
+		Frame next() {
+			while (eContainmentReferences.hasNext()) {
+				EReference eReference = eContainmentReferences.next();
+
+				// Generate mandatory references right away
+				if (eReference.isRequired()) {
+					return newContainmentFrame(eReference);
+				} else if (metamodelUtil.useWhitelist()
+						&& !metamodelUtil.isWhitelistedOrSuperType(eReference.getEReferenceType())) {
+					continue;
+				}
 
-			// Generate mandatory references right away
-			if (eReference.isRequired()) {
-				generateEContainmentReference(eObject, eReference, indexByKind, random);
-				continue;
-			} else if (metamodelUtil.useWhitelist()
-					&& !metamodelUtil.isWhitelistedOrSuperType(eReference.getEReferenceType())) {
-				continue;
-			}
+				// Keep track of references not covered yet, these will be prioritized
+				if (!metamodelCoverage.isCovered(eReference) || !coveredEReferences.contains(eReference)) {
+					uncoveredContainmentReferences.add(eReference);
+				}
 
-			// Keep track of references not covered yet, these will be prioritized
-			// if(!this.coveredEReferences.contains(eReference)) {
-			if (!metamodelCoverage.isCovered(eReference) || !coveredEReferences.contains(eReference)) {
-				uncoveredContainmentReferences.add(eReference);
+				allContainmentReferences.add(eReference);
 			}
 
-			allContainmentReferences.add(eReference);
-		}
-
-		// Nothing to generate
-		if (allContainmentReferences.size() == 0) {
-			return;
-		}
+			// Nothing to generate
+			if (allContainmentReferences.isEmpty()) {
+				return null;
+			}
 
-		// Sample the number of children (containment refs) to be generated (min. 1)
-		// TODO: possibly allow more refs to be generated when there are still uncovered
-		// containment refs
-		int breadth = maxBreadth != -1 ? maxBreadth : config.getBreadthFor(eClass, random) + 1;
+			// Sample the number of children (containment refs) to be generated (min. 1)
+			if (!breadthSampled) {
+				breadth = maxBreadth != -1 ? maxBreadth : config.getBreadthFor(eClass, random) + 1;
+				breadthSampled = true;
+			}
 
-		for (int i = 0; i < breadth; i++) {
-			if ((currentObjectCount < goalObjectCount && currentDepth <= currentMaxDepth)) {
+			while (i < breadth) {
+				i++;
+				if ((currentObjectCount < goalObjectCount && currentDepth <= currentMaxDepth)) {
 
-				// If there are any uncovered containment references, generate one of them first
-				if (!uncoveredContainmentReferences.isEmpty()) {
-					int idx = random.nextInt(uncoveredContainmentReferences.size());
-					EReference eReference = uncoveredContainmentReferences.get(idx);
-					generateEContainmentReference(eObject, eReference, indexByKind, random);
-				} else {
-					int idx = random.nextInt(allContainmentReferences.size());
-					EReference eReference = allContainmentReferences.get(idx);
-					if(!eReference.isMany() && eObject.eIsSet(eReference)) {
-						continue;
+					// If there are any uncovered containment references, generate one of them first
+					if (!uncoveredContainmentReferences.isEmpty()) {
+						int idx = random.nextInt(uncoveredContainmentReferences.size());
+						return newContainmentFrame(uncoveredContainmentReferences.get(idx));
+					} else {
+						int idx = random.nextInt(allContainmentReferences.size());
+						EReference eReference = allContainmentReferences.get(idx);
+						if (!eReference.isMany() && eObject.eIsSet(eReference)) {
+							continue;
+						}
+						return newContainmentFrame(eReference);
 					}
-					generateEContainmentReference(eObject, eReference, indexByKind, random);
 				}
 			}
+			return null;
 		}
 
+		private Frame newContainmentFrame(EReference eReference) {
+			if (eReference.isMany()) {
+				return new ManyContainmentFrame(eObject, eReference, indexByKind, random);
+			}
+			return new SingleContainmentFrame(eObject, eReference, indexByKind, random);
+		}
 	}
 
-	protected void generateEContainmentReference(EObject eObject, EReference eReference,
-			ListMultimap<EClass, EObject> indexByKind, SourceOfRandomness random) {
-
-		currentDepth++;
+	/**
+	 * Generates the values of a containment {@link EReference}, one child
+	 * {@link ObjectFrame} at a time.
+	 */
+	private abstract class ContainmentFrame extends Frame {
 
-		ImmutableList<EClass> eAllConcreteSubTypeOrSelf;
-		if (useValidityCache) {
-			EClassReferencePair eClassRefPair = new EClassReferencePair(eObject.eClass(), eReference);
-			eAllConcreteSubTypeOrSelf = metamodelUtil.eReferenceValidEClasses(eClassRefPair);
-		} else {
-			eAllConcreteSubTypeOrSelf = metamodelUtil.eAllConcreteSubTypeOrSelf(eReference);
+		final EObject eObject;
+		final EReference eReference;
+		final ListMultimap<EClass, EObject> indexByKind;
+		final SourceOfRandomness random;
+
+		ImmutableList<EClass> eAllConcreteSubTypesOrSelf;
+		List<EClass> uncoveredEClasses;
+		boolean started;
+		boolean finished;
+
+		ContainmentFrame(EObject eObject, EReference eReference, ListMultimap<EClass, EObject> indexByKind,
+				SourceOfRandomness random) {
+			this.eObject = eObject;
+			this.eReference = eReference;
+			this.indexByKind = indexByKind;
+			this.random = random;
 		}
 
-		if (!eAllConcreteSubTypeOrSelf.isEmpty()) {
-			if (eReference.isMany()) {
-				generateManyContainmentReference(eObject, eReference, indexByKind, eAllConcreteSubTypeOrSelf, random);
-			} else {
-				generateSingleContainmentReference(eObject, eReference, indexByKind, eAllConcreteSubTypeOrSelf, random);
+		@Override
+		Frame next() {
+			if (!started) {
+				started = true;
+				currentDepth++;
+
+				if (useValidityCache) {
+					eAllConcreteSubTypesOrSelf = metamodelUtil.eReferenceValidEClasses(eObject.eClass(), eReference);
+				} else {
+					eAllConcreteSubTypesOrSelf = metamodelUtil.eAllConcreteSubTypeOrSelf(eReference);
+				}
+
+				if (eAllConcreteSubTypesOrSelf.isEmpty()) {
+					finished = true;
+				} else {
+					// Check if there are any uncovered EClasses
+					uncoveredEClasses = new ArrayList<EClass>();
+					for (EClass eClass : eAllConcreteSubTypesOrSelf) {
+						if (!metamodelCoverage.isCovered(eClass)) {
+							uncoveredEClasses.add(eClass);
+						}
+					}
+					finished = !start();
+				}
+			}
+
+			EClass nextEClass = finished ? null : nextEClass();
+			if (nextEClass == null) {
+				currentDepth--;
+				return null;
 			}
+			EObject child = newEObject(nextEClass, indexByKind, random);
+			startEObject(child, eReference);
+			return new ObjectFrame(child, nextEClass, indexByKind, random);
 		}
 
-		currentDepth--;
+		/**
+		 * Prepares the generation of the values once the valid and uncovered
+		 * {@link EClass}es are known.
+		 * @return {@code false} if no value is generated at all
+		 */
+		abstract boolean start();
+
+		/**
+		 * Samples the {@link EClass} of the next value to be generated, prioritizing
+		 * uncovered {@link EClass}es.
+		 * @return the class of the next value, or {@code null} if all values are generated
+		 */
+		abstract EClass nextEClass();
 	}
 
-	protected void generateSingleContainmentReference(EObject eObject, EReference eReference,
-			ListMultimap<EClass, EObject> indexByKind, ImmutableList<EClass> eAllConcreteSubTypesOrSelf,
-			SourceOfRandomness random) {
+	private class SingleContainmentFrame extends ContainmentFrame {
 
-		// Check if there are any uncovered EClasses
-		List<EClass> uncoveredEClasses = new ArrayList<EClass>();
-		for (EClass eClass : eAllConcreteSubTypesOrSelf) {
-			if (!metamodelCoverage.isCovered(eClass)) {
-				uncoveredEClasses.add(eClass);
-			}
+		boolean generating;
+
+		SingleContainmentFrame(EObject eObject, EReference eReference, ListMultimap<EClass, EObject> indexByKind,
+				SourceOfRandomness random) {
+			super(eObject, eReference, indexByKind, random);
 		}
 
-		// Randomly skip generation of the reference, but only if it has already been
-		// covered before and all EClasses have been covered
-		if (!eReference.isRequired() && coveredEReferences.contains(eReference) && uncoveredEClasses.isEmpty()
-				&& random.nextBoolean()) {
-			return;
+		@Override
+		boolean start() {
+			// Randomly skip generation of the reference, but only if it has already been
+			// covered before and all EClasses have been covered
+			if (!eReference.isRequired() && coveredEReferences.contains(eReference) && uncoveredEClasses.isEmpty()
+					&& random.nextBoolean()) {
+				return false;
+			}
+
+			LOGGER.fine(MessageFormat.format("Generating EReference ''{0}'' in EObject {1}", eReference.getName(),
+					eObject.toString()));
+			metrics.increment(Counter.SINGLE_CONTAINMENT_REFS);
+			return true;
 		}
 
-		LOGGER.fine(MessageFormat.format("Generating EReference ''{0}'' in EObject {1}", eReference.getName(),
-				eObject.toString()));
-		ModelGenerationStats.singleContainmentRefCount++;
+		@Override
+		EClass nextEClass() {
+			if (generating) {
+				return null;
+			}
+			generating = true;
 
-		try {
 			// If there are any uncovered EClasses, prioritize them
-			EClass nextEClass;
 			if (!uncoveredEClasses.isEmpty()) {
 				int idx = random.nextInt(uncoveredEClasses.size());
-				nextEClass = get(uncoveredEClasses, idx);
+				return get(uncoveredEClasses, idx);
 			} else {
 				int idx = random.nextInt(eAllConcreteSubTypesOrSelf.size());
-				nextEClass = get(eAllConcreteSubTypesOrSelf, idx);
+				return get(eAllConcreteSubTypesOrSelf, idx);
 			}
+		}
 
-			final Optional<EObject> nextEObject = generateEObject(nextEClass, indexByKind, random);
-
-			if (nextEObject.isPresent()) {
-				eObject.eSet(eReference, nextEObject.get());
-				ModelGenerationStats.singleContainmentRefSuccess++;
+		@Override
+		void childGenerated(EObject child) {
+			finished = true;
+			try {
+				eObject.eSet(eReference, child);
+				metrics.increment(Counter.SINGLE_CONTAINMENT_REF_SUCCESS);
+			} catch (IllegalArgumentException e) {
+				fail(e);
+			}
+		}
 
-				// Add to set of covered references
-				//coveredEClasses.add(nextEClass);
-				//coveredEReferences.add(eReference);
-				//metamodelCoverage.addCoveredEClass(nextEClass);
-				//metamodelCoverage.addCoveredEContainmentRef(eReference);
-			} else {
-				ModelGenerationStats.singleContainmentRefFail++;
+		@Override
+		boolean handle(IllegalArgumentException e) {
+			if (!generating || finished) {
+				return false;
 			}
-			// Success
-			return;
+			finished = true;
+			fail(e);
+			return true;
+		}
 
-		} catch (IllegalArgumentException e) {
+		private void fail(IllegalArgumentException e) {
 			/*
 			 * Cause: Actual implementation only allows to set instances of specific
 			 * subclasses of the reference type
@@ -466,60 +689,49 @@ public class ModelGenerator {
 			// Should not happen anymore, just in case
 			LOGGER.severe(e.getStackTrace().toString());
 
-			ModelGenerationStats.illegalArgumentExceptionCount++;
+			metrics.increment(Counter.ILLEGAL_ARGUMENT_EXCEPTIONS);
+			metrics.increment(Counter.SINGLE_CONTAINMENT_REF_FAIL);
+			LOGGER.warning(
+					MessageFormat.format("Unable to generate single containment reference ''{0}'' for ''{1}'' object",
+							eReference.getName(), eObject.eClass().getName()));
 		}
-		ModelGenerationStats.singleContainmentRefFail++;
-		LOGGER.warning(
-				MessageFormat.format("Unable to generate single containment reference ''{0}'' for ''{1}'' object",
-						eReference.getName(), eObject.eClass().getName()));
-		return;
 	}
-	
-	private boolean isContained(EObject eObject) {
-		HashSet<EObject> visited = new HashSet<EObject>();
-		EObject current = eObject;
-		while(current.eContainer() != null) {
-			visited.add(current);
-			current = current.eContainer();
-			if(visited.contains(current)) {
-				return false;
-			}
-		}
-		if(current.eClass().equals(UMLPackage.Literals.MODEL)) {
-			return true;
-		}
-		else {
-			return false;
+
+	private class ManyContainmentFrame extends ContainmentFrame {
+
+		List<EObject> values;
+		int childCount;
+		int i;
+		EClass nextEClass;
+
+		ManyContainmentFrame(EObject eObject, EReference eReference, ListMultimap<EClass, EObject> indexByKind,
+				SourceOfRandomness random) {
+			super(eObject, eReference, indexByKind, random);
 		}
-	}
 
-	protected void generateManyContainmentReference(EObject eObject, EReference eReference,
-			ListMultimap<EClass, EObject> indexByKind, ImmutableList<EClass> eAllConcreteSubTypesOrSelf,
-			SourceOfRandomness random) {
+		@Override
 		@SuppressWarnings("unchecked")
+		boolean start() {
+			values = (List<EObject>) eObject.eGet(eReference);
+			childCount = maxBreadth != -1 ? maxBreadth : config.getElementCountFor(eReference, random);
 
-		List<EObject> values = (List<EObject>) eObject.eGet(eReference);		
-		int childCount = maxBreadth != -1 ? maxBreadth : config.getElementCountFor(eReference, random);
-		
-		LOGGER.fine(MessageFormat.format("Generating {0} values for EReference ''{1}'' in EObject {2}", childCount,
-				eReference.getName(), eObject.toString()));
-
-		// Check if there are any uncovered EClasses
-		List<EClass> uncoveredEClasses = new ArrayList<EClass>();
-		for (EClass eClass : eAllConcreteSubTypesOrSelf) {
-			if (!metamodelCoverage.isCovered(eClass)) {
-				uncoveredEClasses.add(eClass);
-			}
-		}
+			LOGGER.fine(MessageFormat.format("Generating {0} values for EReference ''{1}'' in EObject {2}", childCount,
+					eReference.getName(), eObject.toString()));
 
-		// Try to cover at least one new uncovered EClass
-		childCount = Math.max(Math.min(uncoveredEClasses.size(), 1), childCount);
+			// Try to cover at least one new uncovered EClass
+			childCount = Math.max(Math.min(uncoveredEClasses.size(), 1), childCount);
+			return true;
+		}
 
-		for (int i = 0; i < childCount; i++) {
-			ModelGenerationStats.manyContainmentRefCount++;
+		@Override
+		EClass nextEClass() {
+			if (i >= childCount) {
+				return null;
+			}
+			i++;
+			metrics.increment(Counter.MANY_CONTAINMENT_REFS);
 
 			// If there are any uncovered EClasses, prioritize them
-			EClass nextEClass;
 			if (!uncoveredEClasses.isEmpty()) {
 				int idx = randomGenerator.nextInt(uncoveredEClasses.size());
 				nextEClass = get(uncoveredEClasses, idx);
@@ -527,34 +739,30 @@ public class ModelGenerator {
 				int idx = randomGenerator.nextInt(eAllConcreteSubTypesOrSelf.size());
 				nextEClass = get(eAllConcreteSubTypesOrSelf, idx);
 			}
+			return nextEClass;
+		}
 
-			final Optional<EObject> nextEObject = generateEObject(nextEClass, indexByKind, random);
-
-			if (nextEObject.isPresent()) {
-				try {
-					values.add(nextEObject.get());
-					ModelGenerationStats.manyContainmentRefSuccess++;
-
-					// Add to set of covered references/classes
-					coveredEClasses.add(nextEClass);
-					coveredEReferences.add(eReference);
-					//metamodelCoverage.addCoveredEClass(nextEClass);
-					//metamodelCoverage.addCoveredEContainmentRef(eReference);
-					// Remove from uncovered EClasses for next iterations
-					uncoveredEClasses.remove(nextEClass);
-				} catch (ArrayStoreException e) {
-					/*
-					 * Cause: Actual list type is only a subclass of the reference type, trying to
-					 * store a different subclass (e.g. retrieved from the indexByKind map) will
-					 * result in the exception TODO: handle/store free eobjects Note: This happens
-					 * very unfrequently for the UML metamodel (0,008%)
-					 */
-					// Should not happen anymore, just in case
-					LOGGER.severe(e.getStackTrace().toString());
-					ModelGenerationStats.arrayStoreExceptionCount++;
-				}
-			} else {
-				ModelGenerationStats.manyContainmentRefFail++;
+		@Override
+		void childGenerated(EObject child) {
+			try {
+				values.add(child);
+				metrics.increment(Counter.MANY_CONTAINMENT_REF_SUCCESS);
+
+				// Add to set of covered references/classes
+				coveredEClasses.add(nextEClass);
+				coveredEReferences.add(eReference);
+				// Remove from uncovered EClasses for next iterations
+				uncoveredEClasses.remove(nextEClass);
+			} catch (ArrayStoreException e) {
+				/*
+				 * Cause: Actual list type is only a subclass of the reference type, trying to
+				 * store a different subclass (e.g. retrieved from the indexByKind map) will
+				 * result in the exception TODO: handle/store free eobjects Note: This happens
+				 * very unfrequently for the UML metamodel (0,008%)
+				 */
+				// Should not happen anymore, just in case
+				LOGGER.severe(e.getStackTrace().toString());
+				metrics.increment(Counter.ARRAY_STORE_EXCEPTIONS);
 			}
 		}
 	}
@@ -576,21 +784,16 @@ public class ModelGenerator {
 		for (EReference eReference : eAllNonContainment) {
 
 			EClass eReferenceType = eReference.getEReferenceType();
-			List<EObject> allValues = indexByKind.get(eReferenceType);
-			List<EObject> availableValues = new LinkedList<EObject>();
+			availableValues.clear();
 
 			// Add only valid values
 			if (useValidityCache) {
-				ImmutableList<EClass> validEClasses = metamodelUtil
-						.eReferenceValidEClasses(new EClassReferencePair(eObject.eClass(), eReference));
-				for (EObject e : allValues) {
-					if (validEClasses.contains(e.eClass()) && (isContained(e))) {
-						availableValues.add(e);
-					}
-				}
+				// Objects of a valid class that are contained in the model root
+				ImmutableList<EClass> validEClasses = metamodelUtil.eReferenceValidEClasses(eObject.eClass(), eReference);
+				availableValues.addAll(candidateIndex.getCandidates(validEClasses));
 				availableValues.remove(eObject); // Forbid self-referencing
 			} else {
-				availableValues.addAll(allValues);
+				availableValues.addAll(indexByKind.get(eReferenceType));
 				availableValues.remove(eObject); // Forbid self-referencing
 			}
 
@@ -607,14 +810,16 @@ public class ModelGenerator {
 
 				//elementLoop: 
 				for (int i = 0; i < elementCount; i++) {
-					ModelGenerationStats.manyCrossRefCount++;
+					metrics.increment(Counter.MANY_CROSS_REFS);
 					if (!availableValues.isEmpty()) {
 						int idx = randomGenerator.nextInt(availableValues.size());
-						final EObject nextEObject = availableValues.get(idx);
+						final EObject nextEObject = availableValues.removeAt(idx); // Forbid duplicate referencing
+						EObject eContainer = eObject.eContainer();
+						EObject nextEContainer = nextEObject.eContainer();
 						try {
 							values.add(nextEObject);
-							availableValues.remove(idx); // Forbid duplicate referencing
-							ModelGenerationStats.manyCrossRefSuccess++;
+							checkContainment(eObject, eContainer, nextEObject, nextEContainer);
+							metrics.increment(Counter.MANY_CROSS_REF_SUCCESS);
 							// metamodelCoverage.addCoveredEReference(eReference);
 							//break; // success, continue with next element
 						} catch (ArrayStoreException e) {
@@ -624,16 +829,16 @@ public class ModelGenerator {
 							 * result in the exception
 							 */
 							// e.printStackTrace(); // Should not happen anymore, just in case
-							ModelGenerationStats.manyCrossRefFail++;
-							ModelGenerationStats.arrayStoreExceptionCount++;
-							availableValues.remove(idx);
+							metrics.increment(Counter.MANY_CROSS_REF_FAIL);
+							metrics.increment(Counter.ARRAY_STORE_EXCEPTIONS);
 						} catch (IllegalStateException e) {
 							// Cause: Cross-references can change the containment tree structure, possibly
 							// resulting in cycles
 							// This can still happen even with precomputing the possible eclasses
-							ModelGenerationStats.manyCrossRefFail++;
-							ModelGenerationStats.illegalStateExceptionCount++;
-							availableValues.remove(idx);
+							metrics.increment(Counter.MANY_CROSS_REF_FAIL);
+							metrics.increment(Counter.ILLEGAL_STATE_EXCEPTIONS);
+							// The containment tree may have changed
+							checkContainment(eObject, eContainer, nextEObject, nextEContainer);
 							// TODO: throw new IllegalStateException (cancel generation?)
 						}
 					} else {
@@ -645,13 +850,16 @@ public class ModelGenerator {
 					LOGGER.fine(MessageFormat.format("Generating EReference ''{0}'' in EObject {1}",
 							eReference.getName(), eObject.toString()));
 
-					ModelGenerationStats.singleCrossRefCount++;
+					metrics.increment(Counter.SINGLE_CROSS_REFS);
 					if (!availableValues.isEmpty()) {
 						int idx = randomGenerator.nextInt(availableValues.size());
-						final EObject nextEObject = availableValues.get(idx);
+						final EObject nextEObject = availableValues.removeAt(idx); // Do not retry this value
+						EObject eContainer = eObject.eContainer();
+						EObject nextEContainer = nextEObject.eContainer();
 						try {
 							eObject.eSet(eReference, nextEObject);
-							ModelGenerationStats.singleCrossRefSuccess++;
+							checkContainment(eObject, eContainer, nextEObject, nextEContainer);
+							metrics.increment(Counter.SINGLE_CROSS_REF_SUCCESS);
 							// metamodelCoverage.addCoveredEReference(eReference);
 							break; // Continue with next reference
 						} catch (IllegalArgumentException e) {
@@ -660,17 +868,17 @@ public class ModelGenerator {
 							 * subclasses of the reference type
 							 */
 							e.printStackTrace(); // Should not happen...
-							ModelGenerationStats.singleCrossRefFail++;
-							ModelGenerationStats.illegalArgumentExceptionCount++;
-							availableValues.remove(idx);
+							metrics.increment(Counter.SINGLE_CROSS_REF_FAIL);
+							metrics.increment(Counter.ILLEGAL_ARGUMENT_EXCEPTIONS);
 						} catch (IllegalStateException e) {
 							/*
 							 * Cause: Some cross references change the structure of the containment-tree,
 							 * which can possibly result in a cycle
 							 */
-							ModelGenerationStats.singleCrossRefFail++;
-							ModelGenerationStats.illegalStateExceptionCount++;
-							availableValues.remove(idx);
+							metrics.increment(Counter.SINGLE_CROSS_REF_FAIL);
+							metrics.increment(Counter.ILLEGAL_STATE_EXCEPTIONS);
+							// The containment tree may have changed
+							checkContainment(eObject, eContainer, nextEObject, nextEContainer);
 							// TODO: throw new IllegalStateException (cancel generation?)
 
 						}
@@ -682,6 +890,20 @@ public class ModelGenerator {
 		}
 	}
 
+	/**
+	 * Some cross-references change the containment tree as a side effect (e.g. through
+	 * opposite references). In that case, the moved objects are updated in the candidate index
+	 * for the following cross-references.
+	 */
+	private void checkContainment(EObject eObject, EObject eContainer, EObject nextEObject, EObject nextEContainer) {
+		if (eObject.eContainer() != eContainer) {
+			candidateIndex.update(eObject);
+		}
+		if (nextEObject.eContainer() != nextEContainer) {
+			candidateIndex.update(nextEObject);
+		}
+	}
+
 	protected void generateSingleAttribute(EObject eObject, EAttribute eAttribute, Class<?> instanceClass,
 			SourceOfRandomness random) {
 		if (eAttribute.isRequired() || randomGenerator.nextBoolean()) {
@@ -693,9 +915,7 @@ public class ModelGenerator {
 				if(size > 0) {
 					if (instanceClass == null) {
 						// Initial implementation TODO: review
-						instanceClass = int.class;
-						int randomValue = Math.abs((Integer) nextValue(instanceClass, random));
-						value = eEnum.getELiterals().get(randomValue % size);
+						value = eEnum.getELiterals().get(random.nextInt(size));
 					} else {
 						int idx = random.nextInt(size);
 						value = eEnum.getELiterals().get(idx).getInstance();
@@ -715,7 +935,8 @@ public class ModelGenerator {
 			SourceOfRandomness random) {
 		@SuppressWarnings("unchecked")
 		List<Object> values = (List<Object>) eObject.eGet(eAttribute);
-		for (int i = 0; i < config.getElementCountFor(eAttribute, random); i++) {
+		int elementCount = config.getElementCountFor(eAttribute, random);
+		for (int i = 0; i < elementCount; i++) {
 			final Object value;
 			EDataType eAttributeType = eAttribute.getEAttributeType();
 			if (eAttributeType instanceof EEnum) {
@@ -723,8 +944,7 @@ public class ModelGenerator {
 				int size = eEnum.getELiterals().size();
 				if (instanceClass == null) {
 					instanceClass = int.class;
-					int randomValue = Math.abs((Integer) nextValue(instanceClass, random));
-					value = eEnum.getELiterals().get(randomValue % size);
+					value = eEnum.getELiterals().get(random.nextInt(size));
 				} else {
 					int idx = random.nextInt(size);
 					value = eEnum.getELiterals().get(idx).getInstance();
@@ -753,8 +973,11 @@ public class ModelGenerator {
 
 	protected Object nextObject(Class<?> instanceClass, SourceOfRandomness random) {
 		if (instanceClass == String.class) {
-			return RandomStringUtils.random(config.getValueSizeFor(instanceClass, random), 0, 0, true, true, null,
-					randomGenerator.toJDKRandom());
+			int length = config.getValueSizeFor(instanceClass, random);
+			if (usePooledValues) {
+				return VALUE_POOL.nextString(length, randomGenerator);
+			}
+			return RandomStringUtils.random(length, 0, 0, true, true, null, randomGenerator.toJDKRandom());
 		} else {
 			LOGGER.warning(MessageFormat.format("Do not know how to randomly generate ''{0}'' object",
 					instanceClass.getName()));
@@ -768,6 +991,12 @@ public class ModelGenerator {
 	 * @param instanceClass
 	 */
 	protected Object nextPrimitive(Class<?> instanceClass) {
+		if (usePooledValues) {
+			Object value = VALUE_POOL.nextPrimitive(instanceClass, randomGenerator);
+			if (value != null) {
+				return value;
+			}
+		}
 		if (instanceClass == boolean.class) {
 			return randomGenerator.nextBoolean();
 		} else if (instanceClass == byte.class) {
@@ -801,4 +1030,30 @@ public class ModelGenerator {
 		}
 		return eAllSubTypesOrSelfWithWeights.build();
 	}
+
+	/**
+	 * Returns the number of objects per class of the last generated model, counted while
+	 * collecting its objects for the cross-references. The map is reused by the next model.
+	 */
+	public Map<EClass, int[]> getEClassCounts() {
+		return eClassCounts;
+	}
+
+	/** Returns the number of objects of the last generated model. */
+	public int getModelSize() {
+		return modelSize;
+	}
+
+	/** Returns the counters of the model generation. */
+	public GenerationMetrics getMetrics() {
+		return metrics;
+	}
+
+	/**
+	 * Sets the counters of the model generation, e.g. to share one registry between the
+	 * generators of a campaign.
+	 */
+	public void setMetrics(GenerationMetrics metrics) {
+		this.metrics = metrics;
+	}
 }
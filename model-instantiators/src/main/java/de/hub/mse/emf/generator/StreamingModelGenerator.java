@@ -0,0 +1,582 @@
+package de.hub.mse.emf.generator;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.text.MessageFormat;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.emf.ecore.EAttribute;
+import org.eclipse.emf.ecore.EClass;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.EPackage;
+import org.eclipse.emf.ecore.EReference;
+import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.emf.ecore.util.EcoreUtil;
+import org.eclipse.emf.ecore.xmi.XMIResource;
+import org.eclipse.emf.ecore.xmi.XMLResource;
+import org.eclipse.uml2.uml.UMLPackage;
+import org.eclipse.uml2.uml.UMLPackage.Literals;
+
+import com.google.common.collect.ImmutableList;
+import com.pholser.junit.quickcheck.generator.GenerationStatus;
+import com.pholser.junit.quickcheck.random.SourceOfRandomness;
+
+import de.hub.mse.emf.generator.internal.EClassReferencePair;
+import de.hub.mse.emf.generator.internal.GenerationMetrics;
+import de.hub.mse.emf.generator.internal.GenerationMetrics.Counter;
+import de.hub.mse.emf.generator.internal.MetamodelResource;
+import de.hub.mse.emf.generator.internal.ReservoirTable;
+
+/**
+ * A {@link ModelGenerator} writing the model to an XMI stream while its containment tree is
+ * generated, so the size of the generated models is not limited by the available memory.
+ *
+ * Only objects which end up in the model are written, i.e. objects which are dropped or replaced
+ * while the containment tree is generated do not appear in the file. An object of a many-valued
+ * reference is written as soon as its attributes are generated, once a trial insertion into a new
+ * instance of the container class has shown that it will be added (the outcome is cached per
+ * container class, reference and object class). An object of a single-valued reference may still
+ * be dropped or replaced by another value until its container is complete, so it is buffered
+ * together with its contents until then. Once all of the contained objects of an object have been
+ * written, they are removed from the object, so only the objects on the path from the root to the
+ * current object (and their direct children) and the buffered text are kept in memory.
+ *
+ * Note that the buffered text is not bounded: the whole subtree below a single-valued containment
+ * reference is kept in memory until its container ends. The memory needed therefore grows with the
+ * largest such subtree rather than with the depth of the model. For UML, the single-valued
+ * containments (e.g. specifications, default values and bounds) hold small subtrees, but metamodels
+ * with large subtrees below a single-valued containment are not written with constant memory.
+ *
+ * Cross-references are generated along with the attributes and are written as ids. Therefore
+ * they can only refer to objects written before. For each class, a bounded random sample of the
+ * ids written so far is kept as candidates (see {@link ReservoirTable}). The ids of buffered
+ * objects become candidates once they are committed.
+ *
+ * @author Lam
+ *
+ */
+public class StreamingModelGenerator extends ModelGenerator {
+
+	/** Default number of candidate ids kept per class. */
+	public static final int DEFAULT_ID_TABLE_CAPACITY = 1000;
+
+	private static final String INDENT = "  ";
+
+	/** The ids written so far, by class of the object. */
+	private final ReservoirTable<EClass, String> idTable;
+
+	/** Reusable set of the ids assigned to the current cross-reference. */
+	private final Set<String> chosenIds = new HashSet<String>();
+
+	/** The namespace prefixes of the packages, unique within a model file. */
+	private final Map<EPackage, String> nsPrefixes = new LinkedHashMap<EPackage, String>();
+
+	/** The elements started but not yet ended. */
+	private final Deque<Element> elements = new ArrayDeque<Element>();
+
+	private Writer writer;
+
+	private long nextId;
+
+	/** The number of objects written to the current model. */
+	private int writtenObjectCount;
+
+	/** Whether an object of a class can be added to a many-valued containment of a container class. */
+	private final Map<EClassReferencePair, Map<EClass, Boolean>> canAddCache =
+			new HashMap<EClassReferencePair, Map<EClass, Boolean>>();
+
+	/**
+	 * An element started but not yet ended.
+	 */
+	private static class Element {
+		final String name;
+		final EObject eObject;
+		final EReference eContainmentReference;
+
+		/** Whether the object is not part of the model and nothing is written. */
+		final boolean dropped;
+
+		/** The text of a single-valued object and its contents, until it is committed. */
+		final StringBuilder buffer;
+
+		/** The nearest buffered element enclosing this element (or itself), {@code null} if none. */
+		final Element bufferOwner;
+
+		/** The classes and ids of the objects written to the buffer. */
+		final List<EClass> bufferedEClasses;
+		final List<String> bufferedIds;
+
+		/** The ended single-valued children, committed when this element ends. */
+		final List<Element> singleValuedChildren = new ArrayList<Element>();
+
+		Element(String name, EObject eObject, EReference eContainmentReference, Element container,
+				boolean dropped) {
+			this.name = name;
+			this.eObject = eObject;
+			this.eContainmentReference = eContainmentReference;
+			this.dropped = dropped;
+			if (!dropped && eContainmentReference != null && !eContainmentReference.isMany()) {
+				this.buffer = new StringBuilder();
+				this.bufferOwner = this;
+				this.bufferedEClasses = new ArrayList<EClass>();
+				this.bufferedIds = new ArrayList<String>();
+			} else {
+				this.buffer = null;
+				this.bufferOwner = container != null ? container.bufferOwner : null;
+				this.bufferedEClasses = null;
+				this.bufferedIds = null;
+			}
+		}
+	}
+
+	public StreamingModelGenerator(IModelGenerationConfig config) {
+		this(config, DEFAULT_ID_TABLE_CAPACITY);
+	}
+
+	/**
+	 * @param config          the model generation configuration parameters
+	 * @param idTableCapacity the number of candidate ids kept per class for
+	 *                        cross-references
+	 */
+	public StreamingModelGenerator(IModelGenerationConfig config, int idTableCapacity) {
+		super(config);
+		this.idTable = new ReservoirTable<EClass, String>(idTableCapacity);
+		for (EPackage ePackage : config.ePackages()) {
+			String nsPrefix = ePackage.getNsPrefix();
+			if (nsPrefixes.containsValue(nsPrefix)) {
+				nsPrefix = nsPrefix + "_" + nsPrefixes.size();
+			}
+			nsPrefixes.put(ePackage, nsPrefix);
+		}
+	}
+
+	/**
+	 * Not supported, the model is written to a stream instead, see
+	 * {@link #generate(OutputStream, SourceOfRandomness)}.
+	 *
+	 * @throws UnsupportedOperationException always
+	 */
+	@Override
+	public void generate(Resource resource, SourceOfRandomness random, GenerationStatus genStatus) {
+		throw new UnsupportedOperationException("The streaming generator writes models to a stream");
+	}
+
+	/**
+	 * Not supported, the model is written to a stream instead, see
+	 * {@link #generate(OutputStream, SourceOfRandomness)}.
+	 *
+	 * @throws UnsupportedOperationException always
+	 */
+	@Override
+	public EObject generateSubModel(Random random, EClass eClass, int depth, int breadth, int maxObjectCount,
+			Set<EClass> containedEClasses) {
+		throw new UnsupportedOperationException("The streaming generator writes models to a stream");
+	}
+
+	/**
+	 * Generates one instance model and writes it to the given file.
+	 *
+	 * @param file   the XMI file to write
+	 * @param random the source of randomness driving the generation process
+	 * @throws IOException if the file cannot be written
+	 */
+	public void generate(File file, SourceOfRandomness random) throws IOException {
+		try (OutputStream out = new BufferedOutputStream(new FileOutputStream(file))) {
+			generate(out, random);
+		}
+	}
+
+	/**
+	 * Generates one instance model and writes it to the given stream, which is not closed.
+	 *
+	 * @param out    the stream to write the XMI document to
+	 * @param random the source of randomness driving the generation process
+	 * @throws IOException if the stream cannot be written
+	 */
+	public void generate(OutputStream out, SourceOfRandomness random) throws IOException {
+		this.writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+		this.randomGenerator = random;
+
+		// Reset generation stats
+		currentDepth = 0;
+		currentMaxDepth = 0;
+		currentObjectCount = 0;
+		coveredEReferences = new HashSet<EReference>();
+		coveredEClasses = new HashSet<EClass>();
+		nextId = 0;
+		writtenObjectCount = 0;
+
+		try {
+			writer.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>");
+
+			// Sample parameters for the model to be generated
+			EClass root = config.getNextRootEClass(config.possibleRootEClasses(), random);
+			currentMaxDepth = config.getDepthFor(root, random) + 1; // min. depth = 1
+			goalObjectCount = config.getTotalObjectCount(random);
+
+			generateEObject(root, null, random);
+			writer.write('\n');
+			writer.flush();
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		} finally {
+			writer = null;
+			elements.clear();
+			idTable.clear();
+		}
+		metrics.increment(Counter.MODELS);
+		metrics.addModelSize(writtenObjectCount);
+
+		// Update coverage
+		if (trackMetamodelCoverage) {
+			for (EClass eClass : coveredEClasses) {
+				metamodelCoverage.addCoveredEClass(eClass);
+			}
+
+			for (EReference eReference : coveredEReferences) {
+				metamodelCoverage.addCoveredEContainmentRef(eReference);
+			}
+		}
+
+		LOGGER.fine(MessageFormat.format("Generation finished, {0} objects written", writtenObjectCount));
+	}
+
+	/**
+	 * Returns the number of objects written to the last generated model.
+	 *
+	 * @return the number of objects
+	 */
+	public int getWrittenObjectCount() {
+		return writtenObjectCount;
+	}
+
+	@Override
+	protected void startEObject(EObject eObject, EReference eContainmentReference) {
+		EClass eClass = eObject.eClass();
+		Element container = elements.peek();
+		boolean dropped = false;
+		if (container != null) {
+			dropped = container.dropped || (eContainmentReference.isMany()
+					&& !canAdd(container.eObject.eClass(), eContainmentReference, eObject));
+		}
+		String id = "_" + nextId++;
+
+		StringBuilder sb = new StringBuilder();
+		newLine(sb, elements.size());
+		String elementName;
+		if (eContainmentReference == null) {
+			elementName = qualifiedName(eClass);
+			sb.append('<').append(elementName);
+			sb.append(' ').append(XMIResource.XMI_NS).append(':').append(XMIResource.VERSION_NAME).append("=\"")
+					.append(XMIResource.VERSION_VALUE).append('"');
+			appendNamespace(sb, XMIResource.XMI_NS, XMIResource.XMI_URI);
+			appendNamespace(sb, XMLResource.XSI_NS, XMLResource.XSI_URI);
+			for (Map.Entry<EPackage, String> entry : nsPrefixes.entrySet()) {
+				appendNamespace(sb, entry.getValue(), entry.getKey().getNsURI());
+			}
+		} else {
+			elementName = eContainmentReference.getName();
+			sb.append('<').append(elementName);
+			appendAttribute(sb, XMLResource.XSI_NS + ":" + XMLResource.TYPE, qualifiedName(eClass));
+		}
+		appendAttribute(sb, XMIResource.XMI_NS + ":" + XMIResource.XMI_ID, id);
+
+		// Single-valued attributes are written as XML attributes, many-valued ones as elements
+		for (EAttribute eAttribute : metamodelUtil.eAllAttributes(eClass)) {
+			if (!eAttribute.isMany() && eObject.eIsSet(eAttribute)) {
+				String value = EcoreUtil.convertToString(eAttribute.getEAttributeType(), eObject.eGet(eAttribute));
+				if (value != null) {
+					appendAttribute(sb, eAttribute.getName(), value);
+				}
+			}
+		}
+		generateCrossReferences(sb, eClass, randomGenerator);
+		sb.append('>');
+		for (EAttribute eAttribute : metamodelUtil.eAllAttributes(eClass)) {
+			if (eAttribute.isMany()) {
+				for (Object value : (List<?>) eObject.eGet(eAttribute)) {
+					String literal = EcoreUtil.convertToString(eAttribute.getEAttributeType(), value);
+					if (literal != null) {
+						newLine(sb, elements.size() + 1);
+						sb.append('<').append(eAttribute.getName()).append('>');
+						escape(sb, literal);
+						sb.append("</").append(eAttribute.getName()).append('>');
+					}
+				}
+			}
+		}
+
+		Element element = new Element(elementName, eObject, eContainmentReference, container, dropped);
+		write(element, sb);
+		addId(element, eClass, id);
+		elements.push(element);
+	}
+
+	@Override
+	protected void endEObject(EObject eObject) {
+		Element element = elements.pop();
+
+		// Commit the single-valued children which have neither been dropped nor replaced
+		for (Element child : element.singleValuedChildren) {
+			if (eObject.eGet(child.eContainmentReference) == child.eObject) {
+				write(element, child.buffer);
+				for (int i = 0; i < child.bufferedIds.size(); i++) {
+					addId(element, child.bufferedEClasses.get(i), child.bufferedIds.get(i));
+				}
+			}
+		}
+
+		StringBuilder sb = new StringBuilder();
+		newLine(sb, elements.size());
+		sb.append("</").append(element.name).append('>');
+		write(element, sb);
+		if (element.buffer != null) {
+			elements.peek().singleValuedChildren.add(element);
+		}
+
+		// The contained objects have been written, release them
+		for (EReference eReference : metamodelUtil.eAllContainment(eObject.eClass())) {
+			if (eObject.eIsSet(eReference)) {
+				eObject.eUnset(eReference);
+			}
+		}
+	}
+
+	/**
+	 * Generates the cross {@link EReference}s for a new object of the given class, choosing
+	 * the targets among the objects written before.
+	 *
+	 * @param sb     the start tag of the object, where the references are appended
+	 * @param eClass the class of the object
+	 * @param random the source of randomness
+	 */
+	protected void generateCrossReferences(StringBuilder sb, EClass eClass, SourceOfRandomness random) {
+		for (EReference eReference : metamodelUtil.eAllNonContainment(eClass)) {
+			ImmutableList<EClass> validEClasses;
+			if (useValidityCache) {
+				validEClasses = metamodelUtil.eReferenceValidEClasses(eClass, eReference);
+			} else {
+				validEClasses = metamodelUtil.eAllConcreteSubTypeOrSelf(eReference);
+			}
+			int candidateCount = 0;
+			for (EClass validEClass : validEClasses) {
+				candidateCount += idTable.get(validEClass).size();
+			}
+
+			if (candidateCount == 0) {
+				continue;
+			}
+
+			StringBuilder ids = new StringBuilder();
+			if (eReference.isMany()) {
+				int elementCount = config.getElementCountFor(eReference, random);
+				chosenIds.clear();
+				for (int i = 0; i < elementCount && chosenIds.size() < candidateCount; i++) {
+					metrics.increment(Counter.MANY_CROSS_REFS);
+					String id = getCandidate(validEClasses, random.nextInt(candidateCount));
+					if (!chosenIds.add(id)) {
+						// Forbid duplicate referencing
+						metrics.increment(Counter.MANY_CROSS_REF_FAIL);
+						continue;
+					}
+					if (ids.length() > 0) {
+						ids.append(' ');
+					}
+					ids.append(id);
+					metrics.increment(Counter.MANY_CROSS_REF_SUCCESS);
+				}
+			} else if (eReference.isRequired() || random.nextBoolean()) {
+				metrics.increment(Counter.SINGLE_CROSS_REFS);
+				ids.append(getCandidate(validEClasses, random.nextInt(candidateCount)));
+				metrics.increment(Counter.SINGLE_CROSS_REF_SUCCESS);
+			}
+			if (ids.length() > 0) {
+				appendAttribute(sb, eReference.getName(), ids.toString());
+			}
+		}
+	}
+
+	/**
+	 * Returns the candidate at the given index, as if the candidates of all given classes
+	 * were concatenated. Avoids copying the candidates for every reference.
+	 */
+	private String getCandidate(List<EClass> eClasses, int idx) {
+		for (EClass eClass : eClasses) {
+			List<String> candidates = idTable.get(eClass);
+			if (idx < candidates.size()) {
+				return candidates.get(idx);
+			}
+			idx -= candidates.size();
+		}
+		throw new IndexOutOfBoundsException();
+	}
+
+	private String qualifiedName(EClass eClass) {
+		String nsPrefix = nsPrefixes.get(eClass.getEPackage());
+		if (nsPrefix == null) {
+			throw new IllegalStateException("Unknown package " + eClass.getEPackage().getNsURI());
+		}
+		return nsPrefix + ":" + eClass.getName();
+	}
+
+	/**
+	 * Checks whether an object can be added to the values of a many-valued containment
+	 * reference. Like the validity cache, the object is added to a new instance of the
+	 * container class, so the model is not modified. The outcome only depends on the classes,
+	 * so it is computed once per container class, reference and object class.
+	 */
+	private boolean canAdd(EClass eClass, EReference eReference, EObject eObject) {
+		EClassReferencePair eClassRefPair = new EClassReferencePair(eClass, eReference);
+		Map<EClass, Boolean> canAddByEClass = canAddCache.get(eClassRefPair);
+		if (canAddByEClass == null) {
+			canAddByEClass = new HashMap<EClass, Boolean>();
+			canAddCache.put(eClassRefPair, canAddByEClass);
+		}
+		Boolean canAdd = canAddByEClass.get(eObject.eClass());
+		if (canAdd == null) {
+			canAdd = tryAdd(eClass, eReference, eObject);
+			canAddByEClass.put(eObject.eClass(), canAdd);
+		}
+		return canAdd;
+	}
+
+	private static boolean tryAdd(EClass eClass, EReference eReference, EObject eObject) {
+		EObject container = EcoreUtil.create(eClass);
+		@SuppressWarnings("unchecked")
+		List<EObject> values = (List<EObject>) container.eGet(eReference);
+		try {
+			values.add(eObject);
+		} catch (IllegalArgumentException | ArrayStoreException e) {
+			return false;
+		}
+		values.clear();
+		return true;
+	}
+
+	/** Writes text of the given element, or buffers it if the element is not committed yet. */
+	private void write(Element element, CharSequence text) {
+		if (element.dropped) {
+			return;
+		}
+		if (element.bufferOwner != null) {
+			element.bufferOwner.buffer.append(text);
+			return;
+		}
+		try {
+			writer.append(text);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/** Makes the id of an object written in the given element a candidate for cross-references. */
+	private void addId(Element element, EClass eClass, String id) {
+		if (element.dropped) {
+			return;
+		}
+		if (element.bufferOwner != null) {
+			element.bufferOwner.bufferedEClasses.add(eClass);
+			element.bufferOwner.bufferedIds.add(id);
+			return;
+		}
+		idTable.add(eClass, id, randomGenerator.toJDKRandom());
+		writtenObjectCount++;
+	}
+
+	private static void newLine(StringBuilder sb, int depth) {
+		sb.append('\n');
+		for (int i = 0; i < depth; i++) {
+			sb.append(INDENT);
+		}
+	}
+
+	private static void appendNamespace(StringBuilder sb, String prefix, String uri) {
+		appendAttribute(sb, XMLResource.XML_NS + ":" + prefix, uri);
+	}
+
+	private static void appendAttribute(StringBuilder sb, String name, String value) {
+		sb.append(' ').append(name).append("=\"");
+		escape(sb, value);
+		sb.append('"');
+	}
+
+	private static void escape(StringBuilder sb, String value) {
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			switch (c) {
+			case '&':
+				sb.append("&amp;");
+				break;
+			case '<':
+				sb.append("&lt;");
+				break;
+			case '>':
+				sb.append("&gt;");
+				break;
+			case '"':
+				sb.append("&quot;");
+				break;
+			default:
+				if (c < 0x20) {
+					sb.append("&#x").append(Integer.toHexString(c).toUpperCase()).append(';');
+				} else {
+					sb.append(c);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Writes a large UML model for scalability testing.
+	 * Arguments: output file, max. object count, max. depth [, seed [, metrics file]]
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length < 3) {
+			System.err.println("Usage: StreamingModelGenerator <file> <maxObjectCount> <maxDepth> [seed [metricsFile]]");
+			return;
+		}
+		File file = new File(args[0]);
+		int maxObjectCount = Integer.parseInt(args[1]);
+		int maxDepth = Integer.parseInt(args[2]);
+		long seed = args.length > 3 ? Long.parseLong(args[3]) : System.currentTimeMillis();
+
+		UMLPackage.eINSTANCE.eClass();
+		EcoreUtil.resolveAll(UMLPackage.eINSTANCE);
+		MetamodelResource metamodelResource = new MetamodelResource(UMLPackage.eINSTANCE);
+		ModelGenerationConfigImpl config = new ModelGenerationConfigImpl(metamodelResource, Literals.MODEL,
+				new HashSet<EClass>(), maxObjectCount, maxDepth, 10, 10);
+		StreamingModelGenerator generator = new StreamingModelGenerator(config);
+
+		long startTime = System.currentTimeMillis();
+		if (args.length > 4) {
+			try (GenerationMetrics.Dump dump = generator.getMetrics().startDump(new File(args[4]), 10,
+					TimeUnit.SECONDS)) {
+				generator.generate(file, new SourceOfRandomness(new Random(seed)));
+			}
+		} else {
+			generator.generate(file, new SourceOfRandomness(new Random(seed)));
+		}
+		System.out.println("Seed: " + seed);
+		System.out.println("Objects: " + generator.getWrittenObjectCount());
+		System.out.println("Size: " + file.length() + " bytes");
+		System.out.println("Time: " + (System.currentTimeMillis() - startTime) + " ms");
+	}
+}
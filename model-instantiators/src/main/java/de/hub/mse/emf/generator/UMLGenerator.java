@@ -1,5 +1,6 @@
 package de.hub.mse.emf.generator;
 
+import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
@@ -7,6 +8,7 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Random;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.LogManager;
 
 import org.eclipse.emf.common.command.BasicCommandStack;
@@ -177,8 +179,15 @@ public class UMLGenerator extends Generator<Resource>{
 		return modelResource;
 	}
 	
-	public static void main(String[] args) {
+	/**
+	 * Generates models until stopped and prints statistics.
+	 * Arguments: [metrics file], to which the generation metrics are written every 10 seconds
+	 */
+	public static void main(String[] args) throws IOException {
 		UMLGenerator generator = new UMLGenerator();
+		if (args.length > 0) {
+			generator.generator.getMetrics().startDump(new File(args[0]), 10, TimeUnit.SECONDS);
+		}
 		boolean debug = false;
 		if(debug) {
 			long seed = 1583674167575L;
@@ -204,10 +213,9 @@ public class UMLGenerator extends Generator<Resource>{
 					Resource resource = generator.generate(rand, null);	
 					//resource.save(null);
 					generatedModels++;
-					int size = ModelGenerationStats.addModelCount(resource);
 					
 					// Add counts to coverage map
-					ModelGenerationStats.updateMetamodelCoverage(resource);
+					ModelGenerationStats.updateMetamodelCoverage(generator.generator.getEClassCounts());
 				}
 				catch(Exception e) {
 					System.out.println("Unhandled exception for seed " + seed);
@@ -227,7 +235,7 @@ public class UMLGenerator extends Generator<Resource>{
 					
 					// Print stats after every 10% of progress
 					if(generatedModels % base == 0) {
-						ModelGenerationStats.printCompleteStats(i, generatedModels);
+						ModelGenerationStats.printCompleteStats(i, generatedModels, generator.generator.getMetrics().snapshot());
 					}
 					else if(generatedModels % (base/10) == 0) {	
 						System.out.println("...");
@@ -1,5 +1,7 @@
 package de.hub.mse.emf.generator.cgf;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
@@ -7,8 +9,10 @@ import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Queue;
+import java.util.concurrent.TimeUnit;
 
 import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.uml2.uml.resource.UMLResource;
 
 import com.pholser.junit.quickcheck.generator.GenerationStatus;
 import com.pholser.junit.quickcheck.random.SourceOfRandomness;
@@ -17,10 +21,19 @@ import de.hub.mse.emf.fuzz.junit.quickcheck.generator.InputSavingGenerator;
 import de.hub.mse.emf.generator.cgf.util.FixedSizePriorityQueue;
 import de.hub.mse.emf.generator.cgf.util.RankedResource;
 import de.hub.mse.emf.fuzz.CoverageGuidance;
+import de.hub.mse.emf.fuzz.InputSchedule;
 import de.hub.mse.emf.fuzz.junit.quickcheck.ModelGenerationStatus;
 
 public class CoverageGuidedUMLGenerator extends InputSavingGenerator<Resource> {
 
+	/**
+	 * Produce each child by mutating its parent in place and undoing the mutation once the
+	 * child has been executed, instead of stacking all mutations of a parent on a deep copy
+	 * of it. Each child is then a single mutation away from its parent. This assumes that the
+	 * test does not modify its input, since such changes cannot be undone.
+	 */
+	private boolean undoMutations = false;
+
 	/**
 	 * The instance model generator/mutator to produce initial seed inputs and
 	 * mutate existing inputs.
@@ -43,16 +56,16 @@ public class CoverageGuidedUMLGenerator extends InputSavingGenerator<Resource> {
 			//comparator);
 	
 	/** Queue storing the 50 most recent inputs that exhibited new coverage */
-	Queue<Resource> seedQueue = new LinkedList<Resource>();
+	Queue<SavedModel> seedQueue = new LinkedList<SavedModel>();
 	
 	/** Number of slots available in the queue */
 	int availableSeedSlots = 50;
 
 	/**
-	 * List storing the number of new branches covered by each input in the queue
-	 * (responsibilities)
+	 * Favored inputs and number of children per input in the queue,
+	 * based on their responsibilities, coverage, execution time and size.
 	 */
-	private List<Integer> responsibilityCounts = new ArrayList<Integer>();
+	private InputSchedule schedule = new InputSchedule();
 
 	/** Index pointing to the current parent input in the queue. */
 	private int currentInputIdx = 0;
@@ -68,6 +81,24 @@ public class CoverageGuidedUMLGenerator extends InputSavingGenerator<Resource> {
 
 	/** The current input. */
 	private Resource currentInput = null;
+	
+	/** The number of objects of the current input, as known from its generation or mutation. */
+	private int currentInputSize = 0;
+	
+	/** Whether the current input is a parent in the queue, rather than a copy of it. */
+	private boolean currentIsParent = false;
+	
+	/** Whether the current input is a parent with a mutation that has to be undone. */
+	private boolean mutationPending = false;
+	
+	/** The copy of the input saved last. */
+	private Resource lastSavedInput = null;
+	
+	/** Seed models loaded from disk that have not been executed yet. */
+	private Queue<Resource> pendingSeeds = new LinkedList<Resource>();
+	
+	/** Whether the current input is a seed model (that has not been saved yet). */
+	private boolean currentIsSeed = false;
 
 	private int runsSinceLastCoverage = 0;
 	private int generateThreshold = 500; // No new coverage after 500 execs
@@ -84,8 +115,36 @@ public class CoverageGuidedUMLGenerator extends InputSavingGenerator<Resource> {
 	public Resource generate(SourceOfRandomness random, GenerationStatus genStatus) {
 		
 		runsSinceLastCoverage++;
+		
+		// Restore the parent of the previous child
+		if (mutationPending) {
+			modelProvider.undoLastMutation();
+			mutationPending = false;
+		}
+		
+		// The previous seed did not exercise new coverage, discard it
+		if (currentIsSeed) {
+			currentInput.unload();
+			currentInput.getResourceSet().getResources().remove(currentInput);
+			currentInput = null;
+			currentIsSeed = false;
+		}
+		
+		// Execute each seed once before generating or mutating models
+		if (!pendingSeeds.isEmpty()) {
+			currentInput = pendingSeeds.poll();
+			currentIsSeed = true;
+			currentIsParent = false;
+			if (genStatus instanceof ModelGenerationStatus) {
+				((ModelGenerationStatus) genStatus).update(inputQueue.size(), currentInputIdx, currentChildCount,
+						currentTargetChildCount, cycleCount);
+			}
+			return currentInput;
+		}
 		if (!doMutations || inputQueue.isEmpty()) {
 			currentInput = modelProvider.generate(random, genStatus);
+			currentInputSize = modelProvider.getGeneratedModelSize();
+			currentIsParent = false;
 			if (genStatus instanceof ModelGenerationStatus) {
 				((ModelGenerationStatus) genStatus).update(queueSize, currentInputIdx, currentChildCount,
 						currentTargetChildCount, cycleCount);
@@ -109,8 +168,7 @@ public class CoverageGuidedUMLGenerator extends InputSavingGenerator<Resource> {
 				}
 				*/
 				while(!seedQueue.isEmpty()) {
-					inputQueue.add(seedQueue.poll());
-					responsibilityCounts.add(200); // default value for seeds
+					enqueue(seedQueue.poll());
 				}
 			}
 			
@@ -129,8 +187,8 @@ public class CoverageGuidedUMLGenerator extends InputSavingGenerator<Resource> {
 					cycleCount++;
 				}
 				
-				// Remove last model copy
-				if (currentInput != null) {
+				// Remove last model copy, parents are only mutated if the mutations are undone
+				if (currentInput != null && !currentIsParent) {
 					currentInput.unload();
 					// currentInput.delete(Collections.EMPTY_MAP);
 				}
@@ -138,22 +196,32 @@ public class CoverageGuidedUMLGenerator extends InputSavingGenerator<Resource> {
 				// Flush all previous commands
 				modelProvider.flushCommandStack();
 
+				// Re-compute the favored inputs if the queue has changed
+				schedule.cull();
+
 				// Move next in (cyclic) queue
 				currentInputIdx = (currentInputIdx + 1) % inputQueue.size();
 				Resource parent = inputQueue.get(currentInputIdx);
 
-				// Create new copy to apply mutations on
-				currentInput = modelProvider.createCopyResource(parent);
+				// Create new copy to apply mutations on, unless they are undone after each child
+				currentInput = undoMutations ? parent : modelProvider.createCopyResource(parent);
+				currentIsParent = undoMutations;
 
 				// Determine number of child inputs to be generated
 				currentTargetChildCount = getTargetChildCount();
 				currentChildCount = 0;
 				
+				if (genStatus instanceof ModelGenerationStatus) {
+					((ModelGenerationStatus) genStatus).updateFavored(schedule.getNumFavored(),
+							schedule.isFavored(currentInputIdx));
+				}
+				
 			}
 
-			// Mutate copy of current parent
-			//modelProvider.undoLastMutation();
-			modelProvider.mutate(currentInput, random, genStatus);
+			// Mutate current parent (or its copy)
+			int sizeDiff = modelProvider.mutate(currentInput, random, genStatus);
+			currentInputSize = modelProvider.getMutatedModelSize();
+			mutationPending = undoMutations && sizeDiff != Integer.MIN_VALUE;
 			currentChildCount++;
 
 			if (genStatus instanceof ModelGenerationStatus) {
@@ -169,7 +237,17 @@ public class CoverageGuidedUMLGenerator extends InputSavingGenerator<Resource> {
 
 	@Override
 	public void saveInput(int responsibilities) {
+		saveInput(responsibilities, null, 0);
+	}
+	
+	@Override
+	public void saveInput(int responsibilities, int[] coveredKeys, long execNanos) {
 		runsSinceLastCoverage = 0; // reset counter
+		
+		if (currentIsSeed) {
+			saveSeed(responsibilities, coveredKeys, execNanos);
+			return;
+		}
 		// inputQueue.add(currentInput);
 		if (!doMutations) {
 			//RankedResource modelResource = new RankedResource(modelProvider.createCopyResource(currentInput),
@@ -180,22 +258,12 @@ public class CoverageGuidedUMLGenerator extends InputSavingGenerator<Resource> {
 				modelResource.getResource().unload();
 			}
 			*/
-			if(availableSeedSlots > 0) {
-				seedQueue.add(modelProvider.createCopyResource(currentInput));
-				availableSeedSlots--;
-			}
-			else {
-				// Remove oldest entry
-				Resource oldest = seedQueue.poll();
-				oldest.unload();
-				
-				// Add new entry to end
-				seedQueue.add(modelProvider.createCopyResource(currentInput));
-			}
+			lastSavedInput = modelProvider.createCopyResource(currentInput);
+			addSeed(new SavedModel(lastSavedInput, currentInputSize, responsibilities, coveredKeys, execNanos));
 		} else {
 			// TODO: Only save if responsibilities > N ?
-			inputQueue.add(modelProvider.createCopyResource(currentInput));
-			responsibilityCounts.add(responsibilities);
+			lastSavedInput = modelProvider.createCopyResource(currentInput);
+			enqueue(new SavedModel(lastSavedInput, currentInputSize, responsibilities, coveredKeys, execNanos));
 			modelProvider.commitTempCoveredEClasses();
 		}
 		// responsibilityCountMap.put(currentInputIdx, responsibilities);
@@ -203,15 +271,140 @@ public class CoverageGuidedUMLGenerator extends InputSavingGenerator<Resource> {
 		// + Math.round(Math.log10(responsibilities) * 100));
 	}
 
+	/**
+	 * Puts the current seed model straight into the mutation queue,
+	 * skipping the generation phase.
+	 */
+	private void saveSeed(int responsibilities, int[] coveredKeys, long execNanos) {
+		if (!doMutations) {
+			doMutations = true;
+			
+			// To start at 0
+			cycleCount = -1;
+			currentInputIdx = -1;
+		}
+		enqueue(new SavedModel(currentInput, modelProvider.countObjects(currentInput), responsibilities,
+				coveredKeys, execNanos));
+		lastSavedInput = currentInput;
+		
+		// The seed is now owned by the queue
+		currentInput = null;
+		currentIsSeed = false;
+	}
+	
+	@Override
+	public String getFileExtension() {
+		return UMLResource.FILE_EXTENSION;
+	}
+	
+	@Override
+	public int loadSeedInputs(List<File> seedFiles) {
+		List<File> modelFiles = new ArrayList<File>();
+		for (File file : seedFiles) {
+			String name = file.getName();
+			if (name.endsWith("." + UMLResource.FILE_EXTENSION) || name.endsWith(".xmi")) {
+				modelFiles.add(file);
+			}
+		}
+		List<Resource> seeds = modelProvider.loadResources(modelFiles);
+		pendingSeeds.addAll(seeds);
+		return seeds.size();
+	}
+	
+	/** Appends a model to the mutation queue and its schedule. */
+	private void enqueue(SavedModel model) {
+		inputQueue.add(model.resource);
+		schedule.add(model.responsibilities, model.coveredKeys, model.execNanos, model.size);
+	}
+	
+	/** Adds a seed to the seed queue, replacing the oldest entry if no slots are available. */
+	private void addSeed(SavedModel seed) {
+		if(availableSeedSlots > 0) {
+			seedQueue.add(seed);
+			availableSeedSlots--;
+		}
+		else {
+			// Remove oldest entry
+			SavedModel oldest = seedQueue.poll();
+			oldest.resource.unload();
+			
+			// Add new entry to end
+			seedQueue.add(seed);
+		}
+	}
+	
+	@Override
+	public byte[] serializeSavedInput() {
+		if (lastSavedInput == null) {
+			return null;
+		}
+		return modelProvider.serializeResource(lastSavedInput);
+	}
+	
+	@Override
+	public byte[] serializeCurrentInput() {
+		if (currentInput == null) {
+			return null;
+		}
+		return modelProvider.serializeResource(currentInput);
+	}
+	
+	@Override
+	public void importInput(byte[] serialized, int responsibilities) {
+		importInput(serialized, responsibilities, null, 0);
+	}
+	
+	@Override
+	public void importInput(byte[] serialized, int responsibilities, int[] coveredKeys, long execNanos) {
+		Resource resource = modelProvider.deserializeResource(serialized);
+		SavedModel input = new SavedModel(resource, modelProvider.countObjects(resource), responsibilities,
+				coveredKeys, execNanos);
+		if (!doMutations) {
+			addSeed(input);
+		} else {
+			enqueue(input);
+		}
+	}
+
+	@Override
+	public void setUndoMutations(boolean undoMutations) {
+		this.undoMutations = undoMutations;
+	}
+
+	@Override
+	public AutoCloseable startMetricsDump(File file, long period, TimeUnit unit) throws IOException {
+		return modelProvider.getGenerationMetrics().startDump(file, period, unit);
+	}
+
 	public boolean isMutationPhase() {
 		return doMutations;
 	}
 
 	private int getTargetChildCount() {
-		// Number of branches this input is responsible for
-		int responsibilities = responsibilityCounts.get(currentInputIdx);
-		// At least 100 mutations
-		return (int) Math.max(Math.round(Math.log10(responsibilities) * 100), 100);
+		// Depends on the responsibilities, execution time and size, and whether the input is favored
+		return schedule.getEnergy(currentInputIdx);
+	}
+	
+	/** A saved model together with the information it was saved with. */
+	private static class SavedModel {
+		
+		private final Resource resource;
+		
+		private final int size;
+		
+		private final int responsibilities;
+		
+		private final int[] coveredKeys;
+		
+		private final long execNanos;
+		
+		SavedModel(Resource resource, int size, int responsibilities, int[] coveredKeys, long execNanos) {
+			this.resource = resource;
+			this.size = size;
+			this.responsibilities = responsibilities;
+			this.coveredKeys = coveredKeys;
+			this.execNanos = execNanos;
+		}
 	}
 
 }
@@ -1,8 +1,10 @@
 package de.hub.mse.emf.generator.cgf;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -35,6 +37,17 @@ public class MetamodelCoverage {
 	/** The covered containment references. */
 	private Set<EReference> coveredEContainmentRefs;
 	
+	/** Listeners notified when the number of instances of an EClass changes. */
+	private final List<EClassCountListener> eClassCountListeners = new ArrayList<EClassCountListener>();
+	
+	/**
+	 * Listener notified when the global number of instances of an EClass changes, e.g. to keep
+	 * sampling weights derived from the counts up to date.
+	 */
+	public interface EClassCountListener {
+		void eClassCountChanged(EClass eClass, int count);
+	}
+	
 	public MetamodelCoverage(Collection<EClass> allClasses, Collection<EReference> allContainmentRefs) {
 		allEClasses = new HashSet<EClass>();
 		allEClasses.addAll(allClasses);
@@ -65,7 +78,7 @@ public class MetamodelCoverage {
 		// Increment count
 		// If there exists a value for the given key, add 1
 		// otherwise, set as 1
-		eClassCounts.merge(eClass, 1, Integer::sum);
+		fireEClassCountChanged(eClass, eClassCounts.merge(eClass, 1, Integer::sum));
 	}
 	
 	public void addTempCoveredEClass(EClass eClass) {
@@ -79,7 +92,7 @@ public class MetamodelCoverage {
 	public void commitTempCoveredEClasses() {
 		for(EClass eClass : tempCoveredEClasses) {
 			coveredEClasses.add(eClass);
-			eClassCounts.merge(eClass, 1, Integer::sum);
+			fireEClassCountChanged(eClass, eClassCounts.merge(eClass, 1, Integer::sum));
 		}
 		tempCoveredEClasses.clear();
 	}
@@ -88,6 +101,7 @@ public class MetamodelCoverage {
 		assert(eClassCounts.containsKey(eClass));
 		int oldValue = eClassCounts.get(eClass);
 		eClassCounts.put(eClass, oldValue - 1);
+		fireEClassCountChanged(eClass, oldValue - 1);
 	}
 	
 	public int getEClassCount(EClass eClass) {
@@ -97,6 +111,21 @@ public class MetamodelCoverage {
 	// For debugging/testing purposes only
 	public void setCount(EClass eClass, int count) {
 		eClassCounts.put(eClass, count);
+		fireEClassCountChanged(eClass, count);
+	}
+	
+	public void addEClassCountListener(EClassCountListener listener) {
+		eClassCountListeners.add(listener);
+	}
+	
+	public void removeEClassCountListener(EClassCountListener listener) {
+		eClassCountListeners.remove(listener);
+	}
+	
+	private void fireEClassCountChanged(EClass eClass, int count) {
+		for (int i = 0; i < eClassCountListeners.size(); i++) {
+			eClassCountListeners.get(i).eClassCountChanged(eClass, count);
+		}
 	}
 	
 	public float getEClassCoverage() {
@@ -1,12 +1,23 @@
 package de.hub.mse.emf.generator.cgf;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.LogManager;
 
 import org.eclipse.emf.common.util.EList;
+import org.eclipse.emf.common.util.TreeIterator;
 import org.eclipse.emf.common.util.URI;
 import org.eclipse.emf.ecore.EClass;
 import org.eclipse.emf.ecore.EObject;
@@ -25,6 +36,7 @@ import com.pholser.junit.quickcheck.random.SourceOfRandomness;
 import de.hub.mse.emf.fuzz.junit.quickcheck.ModelGenerationStatus;
 import de.hub.mse.emf.generator.ModelGenerationConfigImpl;
 import de.hub.mse.emf.generator.ModelGenerator;
+import de.hub.mse.emf.generator.internal.GenerationMetrics;
 import de.hub.mse.emf.generator.internal.MetamodelUtil;
 import de.hub.mse.emf.generator.internal.MetamodelResource;
 import de.hub.mse.emf.mutator.ModelMutator;
@@ -44,6 +56,13 @@ import de.hub.mse.emf.mutator.mutation.UnsetAttributesMutation;
  */
 public class UMLModelProvider {
 	
+	/** The file caching the valid EClasses of all references across runs. */
+	public static final File VALIDITY_CACHE_FILE = new File(System.getProperty("mofuzz.validityCache",
+			new File(System.getProperty("java.io.tmpdir"), "mofuzz-uml-validity.cache").getPath()));
+	
+	/** The metamodel data whose validity cache has been warmed up first in this JVM, if any. */
+	private static MetamodelUtil warmedUpMetamodelUtil = null;
+	
 	/** The resource set containing the model.*/
 	private ResourceSetImpl resourceSet;
 	
@@ -95,6 +114,9 @@ public class UMLModelProvider {
 		metamodelResource = new MetamodelResource(UMLPackage.eINSTANCE);
 		generationConfig = new ModelGenerationConfigImpl(metamodelResource, Literals.MODEL, eClassWhitelist, 500,  10, 10, 10);
 		metamodelUtil = new MetamodelUtil(generationConfig.ePackages(), generationConfig.ignoredEClasses(), generationConfig.getEClassWhitelist());
+		if(ModelGenerator.useValidityCache) {
+			warmUpValidityCache(metamodelUtil);
+		}
 		
 		metamodelCoverage = new MetamodelCoverage(metamodelUtil.getAllEClasses(), metamodelUtil.getAllEContainmentRefs());
 		generator = new ModelGenerator(generationConfig, metamodelUtil, metamodelCoverage);
@@ -112,6 +134,19 @@ public class UMLModelProvider {
 		mutator.setMutationWeights(mutationWeights);
 	}
 	
+	/**
+	 * Warms up the validity cache once per JVM: the first provider loads or computes (and saves)
+	 * the valid EClasses, all later providers, e.g. of parallel workers, copy them.
+	 */
+	private static synchronized void warmUpValidityCache(MetamodelUtil metamodelUtil) {
+		if(warmedUpMetamodelUtil != null && metamodelUtil.getSchema().copyValidEClasses(warmedUpMetamodelUtil.getSchema())) {
+			return;
+		}
+		if(metamodelUtil.warmUpValidityCache(VALIDITY_CACHE_FILE, Runtime.getRuntime().availableProcessors())) {
+			warmedUpMetamodelUtil = metamodelUtil;
+		}
+	}
+	
 	public Resource generate(SourceOfRandomness random, GenerationStatus genStatus) {
 		// Clean up resource from previous generation
 		EList<Resource> resources = this.resourceSet.getResources();
@@ -143,7 +178,137 @@ public class UMLModelProvider {
 		return copyResource;
 	}
 	
+	/**
+	 * Returns the size of the model generated last.
+	 * @return the number of objects, as counted by the generator
+	 */
+	public int getGeneratedModelSize() {
+		return generator.getModelSize();
+	}
+	
+	/**
+	 * Returns the size of the model mutated last.
+	 * @return the number of objects, as kept by the index of the mutator
+	 */
+	public int getMutatedModelSize() {
+		return mutator.getModelSize();
+	}
+	
+	/**
+	 * Counts the objects of a model that has been loaded rather than generated or mutated,
+	 * so that its size is not known yet.
+	 * @param modelResource the resource containing the model
+	 * @return the number of objects in the resource
+	 */
+	public int countObjects(Resource modelResource) {
+		int size = 0;
+		for (TreeIterator<EObject> it = modelResource.getAllContents(); it.hasNext(); it.next()) {
+			size++;
+		}
+		return size;
+	}
+	
+	/**
+	 * Serializes a model resource, e.g. to hand it to another thread.
+	 * @param modelResource the resource to serialize
+	 * @return the serialized model
+	 */
+	public byte[] serializeResource(Resource modelResource) {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		try {
+			modelResource.save(out, null);
+		} catch (IOException e) {
+			throw new RuntimeException("Unable to serialize model", e);
+		}
+		return out.toByteArray();
+	}
+	
+	/**
+	 * Loads a serialized model into a new resource of the queue resource set.
+	 * @param serialized the serialized model, see {@link #serializeResource(Resource)}
+	 * @return the resource containing the model
+	 */
+	public Resource deserializeResource(byte[] serialized) {
+		Resource copyResource = queueResourceSet.createResource(URI.createFileURI("uml_copy" + (copyId++) + ".uml"));
+		try {
+			copyResource.load(new ByteArrayInputStream(serialized), null);
+		} catch (IOException e) {
+			throw new RuntimeException("Unable to load model", e);
+		}
+		return copyResource;
+	}
+	
+	/**
+	 * Loads models from disk in parallel, each into its own resource set,
+	 * and moves the loaded resources into the queue resource set.
+	 * Files that cannot be loaded are skipped.
+	 * 
+	 * The models are loaded on dedicated threads only, never on the calling thread, which
+	 * may be the application thread whose coverage is traced.
+	 * @param files the model files (.uml or .xmi)
+	 * @return the resources containing the loaded models
+	 */
+	public List<Resource> loadResources(List<File> files) {
+		if (files.isEmpty()) {
+			return new ArrayList<Resource>();
+		}
+		int numThreads = Math.min(files.size(), Runtime.getRuntime().availableProcessors());
+		AtomicInteger count = new AtomicInteger();
+		ExecutorService executor = Executors.newFixedThreadPool(numThreads, r -> {
+			Thread thread = new Thread(r, "mofuzz-seed-loader-" + count.getAndIncrement());
+			thread.setDaemon(true);
+			return thread;
+		});
+		
+		List<Future<Resource>> futures = new ArrayList<Future<Resource>>();
+		for (File file : files) {
+			futures.add(executor.submit(() -> loadResource(file)));
+		}
+		
+		List<Resource> loaded = new ArrayList<Resource>();
+		try {
+			for (Future<Resource> future : futures) {
+				Resource resource = future.get();
+				if (resource != null) {
+					loaded.add(resource);
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (ExecutionException e) {
+			throw new RuntimeException("Unable to load seeds", e.getCause());
+		} finally {
+			executor.shutdownNow();
+		}
+		
+		for (Resource resource : loaded) {
+			queueResourceSet.getResources().add(resource);
+		}
+		return loaded;
+	}
+	
+	private Resource loadResource(File file) {
+		ResourceSetImpl seedResourceSet = new ResourceSetImpl();
+		seedResourceSet.getPackageRegistry().put(UMLPackage.eNS_URI, UMLPackage.eINSTANCE);
+		seedResourceSet.getResourceFactoryRegistry().getExtensionToFactoryMap().put(UMLResource.FILE_EXTENSION, UMLResource.Factory.INSTANCE);
+		seedResourceSet.getResourceFactoryRegistry().getExtensionToFactoryMap().put("xmi", UMLResource.Factory.INSTANCE);
+		UMLResourcesUtil.init(seedResourceSet);
+		
+		try {
+			Resource resource = seedResourceSet.getResource(URI.createFileURI(file.getAbsolutePath()), true);
+			if (resource.getContents().isEmpty()) {
+				return null;
+			}
+			return resource;
+		} catch (RuntimeException e) {
+			System.err.println("Unable to load seed " + file.getAbsolutePath() + ": " + e.getMessage());
+			return null;
+		}
+	}
+	
 	public int mutate(Resource modelResource, SourceOfRandomness random, GenerationStatus genStatus) {
+		// Derive the mutation from the trial's source of randomness, so that it can be replayed
+		mutator.setSeed(random.nextLong());
 		return mutator.mutate(modelResource, genStatus);
 	}
 	
@@ -158,7 +323,11 @@ public class UMLModelProvider {
 	
 	public void flushCommandStack() {
 		// TODO add pending coverage
-		mutator.flushCommandStack();
+		mutator.flushJournal();
+	}
+	
+	public GenerationMetrics getGenerationMetrics() {
+		return generator.getMetrics();
 	}
 	
 	public boolean baseCoverageReached() {
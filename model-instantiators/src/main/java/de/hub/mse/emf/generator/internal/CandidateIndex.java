@@ -0,0 +1,211 @@
+package de.hub.mse.emf.generator.internal;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.emf.common.util.TreeIterator;
+import org.eclipse.emf.ecore.EClass;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.emf.ecore.util.EcoreUtil;
+
+import com.google.common.collect.ImmutableList;
+
+/**
+ * Index of the objects of a generated model that may be used as targets of cross-references,
+ * i.e. objects that are (transitively) contained in a root object of a given {@link EClass}.
+ *
+ * The index is built in a single pass over the containment tree once it is complete.
+ * Candidate pools are bucketed by the lists of valid {@link EClass}es returned by
+ * {@link MetamodelUtil#eReferenceValidEClasses(EClass, org.eclipse.emf.ecore.EReference)}, which are cached
+ * and therefore shared by all objects with the same class and reference.
+ * If a cross-reference moves an object to another container, only the entries of the moved
+ * subtree are updated (see {@link #update(EObject)}); the candidate pools containing one of
+ * the affected classes are dropped and assembled again on their next lookup, which costs no
+ * more than copying the pool for that lookup.
+ *
+ * The lists of the index are recycled, so one instance should be reused for all models
+ * of a generator.
+ *
+ * @author Lam
+ *
+ */
+public class CandidateIndex {
+
+	/** The class of root objects whose contents are valid targets. */
+	private final EClass rootEClass;
+
+	/** The resource the index was built for. */
+	private Resource resource;
+
+	/** Contained objects by their exact class. */
+	private final Map<EClass, List<EObject>> byEClass = new HashMap<EClass, List<EObject>>();
+
+	/** Position of each contained object in its list of {@link #byEClass}. */
+	private final Map<EObject, Integer> positions = new IdentityHashMap<EObject, Integer>();
+
+	/** Candidate pools by list of valid classes (identity, since these lists are cached). */
+	private final Map<ImmutableList<EClass>, List<EObject>> pools = new IdentityHashMap<ImmutableList<EClass>, List<EObject>>();
+
+	/** Recycled lists for the candidate pools. */
+	private final List<List<EObject>> freeLists = new ArrayList<List<EObject>>();
+
+	/** Whether the containment tree has changed since the index was built. */
+	private boolean dirty = true;
+
+	/**
+	 * Creates an empty index.
+	 * @param rootEClass the class of root objects whose contents are valid targets
+	 */
+	public CandidateIndex(EClass rootEClass) {
+		this.rootEClass = rootEClass;
+	}
+
+	/**
+	 * Resets the index for the given resource, whose containment tree is complete.
+	 * @param resource the resource containing the generated model
+	 */
+	public void reset(Resource resource) {
+		this.resource = resource;
+		this.dirty = true;
+	}
+
+	/**
+	 * Updates the index after an object has been moved to another container, e.g. as a side effect
+	 * of setting a reference. The objects of the moved subtree are removed and added again if their
+	 * new container is (transitively) contained in a root object of the indexed class.
+	 * @param moved the moved object
+	 */
+	public void update(EObject moved) {
+		if (dirty) {
+			return; // Not built yet
+		}
+		boolean indexed = isIndexed(moved);
+		Set<EClass> affectedEClasses = new HashSet<EClass>();
+		affectedEClasses.add(moved.eClass());
+		remove(moved);
+		if (indexed) {
+			add(moved);
+		}
+		for (TreeIterator<EObject> it = moved.eAllContents(); it.hasNext();) {
+			EObject eObject = it.next();
+			affectedEClasses.add(eObject.eClass());
+			remove(eObject);
+			if (indexed) {
+				add(eObject);
+			}
+		}
+		for (Iterator<Map.Entry<ImmutableList<EClass>, List<EObject>>> it = pools.entrySet().iterator(); it.hasNext();) {
+			Map.Entry<ImmutableList<EClass>, List<EObject>> pool = it.next();
+			if (!Collections.disjoint(pool.getKey(), affectedEClasses)) {
+				release(pool.getValue());
+				it.remove();
+			}
+		}
+	}
+
+	/**
+	 * Returns the contained objects whose class is one of the given classes.
+	 * The returned list is owned by the index, it must not be modified and is only valid
+	 * until the index changes.
+	 * @param validEClasses the valid classes, as returned by {@link MetamodelUtil#eReferenceValidEClasses(EClass, org.eclipse.emf.ecore.EReference)}
+	 * @return the candidate objects
+	 */
+	public List<EObject> getCandidates(ImmutableList<EClass> validEClasses) {
+		if (dirty) {
+			rebuild();
+		}
+		List<EObject> pool = pools.get(validEClasses);
+		if (pool == null) {
+			pool = newList();
+			for (EClass eClass : validEClasses) {
+				List<EObject> objects = byEClass.get(eClass);
+				if (objects != null) {
+					pool.addAll(objects);
+				}
+			}
+			pools.put(validEClasses, pool);
+		}
+		return pool;
+	}
+
+	/** Releases all objects of the index, e.g. once the cross-references of a model are generated. */
+	public void clear() {
+		for (List<EObject> objects : byEClass.values()) {
+			release(objects);
+		}
+		byEClass.clear();
+		positions.clear();
+		for (List<EObject> pool : pools.values()) {
+			release(pool);
+		}
+		pools.clear();
+		resource = null;
+		dirty = true;
+	}
+
+	private void rebuild() {
+		Resource current = resource;
+		clear();
+		resource = current;
+		dirty = false;
+		if (resource == null) {
+			return;
+		}
+		for (EObject root : resource.getContents()) {
+			if (!root.eClass().equals(rootEClass)) {
+				continue;
+			}
+			add(root);
+			for (TreeIterator<EObject> it = root.eAllContents(); it.hasNext();) {
+				add(it.next());
+			}
+		}
+	}
+
+	/** Returns whether the given object is (transitively) contained in a root object of the indexed class. */
+	private boolean isIndexed(EObject eObject) {
+		EObject root = EcoreUtil.getRootContainer(eObject);
+		return root.eResource() == resource && root.eClass().equals(rootEClass);
+	}
+
+	private void add(EObject eObject) {
+		List<EObject> objects = byEClass.get(eObject.eClass());
+		if (objects == null) {
+			objects = newList();
+			byEClass.put(eObject.eClass(), objects);
+		}
+		positions.put(eObject, objects.size());
+		objects.add(eObject);
+	}
+
+	/** Removes an object, if indexed, by moving the last object of its class to its position. */
+	private void remove(EObject eObject) {
+		Integer position = positions.remove(eObject);
+		if (position == null) {
+			return;
+		}
+		List<EObject> objects = byEClass.get(eObject.eClass());
+		EObject last = objects.remove(objects.size() - 1);
+		if (last != eObject) {
+			objects.set(position, last);
+			positions.put(last, position);
+		}
+	}
+
+	private List<EObject> newList() {
+		return freeLists.isEmpty() ? new ArrayList<EObject>() : freeLists.remove(freeLists.size() - 1);
+	}
+
+	private void release(List<EObject> list) {
+		list.clear();
+		freeLists.add(list);
+	}
+}
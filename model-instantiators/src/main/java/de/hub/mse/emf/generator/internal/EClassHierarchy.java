@@ -0,0 +1,109 @@
+package de.hub.mse.emf.generator.internal;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.emf.ecore.EClass;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.EReference;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+
+/**
+ * Immutable subtype closures and possible root classes of a metamodel. They are computed once
+ * per metamodel, rather than once per generated model.
+ *
+ * The possible roots are the concrete classes that are not the type (or a subtype of the type)
+ * of any containment reference. They keep the order of the metamodel contents, so sampling
+ * them with the same random choices always yields the same roots.
+ *
+ * @author Lam
+ *
+ */
+public class EClassHierarchy {
+
+	/** Each class with subtypes, mapped to itself and all of its (transitive) subtypes. */
+	private final ImmutableMap<EClass, ImmutableSet<EClass>> eSubtypesClosures;
+
+	private final ImmutableSet<EClass> possibleRootEClasses;
+
+	/** The possible roots as a list, for sampling in constant time. */
+	private final ImmutableList<EClass> possibleRootEClassList;
+
+	public EClassHierarchy(MetamodelResource metamodelResource) {
+		// Since getEAllSuperTypes() is transitive, a single pass yields the closures
+		Map<EClass, Set<EClass>> eSubtypesMap = new HashMap<EClass, Set<EClass>>();
+		List<EClass> concreteEClasses = new ArrayList<EClass>();
+		for (Iterator<EObject> it = metamodelResource.getAllContents(); it.hasNext();) {
+			EObject eObject = it.next();
+			if (!(eObject instanceof EClass)) {
+				continue;
+			}
+			EClass eClass = (EClass) eObject;
+			if (!eClass.isAbstract() && !eClass.isInterface()) {
+				concreteEClasses.add(eClass);
+			}
+			for (EClass superType : eClass.getEAllSuperTypes()) {
+				Set<EClass> subtypes = eSubtypesMap.get(superType);
+				if (subtypes == null) {
+					subtypes = new LinkedHashSet<EClass>();
+					subtypes.add(superType);
+					eSubtypesMap.put(superType, subtypes);
+				}
+				subtypes.add(eClass);
+			}
+		}
+		ImmutableMap.Builder<EClass, ImmutableSet<EClass>> closures = ImmutableMap.builder();
+		for (Map.Entry<EClass, Set<EClass>> entry : eSubtypesMap.entrySet()) {
+			closures.put(entry.getKey(), ImmutableSet.copyOf(entry.getValue()));
+		}
+		this.eSubtypesClosures = closures.build();
+
+		// Remove the classes (along with subtypes) being subject to a containment reference
+		Set<EClass> containedEClasses = new HashSet<EClass>();
+		for (EClass eClass : concreteEClasses) {
+			for (EReference containment : eClass.getEAllContainments()) {
+				containedEClasses.addAll(getSubtypesClosure((EClass) containment.getEType()));
+			}
+		}
+		List<EClass> roots = new ArrayList<EClass>();
+		for (EClass eClass : concreteEClasses) {
+			if (!containedEClasses.contains(eClass)) {
+				roots.add(eClass);
+			}
+		}
+		this.possibleRootEClasses = ImmutableSet.copyOf(roots);
+		this.possibleRootEClassList = possibleRootEClasses.asList();
+	}
+
+	/**
+	 * Returns the given class and all of its (transitive) subtypes in the metamodel.
+	 * @param eClass the class
+	 * @return the subtype closure, including the class itself
+	 */
+	public ImmutableSet<EClass> getSubtypesClosure(EClass eClass) {
+		ImmutableSet<EClass> closure = eSubtypesClosures.get(eClass);
+		return closure != null ? closure : ImmutableSet.of(eClass);
+	}
+
+	/** Returns the concrete classes that can be the root of a model. */
+	public ImmutableSet<EClass> getPossibleRootEClasses() {
+		return possibleRootEClasses;
+	}
+
+	/**
+	 * Returns the possible root at the given index, e.g. a random index between 0 and
+	 * the number of possible roots.
+	 */
+	public EClass getPossibleRootEClass(int index) {
+		return possibleRootEClassList.get(index);
+	}
+}
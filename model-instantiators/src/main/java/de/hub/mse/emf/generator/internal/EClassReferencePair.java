@@ -1,7 +1,5 @@
 package de.hub.mse.emf.generator.internal;
 
-import java.util.Objects;
-
 import org.eclipse.emf.ecore.EClass;
 import org.eclipse.emf.ecore.EReference;
 
@@ -36,7 +34,8 @@ public class EClassReferencePair {
 	
 	@Override
 	public int hashCode() {
-	    return Objects.hash(eClass.getName(), eReference.getName());
+		// EObjects are compared by identity, so their identity hash codes are consistent with equals
+		return 31 * eClass.hashCode() + eReference.hashCode();
 	}
 	
 	@Override
@@ -0,0 +1,135 @@
+package de.hub.mse.emf.generator.internal;
+
+import java.util.Arrays;
+
+/**
+ * A Fenwick tree (binary indexed tree) over non-negative weights, for sampling indices
+ * proportionally to their weights.
+ *
+ * Changing a weight and drawing an index both take logarithmic time, so the weights can be
+ * kept up to date between draws instead of recomputing the cumulative distribution for every
+ * draw. The tree grows when a weight is set beyond its size. Since updates are applied as
+ * differences, the tree is rebuilt from the exact weights from time to time to avoid
+ * accumulating rounding errors.
+ *
+ * Instances are not thread-safe.
+ *
+ * @author Lam
+ *
+ */
+public class FenwickTree {
+
+	/** The weights, by index. */
+	private double[] weights;
+
+	/** The tree, 1-based: tree[i] is the sum of the weights (i - lowbit(i), i]. */
+	private double[] tree;
+
+	/** Number of updates since the tree was last rebuilt. */
+	private int updates;
+
+	public FenwickTree() {
+		this(16);
+	}
+
+	/**
+	 * @param capacity the initial number of weights
+	 */
+	public FenwickTree(int capacity) {
+		this.weights = new double[Math.max(capacity, 1)];
+		this.tree = new double[weights.length + 1];
+	}
+
+	/** Returns the number of weights, i.e. the indices are between 0 and {@code size() - 1}. */
+	public int size() {
+		return weights.length;
+	}
+
+	/** Returns the weight at the given index. */
+	public double get(int index) {
+		return index < weights.length ? weights[index] : 0;
+	}
+
+	/**
+	 * Sets the weight at the given index.
+	 * @param index  the index, the tree grows if necessary
+	 * @param weight the new weight, must not be negative
+	 */
+	public void set(int index, double weight) {
+		if (weight < 0 || Double.isNaN(weight)) {
+			throw new IllegalArgumentException("Invalid weight: " + weight);
+		}
+		if (index >= weights.length) {
+			weights = Arrays.copyOf(weights, Math.max(index + 1, weights.length * 2));
+			weights[index] = weight;
+			rebuild();
+			return;
+		}
+		double delta = weight - weights[index];
+		weights[index] = weight;
+		if (++updates > Math.max(64, weights.length)) {
+			rebuild();
+			return;
+		}
+		for (int i = index + 1; i < tree.length; i += i & -i) {
+			tree[i] += delta;
+		}
+	}
+
+	/** Sets all weights to 0. */
+	public void clear() {
+		Arrays.fill(weights, 0);
+		Arrays.fill(tree, 0);
+		updates = 0;
+	}
+
+	/** Returns the sum of all weights. */
+	public double total() {
+		double sum = 0;
+		for (int i = tree.length - 1; i > 0; i -= i & -i) {
+			sum += tree[i];
+		}
+		return Math.max(sum, 0);
+	}
+
+	/**
+	 * Returns the index whose cumulative weight interval contains the given value, i.e. the
+	 * smallest index such that the sum of the weights up to and including it exceeds the value.
+	 * Use a random value between 0 and {@link #total()} to draw an index proportionally to its
+	 * weight.
+	 * @param value the value, between 0 and {@link #total()}
+	 * @return the index, or -1 if all weights are 0
+	 */
+	public int find(double value) {
+		int pos = 0;
+		for (int step = Integer.highestOneBit(weights.length); step > 0; step >>= 1) {
+			int next = pos + step;
+			if (next < tree.length && tree[next] <= value) {
+				pos = next;
+				value -= tree[next];
+			}
+		}
+		// Rounding may skip the last positive weight, or land on a zero weight
+		if (pos < weights.length && weights[pos] > 0) {
+			return pos;
+		}
+		for (int i = Math.min(pos, weights.length - 1); i >= 0; i--) {
+			if (weights[i] > 0) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	private void rebuild() {
+		tree = new double[weights.length + 1];
+		for (int i = 1; i < tree.length; i++) {
+			tree[i] += weights[i - 1];
+			int parent = i + (i & -i);
+			if (parent < tree.length) {
+				tree[parent] += tree[i];
+			}
+		}
+		updates = 0;
+	}
+}
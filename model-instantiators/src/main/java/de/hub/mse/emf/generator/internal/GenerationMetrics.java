@@ -0,0 +1,281 @@
+package de.hub.mse.emf.generator.internal;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Locale;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters of the model generation, e.g. how many cross-references could be set successfully.
+ *
+ * The counters are {@link LongAdder}s, so any number of generator threads may update one
+ * registry without losing updates. A registry is scoped by whoever creates it, e.g. one per
+ * {@link de.hub.mse.emf.generator.ModelGenerator} or one shared by all generators of a
+ * campaign. Use {@link #snapshot()} to read the counters or {@link #startDump(File, long, TimeUnit)}
+ * to write them to a file periodically.
+ *
+ * @author Lam
+ *
+ */
+public class GenerationMetrics {
+
+	/*
+	 * Possible exceptions when setting containment references:
+	 * Single: IllegalArgumentException (Simply catching the exception should be sufficient)
+	 * Many  : ArrayStoreException (Might need to restore the old value)
+	 *
+	 * Possible exceptions when setting cross references:
+	 * Single: IllegalArgumentException (Simply catching the exception shuold be sufficient), IllegalStateException (Might need to restore the old containments)
+	 * Many  : ArrayStoreException (Might need to restore the old value)
+	 */
+	public enum Counter {
+		MODELS("models"),
+		ILLEGAL_ARGUMENT_EXCEPTIONS("illegal_argument_exceptions"),
+		ILLEGAL_STATE_EXCEPTIONS("illegal_state_exceptions"),
+		ARRAY_STORE_EXCEPTIONS("array_store_exceptions"),
+		SINGLE_CONTAINMENT_REFS("single_containment_refs"),
+		SINGLE_CONTAINMENT_REF_SUCCESS("single_containment_ref_success"),
+		SINGLE_CONTAINMENT_REF_FAIL("single_containment_ref_fail"),
+		MANY_CONTAINMENT_REFS("many_containment_refs"),
+		MANY_CONTAINMENT_REF_SUCCESS("many_containment_ref_success"),
+		MANY_CONTAINMENT_REF_FAIL("many_containment_ref_fail"),
+		SINGLE_CROSS_REFS("single_cross_refs"),
+		SINGLE_CROSS_REF_SUCCESS("single_cross_ref_success"),
+		SINGLE_CROSS_REF_FAIL("single_cross_ref_fail"),
+		MANY_CROSS_REFS("many_cross_refs"),
+		MANY_CROSS_REF_SUCCESS("many_cross_ref_success"),
+		MANY_CROSS_REF_FAIL("many_cross_ref_fail");
+
+		/** The name of the counter in dumps. */
+		public final String key;
+
+		Counter(String key) {
+			this.key = key;
+		}
+	}
+
+	/*
+	 *  Keep track of model sizes to make sure we generate models of diverse sizes.
+	 *
+	 *  Buckets: 1 < 10 < 100 < 200 < 300 ... < 900 < 1000 < 1500
+	 */
+	public static final int[] MODEL_SIZE_BOUNDS = {2, 10, 100, 200, 300, 400, 500, 600, 700, 800, 900, 1000, 1500};
+
+	private static final Counter[] COUNTERS = Counter.values();
+
+	private final LongAdder[] counters = new LongAdder[COUNTERS.length];
+
+	private final LongAdder[] modelSizes = new LongAdder[MODEL_SIZE_BOUNDS.length];
+
+	private final long startTime = System.currentTimeMillis();
+
+	public GenerationMetrics() {
+		for (int i = 0; i < counters.length; i++) {
+			counters[i] = new LongAdder();
+		}
+		for (int i = 0; i < modelSizes.length; i++) {
+			modelSizes[i] = new LongAdder();
+		}
+	}
+
+	public void increment(Counter counter) {
+		counters[counter.ordinal()].increment();
+	}
+
+	public long get(Counter counter) {
+		return counters[counter.ordinal()].sum();
+	}
+
+	/**
+	 * Adds the size of a generated model to the size distribution.
+	 * Models with 1500 or more objects are not counted.
+	 * @param size the number of objects of the model
+	 */
+	public void addModelSize(int size) {
+		for (int i = 0; i < MODEL_SIZE_BOUNDS.length; i++) {
+			if (size < MODEL_SIZE_BOUNDS[i]) {
+				modelSizes[i].increment();
+				return;
+			}
+		}
+	}
+
+	/** Resets all counters, e.g. after a warm-up phase. */
+	public void reset() {
+		for (LongAdder counter : counters) {
+			counter.reset();
+		}
+		for (LongAdder modelSize : modelSizes) {
+			modelSize.reset();
+		}
+	}
+
+	/**
+	 * Returns the current values of all counters. Updates that happen concurrently
+	 * may or may not be included.
+	 */
+	public Snapshot snapshot() {
+		long[] values = new long[counters.length];
+		for (int i = 0; i < values.length; i++) {
+			values[i] = counters[i].sum();
+		}
+		long[] sizes = new long[modelSizes.length];
+		for (int i = 0; i < sizes.length; i++) {
+			sizes[i] = modelSizes[i].sum();
+		}
+		return new Snapshot(System.currentTimeMillis() - startTime, values, sizes);
+	}
+
+	/**
+	 * Starts appending a snapshot to the given file periodically, on a daemon thread.
+	 * Files ending with <code>.json</code> get one JSON object per line, other files
+	 * are written as CSV with a header line. Both contain the counters and the model size
+	 * distribution (one column per bucket of {@link #MODEL_SIZE_BOUNDS} in CSV).
+	 *
+	 * @param file   the file to write to, which is overwritten
+	 * @param period the time between two snapshots
+	 * @param unit   the time unit of the period
+	 * @return the dump, which writes a last snapshot once it is closed
+	 * @throws IOException if the file cannot be created
+	 */
+	public Dump startDump(File file, long period, TimeUnit unit) throws IOException {
+		return new Dump(file, period, unit);
+	}
+
+	/**
+	 * Immutable values of the counters at one point in time.
+	 */
+	public static class Snapshot {
+
+		/** Milliseconds since the registry was created. */
+		private final long elapsedMillis;
+
+		private final long[] values;
+
+		private final long[] modelSizes;
+
+		private Snapshot(long elapsedMillis, long[] values, long[] modelSizes) {
+			this.elapsedMillis = elapsedMillis;
+			this.values = values;
+			this.modelSizes = modelSizes;
+		}
+
+		public long getElapsedMillis() {
+			return elapsedMillis;
+		}
+
+		public long get(Counter counter) {
+			return values[counter.ordinal()];
+		}
+
+		/** Returns the number of models in the size bucket below {@link GenerationMetrics#MODEL_SIZE_BOUNDS}[bucket]. */
+		public long getModelSizeCount(int bucket) {
+			return modelSizes[bucket];
+		}
+
+		/**
+		 * Returns the fraction of successful attempts, or 0 if there were no attempts,
+		 * e.g. <code>getRate(SINGLE_CROSS_REF_SUCCESS, SINGLE_CROSS_REFS)</code>.
+		 */
+		public double getRate(Counter count, Counter total) {
+			long totalValue = get(total);
+			return totalValue == 0 ? 0.0 : ((double) get(count)) / totalValue;
+		}
+
+		public static String toCsvHeader() {
+			StringBuilder sb = new StringBuilder("# elapsed_ms");
+			for (Counter counter : COUNTERS) {
+				sb.append(", ").append(counter.key);
+			}
+			for (int bound : MODEL_SIZE_BOUNDS) {
+				sb.append(", model_size_lt_").append(bound);
+			}
+			return sb.toString();
+		}
+
+		public String toCsvRow() {
+			StringBuilder sb = new StringBuilder();
+			sb.append(elapsedMillis);
+			for (long value : values) {
+				sb.append(", ").append(value);
+			}
+			for (long modelSize : modelSizes) {
+				sb.append(", ").append(modelSize);
+			}
+			return sb.toString();
+		}
+
+		public String toJson() {
+			StringBuilder sb = new StringBuilder();
+			sb.append("{\"elapsed_ms\": ").append(elapsedMillis);
+			for (Counter counter : COUNTERS) {
+				sb.append(", \"").append(counter.key).append("\": ").append(get(counter));
+			}
+			sb.append(", \"model_sizes\": [");
+			for (int i = 0; i < modelSizes.length; i++) {
+				sb.append(i > 0 ? ", " : "").append(modelSizes[i]);
+			}
+			sb.append("]}");
+			return sb.toString();
+		}
+
+		@Override
+		public String toString() {
+			return String.format(Locale.ROOT, "models: %d, cross-references: %.2f%% (single) %.2f%% (many)",
+					get(Counter.MODELS),
+					getRate(Counter.SINGLE_CROSS_REF_SUCCESS, Counter.SINGLE_CROSS_REFS) * 100,
+					getRate(Counter.MANY_CROSS_REF_SUCCESS, Counter.MANY_CROSS_REFS) * 100);
+		}
+	}
+
+	/**
+	 * Periodic dump of the snapshots of a registry to a file.
+	 */
+	public class Dump implements AutoCloseable {
+
+		private final Writer out;
+
+		private final boolean json;
+
+		private final ScheduledExecutorService scheduler;
+
+		private Dump(File file, long period, TimeUnit unit) throws IOException {
+			this.json = file.getName().endsWith(".json");
+			this.out = new FileWriter(file);
+			if (!json) {
+				out.write(Snapshot.toCsvHeader() + "\n");
+				out.flush();
+			}
+			this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+				Thread thread = new Thread(r, "mofuzz-metrics-dump");
+				thread.setDaemon(true);
+				return thread;
+			});
+			scheduler.scheduleAtFixedRate(this::write, period, period, unit);
+		}
+
+		private synchronized void write() {
+			Snapshot snapshot = snapshot();
+			try {
+				out.write((json ? snapshot.toJson() : snapshot.toCsvRow()) + "\n");
+				out.flush();
+			} catch (IOException e) {
+				// Metrics are best effort, do not disturb the generation
+				System.err.println("Failed to write generation metrics: " + e.getMessage());
+			}
+		}
+
+		/** Stops the dump after writing a last snapshot. */
+		@Override
+		public synchronized void close() throws IOException {
+			scheduler.shutdownNow();
+			write();
+			out.close();
+		}
+	}
+}
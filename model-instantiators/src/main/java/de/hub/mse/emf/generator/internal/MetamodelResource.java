@@ -27,6 +27,9 @@ public class MetamodelResource {
 	/** The contents of the {@link EPackage} */
 	private List<EObject> ePackageContent;
 	
+	/** The subtype closures and possible roots of the metamodel, shared by all configurations using it. */
+	private volatile EClassHierarchy eClassHierarchy;
+	
 	/**
 	 * Instantiates a wrapper for the metamodel {@link Resource}
 	 * @param metamodelResource the {@link Resource} containing the metamodel
@@ -63,4 +66,22 @@ public class MetamodelResource {
 			return null;
 		}
 	}
+	
+	/**
+	 * Returns the subtype closures and possible roots of the metamodel, which are computed on first use.
+	 * @return the class hierarchy of the metamodel
+	 */
+	public EClassHierarchy getEClassHierarchy() {
+		EClassHierarchy hierarchy = this.eClassHierarchy;
+		if (hierarchy == null) {
+			synchronized (this) {
+				hierarchy = this.eClassHierarchy;
+				if (hierarchy == null) {
+					hierarchy = new EClassHierarchy(this);
+					this.eClassHierarchy = hierarchy;
+				}
+			}
+		}
+		return hierarchy;
+	}
 }
@@ -0,0 +1,331 @@
+package de.hub.mse.emf.generator.internal;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.eclipse.emf.ecore.EAttribute;
+import org.eclipse.emf.ecore.EClass;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.EPackage;
+import org.eclipse.emf.ecore.EReference;
+
+import com.google.common.collect.ImmutableList;
+
+/**
+ * Compiled form of the metamodel data of a {@link MetamodelUtil}, which replaces hash lookups
+ * on the hot paths of the generator and the mutator with array lookups.
+ *
+ * Every {@link EClass} of the metamodel gets a dense id, derived from its classifier id and
+ * the position of its {@link EPackage}. A structural feature of a class is addressed by its
+ * feature id within that class (see {@link EClass#getFeatureID(org.eclipse.emf.ecore.EStructuralFeature)}),
+ * so a pair of class and reference maps to a cell <code>[classId][featureId]</code> without
+ * allocating a key object.
+ *
+ * Attributes, containment and non-containment references are compiled when the schema is
+ * created. Valid and concrete target classes of references are computed on first use
+ * (through the caches of the {@link MetamodelUtil}, so the returned lists are always the same
+ * instances) and then stored in the tables. Classes that are not part of the metamodel
+ * are delegated to the caches.
+ *
+ * @author Lam
+ *
+ */
+public class MetamodelSchema {
+
+	/** The metamodel data computing the table entries. */
+	private final MetamodelUtil metamodelUtil;
+
+	/** The package of the first class, whose ids start at 0. */
+	private final EPackage firstPackage;
+
+	/** Id of the first class of each package. */
+	private final Map<EPackage, Integer> packageOffsets = new IdentityHashMap<EPackage, Integer>();
+
+	/** The classes by their id, possibly with gaps for other classifiers. */
+	private final EClass[] eClasses;
+
+	private final ImmutableList<EAttribute>[] eAllAttributes;
+	private final ImmutableList<EReference>[] eAllContainment;
+	private final ImmutableList<EReference>[] eAllNonContainment;
+
+	/** Valid target classes by [classId][featureId], filled on first use. */
+	private final ImmutableList<EClass>[][] eReferenceValidEClasses;
+
+	/** Concrete target classes by [id of the containing class][featureId], filled on first use. */
+	private final ImmutableList<EClass>[][] eAllConcreteSubTypeOrSelf;
+
+	@SuppressWarnings("unchecked")
+	MetamodelSchema(MetamodelUtil metamodelUtil, Iterable<EPackage> ePackages) {
+		this.metamodelUtil = metamodelUtil;
+
+		// Assign the id ranges of all (sub-)packages containing classes
+		List<EClass> allEClasses = new ArrayList<EClass>();
+		int count = 0;
+		for (EPackage ePackage : ePackages) {
+			for (Iterator<EObject> it = ePackage.eAllContents(); it.hasNext();) {
+				EObject eObject = it.next();
+				if (eObject instanceof EClass) {
+					EClass eClass = (EClass) eObject;
+					EPackage classPackage = eClass.getEPackage();
+					if (!packageOffsets.containsKey(classPackage)) {
+						packageOffsets.put(classPackage, count);
+						count += classPackage.getEClassifiers().size();
+					}
+					allEClasses.add(eClass);
+				}
+			}
+		}
+		this.firstPackage = allEClasses.isEmpty() ? null : allEClasses.get(0).getEPackage();
+
+		this.eClasses = new EClass[count];
+		this.eAllAttributes = new ImmutableList[count];
+		this.eAllContainment = new ImmutableList[count];
+		this.eAllNonContainment = new ImmutableList[count];
+		this.eReferenceValidEClasses = new ImmutableList[count][];
+		this.eAllConcreteSubTypeOrSelf = new ImmutableList[count][];
+
+		for (EClass eClass : allEClasses) {
+			int id = packageOffsets.get(eClass.getEPackage()) + eClass.getClassifierID();
+			int featureCount = eClass.getEAllStructuralFeatures().size();
+			eClass.getEAllSuperTypes();
+			eClasses[id] = eClass;
+			eAllAttributes[id] = metamodelUtil.loadEAllAttributes(eClass);
+			eAllContainment[id] = metamodelUtil.loadEAllContainment(eClass);
+			eAllNonContainment[id] = metamodelUtil.loadEAllNonContainment(eClass);
+			eReferenceValidEClasses[id] = new ImmutableList[featureCount];
+			eAllConcreteSubTypeOrSelf[id] = new ImmutableList[featureCount];
+		}
+	}
+
+	/**
+	 * Returns the id of a class.
+	 * @param eClass the class
+	 * @return the id of the class, or -1 if the class is not part of the metamodel
+	 */
+	public int getId(EClass eClass) {
+		EPackage ePackage = eClass.getEPackage();
+		int offset;
+		if (ePackage == firstPackage) {
+			offset = 0;
+		} else {
+			Integer packageOffset = packageOffsets.get(ePackage);
+			if (packageOffset == null) {
+				return -1;
+			}
+			offset = packageOffset;
+		}
+		int id = offset + eClass.getClassifierID();
+		return id >= 0 && id < eClasses.length && eClasses[id] == eClass ? id : -1;
+	}
+
+	/** Returns the number of class ids, i.e. the size of tables indexed by class id. */
+	public int getIdCount() {
+		return eClasses.length;
+	}
+
+	/** Returns the class with the given id, or null if the id does not belong to a class. */
+	public EClass getEClass(int id) {
+		return eClasses[id];
+	}
+
+	public ImmutableList<EAttribute> eAllAttributes(EClass eClass) {
+		int id = getId(eClass);
+		return id >= 0 ? eAllAttributes[id] : metamodelUtil.loadEAllAttributes(eClass);
+	}
+
+	public ImmutableList<EReference> eAllContainment(EClass eClass) {
+		int id = getId(eClass);
+		return id >= 0 ? eAllContainment[id] : metamodelUtil.loadEAllContainment(eClass);
+	}
+
+	public ImmutableList<EReference> eAllNonContainment(EClass eClass) {
+		int id = getId(eClass);
+		return id >= 0 ? eAllNonContainment[id] : metamodelUtil.loadEAllNonContainment(eClass);
+	}
+
+	/**
+	 * Returns the classes whose instances can actually be set as values of a reference
+	 * of an instance of the given class.
+	 */
+	public ImmutableList<EClass> eReferenceValidEClasses(EClass eClass, EReference eReference) {
+		int id = getId(eClass);
+		int featureId = id >= 0 ? eClass.getFeatureID(eReference) : -1;
+		if (featureId < 0) {
+			return metamodelUtil.loadEReferenceValidEClasses(new EClassReferencePair(eClass, eReference));
+		}
+		ImmutableList<EClass> validEClasses = eReferenceValidEClasses[id][featureId];
+		if (validEClasses == null) {
+			// Racing threads store the same (cached) instance
+			validEClasses = metamodelUtil.loadEReferenceValidEClasses(new EClassReferencePair(eClass, eReference));
+			eReferenceValidEClasses[id][featureId] = validEClasses;
+		}
+		return validEClasses;
+	}
+
+	/**
+	 * Computes the valid target classes of all references of all concrete classes (see
+	 * {@link #eReferenceValidEClasses(EClass, EReference)}) on a pool of threads. Without a
+	 * warm-up, they are computed on first use, i.e. spread over the start of a campaign.
+	 *
+	 * @param numThreads the number of threads probing the references
+	 * @return whether all references have been probed, i.e. the warm-up has not been interrupted
+	 */
+	public boolean warmUp(int numThreads) {
+		ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+		try {
+			List<Future<?>> probes = new ArrayList<Future<?>>();
+			for (int id = 0; id < eClasses.length; id++) {
+				final EClass eClass = eClasses[id];
+				if (!isConcrete(id)) {
+					continue;
+				}
+				for (final EReference eReference : getReferences(id)) {
+					probes.add(executor.submit(() -> eReferenceValidEClasses(eClass, eReference)));
+				}
+			}
+			for (Future<?> probe : probes) {
+				probe.get();
+			}
+			return true;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return false;
+		} catch (ExecutionException e) {
+			throw new IllegalStateException("Unable to compute valid EClasses", e.getCause());
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * Takes over the valid target classes computed by another schema of the same metamodel,
+	 * e.g. of another worker, instead of probing the references again.
+	 * @param source the schema to copy the valid target classes from
+	 * @return whether the schemas match, i.e. the valid target classes have been copied
+	 */
+	public boolean copyValidEClasses(MetamodelSchema source) {
+		if (source.eClasses.length != eClasses.length || !source.getSignature().equals(getSignature())) {
+			return false;
+		}
+		for (int id = 0; id < eClasses.length; id++) {
+			if (!isConcrete(id)) {
+				continue;
+			}
+			for (int featureId = 0; featureId < eReferenceValidEClasses[id].length; featureId++) {
+				ImmutableList<EClass> validEClasses = source.eReferenceValidEClasses[id][featureId];
+				if (validEClasses != null) {
+					putValidEClasses(id, featureId, validEClasses);
+				}
+			}
+		}
+		return true;
+	}
+
+	/** Returns whether the id belongs to a class that can be instantiated. */
+	boolean isConcrete(int id) {
+		EClass eClass = eClasses[id];
+		return eClass != null && !eClass.isAbstract() && !eClass.isInterface();
+	}
+
+	/** Returns the containment and non-containment references of a class, i.e. the references with valid EClasses. */
+	Set<EReference> getReferences(int id) {
+		Set<EReference> eReferences = new LinkedHashSet<EReference>(eAllContainment[id]);
+		eReferences.addAll(eAllNonContainment[id]);
+		return eReferences;
+	}
+
+	/** Returns the valid target classes of the reference with the given feature id, or null if not computed yet. */
+	ImmutableList<EClass> getComputedValidEClasses(int id, int featureId) {
+		return eReferenceValidEClasses[id][featureId];
+	}
+
+	/** Stores valid target classes that have been computed before, e.g. loaded from a file. */
+	void putValidEClasses(int id, int featureId, ImmutableList<EClass> validEClasses) {
+		EClass eClass = eClasses[id];
+		EReference eReference = (EReference) eClass.getEStructuralFeature(featureId);
+		metamodelUtil.putEReferenceValidEClasses(new EClassReferencePair(eClass, eReference), validEClasses);
+		eReferenceValidEClasses[id][featureId] = validEClasses;
+	}
+
+	/** Returns the namespace URIs of the packages of the metamodel. */
+	List<String> getNsURIs() {
+		List<String> nsURIs = new ArrayList<String>();
+		for (EPackage ePackage : packageOffsets.keySet()) {
+			nsURIs.add(ePackage.getNsURI());
+		}
+		nsURIs.sort(null);
+		return nsURIs;
+	}
+
+	/**
+	 * Returns a hash of everything that determines the ids and the valid target classes,
+	 * i.e. the classes with their supertypes and features and the white- and blacklist.
+	 */
+	String getSignature() {
+		StringBuilder sb = new StringBuilder();
+		for (int id = 0; id < eClasses.length; id++) {
+			EClass eClass = eClasses[id];
+			if (eClass == null) {
+				continue;
+			}
+			sb.append(id).append(' ').append(eClass.getName()).append(isConcrete(id) ? " concrete" : " abstract");
+			for (EClass superType : eClass.getEAllSuperTypes()) {
+				sb.append(' ').append(superType.getName());
+			}
+			sb.append('\n');
+			for (EReference eReference : getReferences(id)) {
+				sb.append(' ').append(eClass.getFeatureID(eReference)).append(' ').append(eReference.getName())
+						.append(' ').append(eReference.getEReferenceType().getName()).append('\n');
+			}
+		}
+		sb.append("whitelist ").append(names(metamodelUtil.getEClassWhitelist())).append('\n');
+		sb.append("ignored ").append(names(metamodelUtil.getIgnoredEClasses())).append('\n');
+		try {
+			MessageDigest digest = MessageDigest.getInstance("SHA-256");
+			StringBuilder hex = new StringBuilder();
+			for (byte b : digest.digest(sb.toString().getBytes(StandardCharsets.UTF_8))) {
+				hex.append(String.format("%02x", b));
+			}
+			return hex.toString();
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static Set<String> names(Iterable<EClass> eClasses) {
+		Set<String> names = new TreeSet<String>();
+		for (EClass eClass : eClasses) {
+			names.add(eClass.getEPackage().getNsURI() + "#" + eClass.getName());
+		}
+		return names;
+	}
+
+	/** Returns the concrete (and whitelisted) subtypes of the type of a reference. */
+	public ImmutableList<EClass> eAllConcreteSubTypeOrSelf(EReference eReference) {
+		EClass eContainingClass = eReference.getEContainingClass();
+		int id = getId(eContainingClass);
+		int featureId = id >= 0 ? eReference.getFeatureID() : -1;
+		if (featureId < 0 || featureId >= eAllConcreteSubTypeOrSelf[id].length) {
+			return metamodelUtil.loadEAllConcreteSubTypeOrSelf(eReference);
+		}
+		ImmutableList<EClass> subTypes = eAllConcreteSubTypeOrSelf[id][featureId];
+		if (subTypes == null) {
+			subTypes = metamodelUtil.loadEAllConcreteSubTypeOrSelf(eReference);
+			eAllConcreteSubTypeOrSelf[id][featureId] = subTypes;
+		}
+		return subTypes;
+	}
+}
@@ -18,6 +18,7 @@ import static com.google.common.collect.Iterators.concat;
 import static com.google.common.collect.Iterators.filter;
 import static com.google.common.collect.Lists.newArrayList;
 
+import java.io.File;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -69,6 +70,9 @@ public class MetamodelUtil {
 	/** The set of all (concrete) EClasses */
 	private ImmutableSet<EClass> allEClasses;
 	
+	/** The compiled metamodel data, answering the lookups below */
+	private final MetamodelSchema schema;
+	
 	/*
 	public MetamodelUtil(ImmutableSet<EPackage> ePackages, ImmutableSet<EClass> ignoredEClasses) {
 		this.ePackages = ePackages;
@@ -88,6 +92,7 @@ public class MetamodelUtil {
 		ModelGenerationStats.initEClassCoverageMap(ePackages);
 		//this.buildContainmentTree();
 		initSets();
+		this.schema = new MetamodelSchema(this, ePackages);
 
 	}
 	
@@ -124,6 +129,10 @@ public class MetamodelUtil {
 		return allEClasses;
 	}
 	
+	public MetamodelSchema getSchema() {
+		return schema;
+	}
+	
 	public boolean useWhitelist() {
 		return this.useWhitelist;
 	}
@@ -132,6 +141,10 @@ public class MetamodelUtil {
 		return this.eClassWhitelist;
 	}
 	
+	public ImmutableSet<EClass> getIgnoredEClasses() {
+		return this.ignoredEClasses;
+	}
+	
 	public boolean isWhitelistedOrSuperType(EClass eClass) {
 		if(this.eClassWhitelist.contains(eClass)) {
 			return true;
@@ -161,6 +174,10 @@ public class MetamodelUtil {
 			});
 
 	public ImmutableList<EAttribute> eAllAttributes(EClass eClass) {
+		return schema.eAllAttributes(eClass);
+	}
+	
+	ImmutableList<EAttribute> loadEAllAttributes(EClass eClass) {
 		return ((LoadingCache<EClass, ImmutableList<EAttribute>>) eAllAttributesCache).getUnchecked(eClass);
 	}
 
@@ -174,6 +191,10 @@ public class MetamodelUtil {
 			});
 
 	public ImmutableList<EReference> eAllNonContainment(EClass eClass) {
+		return schema.eAllNonContainment(eClass);
+	}
+	
+	ImmutableList<EReference> loadEAllNonContainment(EClass eClass) {
 		return ((LoadingCache<EClass, ImmutableList<EReference>>) eAllNonContainmentCache).getUnchecked(eClass);
 	}
 	
@@ -225,9 +246,49 @@ public class MetamodelUtil {
 	);
 	
 	public ImmutableList<EClass> eReferenceValidEClasses(EClassReferencePair eClassRefPair) {
+		return schema.eReferenceValidEClasses(eClassRefPair.getEClass(), eClassRefPair.getEReference());
+	}
+	
+	/**
+	 * Returns the classes whose instances can be set as values of the reference of an instance
+	 * of the given class, without allocating a {@link EClassReferencePair}.
+	 */
+	public ImmutableList<EClass> eReferenceValidEClasses(EClass eClass, EReference eReference) {
+		return schema.eReferenceValidEClasses(eClass, eReference);
+	}
+	
+	ImmutableList<EClass> loadEReferenceValidEClasses(EClassReferencePair eClassRefPair) {
 		return ((LoadingCache<EClassReferencePair, ImmutableList<EClass>>) eReferenceValidEClassesCache).getUnchecked(eClassRefPair);
 	}
 	
+	void putEReferenceValidEClasses(EClassReferencePair eClassRefPair, ImmutableList<EClass> validEClasses) {
+		eReferenceValidEClassesCache.put(eClassRefPair, validEClasses);
+	}
+	
+	/**
+	 * Computes the valid EClasses of all references in advance, see {@link MetamodelSchema#warmUp(int)}.
+	 * The result is stored in the given cache file and loaded from there by later runs, as long
+	 * as the metamodel and the white- and blacklist remain the same.
+	 * 
+	 * An interrupted warm-up is not persisted, since the valid EClasses would be incomplete.
+	 * 
+	 * @param cacheFile  the cache file, or null to not persist the valid EClasses
+	 * @param numThreads the number of threads computing the valid EClasses
+	 * @return whether the valid EClasses of all references are known, i.e. the warm-up has not been interrupted
+	 */
+	public boolean warmUpValidityCache(File cacheFile, int numThreads) {
+		if(cacheFile != null && ValidityCacheFile.load(cacheFile, schema)) {
+			return true;
+		}
+		if(!schema.warmUp(numThreads)) {
+			return false;
+		}
+		if(cacheFile != null) {
+			ValidityCacheFile.save(cacheFile, schema);
+		}
+		return true;
+	}
+	
 	/*
 	private HashMap<EClassReferencePair, ImmutableList<EClass>> eReferenceValidEClassesCache = new HashMap<EClassReferencePair, ImmutableList<EClass>>();
 
@@ -289,6 +350,10 @@ public class MetamodelUtil {
 			});
 
 	public Iterable<EReference> eAllContainment(EClass eClass) {
+		return schema.eAllContainment(eClass);
+	}
+	
+	ImmutableList<EReference> loadEAllContainment(EClass eClass) {
 		return ((LoadingCache<EClass, ImmutableList<EReference>>) eAllContainmentCache).getUnchecked(eClass);
 	}
 
@@ -329,6 +394,10 @@ public class MetamodelUtil {
 			});
 
 	public ImmutableList<EClass> eAllConcreteSubTypeOrSelf(EReference eReference) {
+		return schema.eAllConcreteSubTypeOrSelf(eReference);
+	}
+	
+	ImmutableList<EClass> loadEAllConcreteSubTypeOrSelf(EReference eReference) {
 		return ((LoadingCache<EReference, ImmutableList<EClass>>) eAllConcreteSubTypeOrSelfCache).getUnchecked(eReference);
 	}
 
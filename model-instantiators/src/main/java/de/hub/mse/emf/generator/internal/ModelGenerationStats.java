@@ -3,52 +3,20 @@ package de.hub.mse.emf.generator.internal;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.Map;
 import java.util.Set;
 
-import org.eclipse.emf.common.util.TreeIterator;
 import org.eclipse.emf.ecore.EClass;
 import org.eclipse.emf.ecore.EObject;
 import org.eclipse.emf.ecore.EPackage;
-import org.eclipse.emf.ecore.resource.Resource;
 
-import de.hub.mse.emf.generator.ModelGenerator;
+import de.hub.mse.emf.generator.internal.GenerationMetrics.Counter;
 
+/**
+ * Console statistics of the command line generators. The counters of the generation
+ * itself are kept in a {@link GenerationMetrics} registry.
+ */
 public class ModelGenerationStats {
-	/*
-	 * Possible exceptions when setting containment references:
-	 * Single: IllegalArgumentException (Simply catching the exception should be sufficient)
-	 * Many  : ArrayStoreException (Might need to restore the old value)
-	 * 
-	 * Possible exceptions when setting cross references:
-	 * Single: IllegalArgumentException (Simply catching the exception shuold be sufficient), IllegalStateException (Might need to restore the old containments)
-	 * Many  : ArrayStoreException (Might need to restore the old value)
-	 * 
-	 */
-	public static long illegalArgumentExceptionCount = 0;
-	public static long illegalStateExceptionCount = 0;
-	public static long arrayStoreExceptionCount = 0;
-	
-	public static long singleContainmentRefCount = 0;
-	public static long singleContainmentRefSuccess = 0;
-	public static long singleContainmentRefFail = 0;
-	public static long singleContainmentRefTrialCount = 0;
-	
-	public static long manyContainmentRefCount = 0;
-	public static long manyContainmentRefSuccess = 0;
-	public static long manyContainmentRefFail = 0;
-	public static long manyContainmentRefTrialCount = 0;
-	
-	public static long singleCrossRefCount = 0;
-	public static long singleCrossRefSuccess = 0;
-	public static long singleCrossRefFail = 0;
-	public static long singleCrossRefTrialCount = 0;
-	
-	public static long manyCrossRefCount = 0;
-	public static long manyCrossRefSuccess = 0;
-	public static long manyCrossRefFail = 0;
-	public static long manyCrossRefTrialCount = 0;
-	
-	
 	public static long startTime = System.currentTimeMillis();
 	public static Runtime runtime = Runtime.getRuntime();
 	
@@ -63,63 +31,7 @@ public class ModelGenerationStats {
 	private static int coveredEClasses = 0;
 	public static String lastCoveredEClass;
 	
-	/*
-	 *  Keep track of model sizes to make sure we generate models of diverse sizes.
-	 *  
-	 *  Buckets: 1 < 10 < 100 < 200 < 300 ... < 900 < 1000 < 1500
-	 */
-	public static int[] modelSizeDistribution = {0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0};
-	
-	public static int addModelCount(Resource resource) {
-		int size = 0;
-		for(TreeIterator<EObject> iter = resource.getAllContents(); iter.hasNext();) {
-			iter.next();
-			size++;
-		}
-		
-		if(size == 1) {
-			modelSizeDistribution[0]++;
-		}
-		else if(size < 10) {
-			modelSizeDistribution[1]++;
-		}
-		else if(size < 100) {
-			modelSizeDistribution[2]++;
-		}
-		else if(size < 200) {
-			modelSizeDistribution[3]++;
-		}
-		else if(size < 300) {
-			modelSizeDistribution[4]++;
-		}
-		else if(size < 400) {
-			modelSizeDistribution[5]++;
-		}
-		else if(size < 500) {
-			modelSizeDistribution[6]++;
-		}
-		else if(size < 600) {
-			modelSizeDistribution[7]++;
-		}
-		else if(size < 700) {
-			modelSizeDistribution[8]++;
-		}
-		else if(size < 800) {
-			modelSizeDistribution[9]++;
-		}
-		else if(size < 900) {
-			modelSizeDistribution[10]++;
-		}
-		else if(size < 1000) {
-			modelSizeDistribution[11]++;
-		}
-		else if(size < 1500) {
-			modelSizeDistribution[12]++;
-		}
-		return size;
-	}
-	
-	public static void initEClassCoverageMap(Set<EPackage> ePackages) {
+	public static synchronized void initEClassCoverageMap(Set<EPackage> ePackages) {
 		if(eClassCoverageMap != null) {
 			return;
 		}
@@ -142,16 +54,21 @@ public class ModelGenerationStats {
 		ModelGenerationStats.totalEClasses = allEClasses.size();
 	}
 	
-	public static void updateMetamodelCoverage(Resource resource) {
-		for(TreeIterator<EObject> it = resource.getAllContents(); it.hasNext();) {
-			EClass eClass = it.next().eClass();
+	/**
+	 * Adds the objects of a generated model to the coverage map.
+	 * @param counts the number of objects per class, as counted by the generator
+	 */
+	public static synchronized void updateMetamodelCoverage(Map<EClass, int[]> counts) {
+		for(Map.Entry<EClass, int[]> entry : counts.entrySet()) {
+			EClass eClass = entry.getKey();
+			int count = entry.getValue()[0];
 			try {
 				int currentCount = ModelGenerationStats.eClassCoverageMap.get(eClass);
 				if(currentCount == 0) {
 					ModelGenerationStats.coveredEClasses++;
 					ModelGenerationStats.lastCoveredEClass = eClass.getName();
 				}
-				ModelGenerationStats.eClassCoverageMap.put(eClass, currentCount+1);
+				ModelGenerationStats.eClassCoverageMap.put(eClass, currentCount+count);
 			}
 			catch(NullPointerException e) {
 				//System.out.println("Not in package: " + eClass.getName());
@@ -174,60 +91,64 @@ public class ModelGenerationStats {
 
 	}
 	
-	public static void printCompleteStats(int attempts, int generatedModels) {
+	public static void printCompleteStats(int attempts, int generatedModels, GenerationMetrics.Snapshot metrics) {
 		long elapsedTimeSeconds = (System.currentTimeMillis() - startTime)/1000;
 		long elapsedTimeMinutes = elapsedTimeSeconds/60;
         long memory = (runtime.totalMemory() - runtime.freeMemory()) / (1024L * 1024L);
         
+        long singleContainmentRefCount = metrics.get(Counter.SINGLE_CONTAINMENT_REFS);
+        long singleContainmentRefSuccess = metrics.get(Counter.SINGLE_CONTAINMENT_REF_SUCCESS);
+        long singleContainmentRefFail = metrics.get(Counter.SINGLE_CONTAINMENT_REF_FAIL);
+        long manyContainmentRefCount = metrics.get(Counter.MANY_CONTAINMENT_REFS);
+        long manyContainmentRefSuccess = metrics.get(Counter.MANY_CONTAINMENT_REF_SUCCESS);
+        long manyContainmentRefFail = metrics.get(Counter.MANY_CONTAINMENT_REF_FAIL);
+        long singleCrossRefCount = metrics.get(Counter.SINGLE_CROSS_REFS);
+        long singleCrossRefSuccess = metrics.get(Counter.SINGLE_CROSS_REF_SUCCESS);
+        long singleCrossRefFail = metrics.get(Counter.SINGLE_CROSS_REF_FAIL);
+        long manyCrossRefCount = metrics.get(Counter.MANY_CROSS_REFS);
+        long manyCrossRefSuccess = metrics.get(Counter.MANY_CROSS_REF_SUCCESS);
+        long manyCrossRefFail = metrics.get(Counter.MANY_CROSS_REF_FAIL);
+        
 		//Print stats
 		System.out.println("\n");
 		System.out.println("================================================");
 		System.out.println("Elapsed Time: 					" + elapsedTimeSeconds + " seconds (" + elapsedTimeMinutes + " minutes)");
 		System.out.println("Models generated 				" + generatedModels + "(Attempts: " + attempts + ", Success rate: " + addPercentage(generatedModels, attempts) + ")");
 		System.out.println("Memory consumption: 			" + memory + "mb");
-		System.out.println("EClass coverage:	 			" + "(" + coveredEReferences + "/"+ totalEClasses + ")");
 		System.out.println("EClass coverage:	 			" + "(" + coveredEClasses + "/"+ totalEClasses + ")");
 		System.out.println("Most recently covered EClass:	" + lastCoveredEClass);
-		System.out.println("IllegalArgumentExceptions:		" + illegalArgumentExceptionCount);
-		System.out.println("IllegalStateExceptions:			" + illegalStateExceptionCount);
-		System.out.println("ArrayStoreExceptions:			" + arrayStoreExceptionCount);
+		System.out.println("IllegalArgumentExceptions:		" + metrics.get(Counter.ILLEGAL_ARGUMENT_EXCEPTIONS));
+		System.out.println("IllegalStateExceptions:			" + metrics.get(Counter.ILLEGAL_STATE_EXCEPTIONS));
+		System.out.println("ArrayStoreExceptions:			" + metrics.get(Counter.ARRAY_STORE_EXCEPTIONS));
 		System.out.println("------------------------------------------------");
 		System.out.println("Containment References (single):" + singleContainmentRefCount);
 		System.out.println("Successful:						" + addPercentage(singleContainmentRefSuccess, singleContainmentRefCount));
-		System.out.println("Avg. number of trials:			" + String.format("%.3f", ((double) singleContainmentRefTrialCount) / singleContainmentRefSuccess));
 		System.out.println("Failed:							" + addPercentage(singleContainmentRefFail, singleContainmentRefCount));
 		System.out.println();
 		System.out.println("Containment References (many):	" + manyContainmentRefCount);
 		System.out.println("Successful:						" + addPercentage(manyContainmentRefSuccess, manyContainmentRefCount));
-		System.out.println("Avg. number of trials:			" + String.format("%.2f", ((double) manyContainmentRefTrialCount) / manyContainmentRefSuccess));
 		System.out.println("Failed:							" + addPercentage(manyContainmentRefFail, manyContainmentRefCount));
 		System.out.println();
-		System.out.println("Containment References (total):	" + singleContainmentRefCount + manyContainmentRefCount);
+		System.out.println("Containment References (total):	" + (singleContainmentRefCount + manyContainmentRefCount));
 		System.out.println("Successful:						" + addPercentage(singleContainmentRefSuccess + manyContainmentRefSuccess,
 																	singleContainmentRefCount + manyContainmentRefCount));
-		System.out.println("Avg. number of trials:			" + String.format("%.2f", ((double) (singleContainmentRefTrialCount + manyContainmentRefTrialCount)) 
-																						/ (singleContainmentRefSuccess + manyContainmentRefSuccess)));
 		System.out.println("Failed:							" + addPercentage(singleContainmentRefFail + manyContainmentRefFail,
 																	singleContainmentRefCount + manyContainmentRefCount));
 		System.out.println("------------------------------------------------");
 		System.out.println("Cross References (single):		" + singleCrossRefCount);
 		System.out.println("Successful:						" + addPercentage(singleCrossRefSuccess, singleCrossRefCount));
-		System.out.println("Avg. number of trials:			" + String.format("%.2f", ((double) singleCrossRefTrialCount) / singleCrossRefSuccess));
 		System.out.println("Failed:							" + addPercentage(singleCrossRefFail, singleCrossRefCount));
 		System.out.println();
 		System.out.println("Cross References (many):		" + manyCrossRefCount);
 		System.out.println("Successful:						" + addPercentage(manyCrossRefSuccess, manyCrossRefCount));
-		System.out.println("Avg. number of trials:			" + String.format("%.2f", ((double) manyCrossRefTrialCount) / manyCrossRefSuccess));
 		System.out.println("Failed:							" + addPercentage(manyCrossRefFail, manyCrossRefCount));
 		System.out.println();
-		System.out.println("Cross References (total):		" + singleCrossRefCount + manyCrossRefCount);
+		System.out.println("Cross References (total):		" + (singleCrossRefCount + manyCrossRefCount));
 		System.out.println("Successful:						" + addPercentage(singleCrossRefSuccess + manyCrossRefSuccess,
 																	singleCrossRefCount + manyCrossRefCount));
-		System.out.println("Avg. number of trials:			" + String.format("%.2f", ((double) (singleCrossRefTrialCount + manyCrossRefTrialCount)) 
-																						/ (singleCrossRefSuccess + manyCrossRefSuccess)));
 		System.out.println("Failed:							" + addPercentage(singleCrossRefFail + manyCrossRefFail,
 																	singleCrossRefCount + manyCrossRefCount));
-		printModelSizeDistribution();
+		printModelSizeDistribution(metrics);
 		System.out.println("================================================");
 	}
 	
@@ -236,11 +157,12 @@ public class ModelGenerationStats {
 		return value + " (" + String.format("%.2f", perc) + "%)";
 	}
 	
-	public static void printModelSizeDistribution() {
-		System.out.println(modelSizeDistribution[0] + " | " + modelSizeDistribution[1] + " | " + modelSizeDistribution[2] + " | " + modelSizeDistribution[3] + " | " + 
-				modelSizeDistribution[4] + " | " + modelSizeDistribution[5] + " | " + modelSizeDistribution[6] + " | " + modelSizeDistribution[7] + " | " + 
-				+ modelSizeDistribution[8] + " | " + modelSizeDistribution[9] + " | " + modelSizeDistribution[10] + " | "
-				+ modelSizeDistribution[11] + " | " + modelSizeDistribution[12]);
+	public static void printModelSizeDistribution(GenerationMetrics.Snapshot metrics) {
+		StringBuilder sb = new StringBuilder();
+		for(int i = 0; i < GenerationMetrics.MODEL_SIZE_BOUNDS.length; i++) {
+			sb.append(i > 0 ? " | " : "").append(metrics.getModelSizeCount(i));
+		}
+		System.out.println(sb.toString());
 	}
 	
 }
@@ -0,0 +1,233 @@
+package de.hub.mse.emf.generator.internal;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.emf.ecore.EClass;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.emf.ecore.util.EContentAdapter;
+
+/**
+ * Index of all objects contained in a model resource, by exact class and by type (i.e. class
+ * or supertype).
+ *
+ * The index is an {@link EContentAdapter}, which is attached to every object of the resource.
+ * It is updated whenever objects are added to or removed from the containment tree, e.g. by
+ * executing or undoing mutation commands, so it never has to be rebuilt. Objects are removed by
+ * moving the last object of a list to their position, so adding, removing and selecting a
+ * random object takes constant time.
+ *
+ * The index stays attached while the model is executed by the test, so that it does not have to
+ * be rebuilt for the next mutation. It is therefore placed in a package which is excluded from
+ * coverage instrumentation, as is its listener {@link WeightedEObjectSampler}.
+ *
+ * @author Lam
+ *
+ */
+public class ObjectIndex extends EContentAdapter {
+
+	/** Listener notified when the classes instantiated in the model change. */
+	public interface Listener {
+
+		/**
+		 * Called when the first object of a class is added to the model, or the last one is
+		 * removed.
+		 * @param eClass  the class
+		 * @param slot    the position of the class in {@link ObjectIndex#getEClasses()}
+		 * @param present whether the model contains objects of the class
+		 */
+		void eClassPresenceChanged(EClass eClass, int slot, boolean present);
+
+		/** Called when the index is cleared, e.g. for another resource. */
+		void indexCleared();
+	}
+
+	/** A list of objects supporting removal in constant time. The order is not preserved. */
+	private static class IndexedList {
+		final List<EObject> objects = new ArrayList<EObject>();
+		final Map<EObject, Integer> positions = new IdentityHashMap<EObject, Integer>();
+		final List<EObject> view = Collections.unmodifiableList(objects);
+
+		boolean add(EObject eObject) {
+			if (positions.containsKey(eObject)) {
+				return false;
+			}
+			positions.put(eObject, objects.size());
+			objects.add(eObject);
+			return true;
+		}
+
+		boolean remove(EObject eObject) {
+			Integer position = positions.remove(eObject);
+			if (position == null) {
+				return false;
+			}
+			EObject last = objects.remove(objects.size() - 1);
+			if (last != eObject) {
+				objects.set(position, last);
+				positions.put(last, position);
+			}
+			return true;
+		}
+	}
+
+	private Resource resource;
+
+	private final IndexedList allObjects = new IndexedList();
+
+	/** Objects by their exact class, in the order the classes were first indexed. */
+	private final Map<EClass, IndexedList> byEClass = new LinkedHashMap<EClass, IndexedList>();
+
+	/** The positions of the classes in {@link #byEClass}. */
+	private final Map<EClass, Integer> slots = new HashMap<EClass, Integer>();
+
+	/** Objects by their class and all of its supertypes. */
+	private final Map<EClass, IndexedList> byType = new HashMap<EClass, IndexedList>();
+
+	private Listener listener;
+
+	/**
+	 * Sets the listener notified when the classes instantiated in the model change.
+	 * @param listener the listener, may be {@code null}
+	 */
+	public void setListener(Listener listener) {
+		this.listener = listener;
+	}
+
+	/**
+	 * Indexes the given resource instead of the current one.
+	 * @param resource the resource to index, may be {@code null}
+	 */
+	public void setResource(Resource resource) {
+		if (this.resource == resource) {
+			return;
+		}
+		if (this.resource != null) {
+			this.resource.eAdapters().remove(this);
+		}
+		clear();
+		this.resource = resource;
+		if (resource != null) {
+			resource.eAdapters().add(this);
+		}
+	}
+
+	/** Returns the indexed resource. */
+	public Resource getResource() {
+		return resource;
+	}
+
+	@Override
+	protected void setTarget(EObject target) {
+		// Index the object before its contents, so a new index is in containment order
+		if (allObjects.add(target)) {
+			EClass eClass = target.eClass();
+			if (!slots.containsKey(eClass)) {
+				slots.put(eClass, slots.size());
+			}
+			IndexedList objectsOfEClass = get(byEClass, eClass);
+			objectsOfEClass.add(target);
+			if (objectsOfEClass.objects.size() == 1 && listener != null) {
+				listener.eClassPresenceChanged(eClass, slots.get(eClass), true);
+			}
+			get(byType, eClass).add(target);
+			for (EClass eSuperType : eClass.getEAllSuperTypes()) {
+				get(byType, eSuperType).add(target);
+			}
+		}
+		super.setTarget(target);
+	}
+
+	@Override
+	protected void unsetTarget(EObject target) {
+		super.unsetTarget(target);
+		if (allObjects.remove(target)) {
+			EClass eClass = target.eClass();
+			IndexedList objectsOfEClass = byEClass.get(eClass);
+			objectsOfEClass.remove(target);
+			if (objectsOfEClass.objects.isEmpty() && listener != null) {
+				listener.eClassPresenceChanged(eClass, slots.get(eClass), false);
+			}
+			byType.get(eClass).remove(target);
+			for (EClass eSuperType : eClass.getEAllSuperTypes()) {
+				byType.get(eSuperType).remove(target);
+			}
+		}
+	}
+
+	private static IndexedList get(Map<EClass, IndexedList> lists, EClass eClass) {
+		IndexedList list = lists.get(eClass);
+		if (list == null) {
+			list = new IndexedList();
+			lists.put(eClass, list);
+		}
+		return list;
+	}
+
+	private void clear() {
+		allObjects.objects.clear();
+		allObjects.positions.clear();
+		byEClass.clear();
+		slots.clear();
+		byType.clear();
+		if (listener != null) {
+			listener.indexCleared();
+		}
+	}
+
+	/** Returns the number of objects in the model. */
+	public int size() {
+		return allObjects.objects.size();
+	}
+
+	/**
+	 * Returns all objects of the model. The returned list is owned by the index, it must not
+	 * be modified and changes with the model.
+	 */
+	public List<EObject> getObjects() {
+		return allObjects.view;
+	}
+
+	/**
+	 * Returns the objects whose class is the given class or one of its subclasses. The
+	 * returned list is owned by the index, it must not be modified and changes with the model.
+	 */
+	public List<EObject> getObjectsOfType(EClass eClass) {
+		IndexedList list = byType.get(eClass);
+		return list != null ? list.view : Collections.<EObject>emptyList();
+	}
+
+	/**
+	 * Returns the objects whose class is exactly the given class. The returned list is owned
+	 * by the index, it must not be modified and changes with the model.
+	 */
+	public List<EObject> getObjectsOfEClass(EClass eClass) {
+		IndexedList list = byEClass.get(eClass);
+		return list != null ? list.view : Collections.<EObject>emptyList();
+	}
+
+	/**
+	 * Returns the classes that have been instantiated in the model, in the order they were
+	 * first indexed. Classes whose objects have all been removed are included.
+	 */
+	public Set<EClass> getEClasses() {
+		return Collections.unmodifiableSet(byEClass.keySet());
+	}
+
+	/**
+	 * Returns the position of the given class in {@link #getEClasses()}.
+	 * @param eClass the class
+	 * @return the position, or -1 if the class has not been instantiated in the model
+	 */
+	public int getSlot(EClass eClass) {
+		Integer slot = slots.get(eClass);
+		return slot != null ? slot : -1;
+	}
+}
@@ -0,0 +1,97 @@
+package de.hub.mse.emf.generator.internal;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * A table keeping a bounded, uniform random sample of the values added for each key
+ * (reservoir sampling).
+ *
+ * Once a key holds {@link #getCapacity()} values, each further value replaces a random one with
+ * decreasing probability, so every value added for the key is retained with the same
+ * probability. The memory used is bounded by the number of keys, regardless of how many values
+ * are added.
+ *
+ * Instances are not thread-safe.
+ *
+ * @author Lam
+ *
+ * @param <K> the type of the keys
+ * @param <V> the type of the values
+ */
+public class ReservoirTable<K, V> {
+
+	private static class Reservoir<V> {
+		final List<V> values = new ArrayList<V>();
+		long count = 0;
+	}
+
+	private final int capacity;
+
+	private final Map<K, Reservoir<V>> reservoirs = new HashMap<K, Reservoir<V>>();
+
+	/**
+	 * @param capacity the maximum number of values retained per key
+	 */
+	public ReservoirTable(int capacity) {
+		if (capacity < 1) {
+			throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+		}
+		this.capacity = capacity;
+	}
+
+	/**
+	 * Adds a value for the given key, possibly replacing a previously retained value.
+	 * @param key    the key
+	 * @param value  the value
+	 * @param random the random source deciding which values are retained
+	 */
+	public void add(K key, V value, Random random) {
+		Reservoir<V> reservoir = reservoirs.get(key);
+		if (reservoir == null) {
+			reservoir = new Reservoir<V>();
+			reservoirs.put(key, reservoir);
+		}
+		reservoir.count++;
+		if (reservoir.values.size() < capacity) {
+			reservoir.values.add(value);
+		} else {
+			long idx = (long) (random.nextDouble() * reservoir.count);
+			if (idx < capacity) {
+				reservoir.values.set((int) idx, value);
+			}
+		}
+	}
+
+	/**
+	 * Returns the values retained for the given key.
+	 * @param key the key
+	 * @return an unmodifiable view of the values, empty if no value has been added for the key
+	 */
+	public List<V> get(K key) {
+		Reservoir<V> reservoir = reservoirs.get(key);
+		return reservoir != null ? Collections.unmodifiableList(reservoir.values) : Collections.<V>emptyList();
+	}
+
+	/**
+	 * Returns the number of values added for the given key, including the ones not retained.
+	 */
+	public long getCount(K key) {
+		Reservoir<V> reservoir = reservoirs.get(key);
+		return reservoir != null ? reservoir.count : 0;
+	}
+
+	/** Returns the maximum number of values retained per key. */
+	public int getCapacity() {
+		return capacity;
+	}
+
+	/** Removes all values. */
+	public void clear() {
+		reservoirs.clear();
+	}
+}
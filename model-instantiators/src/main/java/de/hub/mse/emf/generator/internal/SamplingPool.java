@@ -0,0 +1,94 @@
+package de.hub.mse.emf.generator.internal;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A reusable pool of candidates for sampling without replacement.
+ *
+ * Removing an element swaps it with the last remaining element (partial Fisher-Yates shuffle),
+ * so drawing a random element costs constant time. The backing array only grows and is reused
+ * after {@link #clear()}, so filling the pool for every reference does not allocate once it
+ * has reached the size of the largest candidate set.
+ *
+ * Instances are not thread-safe.
+ *
+ * @author Lam
+ *
+ * @param <T> the type of the candidates
+ */
+public class SamplingPool<T> {
+
+	/** The remaining candidates, in the first {@link #size} slots. */
+	private Object[] elements = new Object[16];
+
+	/** Number of remaining candidates. */
+	private int size = 0;
+
+	/** Removes all candidates. */
+	public void clear() {
+		Arrays.fill(elements, 0, size, null);
+		size = 0;
+	}
+
+	/** Adds a candidate. */
+	public void add(T element) {
+		if (size == elements.length) {
+			elements = Arrays.copyOf(elements, size * 2);
+		}
+		elements[size++] = element;
+	}
+
+	/** Adds all given candidates. */
+	public void addAll(List<? extends T> candidates) {
+		int required = size + candidates.size();
+		if (required > elements.length) {
+			elements = Arrays.copyOf(elements, Math.max(required, elements.length * 2));
+		}
+		for (int i = 0; i < candidates.size(); i++) {
+			elements[size++] = candidates.get(i);
+		}
+	}
+
+	/**
+	 * Removes the first occurrence of a candidate, compared by identity.
+	 * @param element the candidate to remove
+	 * @return whether the candidate was in the pool
+	 */
+	public boolean remove(Object element) {
+		for (int i = 0; i < size; i++) {
+			if (elements[i] == element) {
+				removeAt(i);
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Removes the candidate at the given position and moves the last candidate to its position.
+	 * Use a random index to draw a random candidate.
+	 * @param idx the position of the candidate, between 0 and {@link #size()} - 1
+	 * @return the removed candidate
+	 */
+	@SuppressWarnings("unchecked")
+	public T removeAt(int idx) {
+		if (idx < 0 || idx >= size) {
+			throw new IndexOutOfBoundsException("Index: " + idx + ", Size: " + size);
+		}
+		T element = (T) elements[idx];
+		elements[idx] = elements[--size];
+		elements[size] = null;
+		return element;
+	}
+
+	/** Returns the number of remaining candidates. */
+	public int size() {
+		return size;
+	}
+
+	/** Returns whether there are no candidates left. */
+	public boolean isEmpty() {
+		return size == 0;
+	}
+}
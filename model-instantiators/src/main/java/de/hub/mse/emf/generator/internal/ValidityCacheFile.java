@@ -0,0 +1,172 @@
+package de.hub.mse.emf.generator.internal;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.emf.ecore.EClass;
+import org.eclipse.emf.ecore.EReference;
+
+import com.google.common.collect.ImmutableList;
+
+/**
+ * Reads and writes the valid target classes of all references of a {@link MetamodelSchema}
+ * (see {@link MetamodelUtil#warmUpValidityCache(File, int)}), so they only have to be
+ * probed once per metamodel.
+ *
+ * The file starts with a header containing the format version, the namespace URIs and the
+ * signature of the schema (see {@link MetamodelSchema#getSignature()}). A file whose header
+ * does not match the current schema is ignored. Each following line contains the id of a
+ * class, the feature id of a reference and the ids of its valid target classes.
+ *
+ * @author Lam
+ *
+ */
+public class ValidityCacheFile {
+
+	/** Version of the file format, increase on incompatible changes. */
+	public static final int VERSION = 1;
+
+	private static final String HEADER = "# MoFuzz reference validity cache";
+
+	private ValidityCacheFile() {
+	}
+
+	/**
+	 * Loads the valid target classes into the schema.
+	 * @param file   the cache file
+	 * @param schema the schema of the current metamodel
+	 * @return whether the file exists and matches the schema
+	 */
+	public static boolean load(File file, MetamodelSchema schema) {
+		if (!file.isFile()) {
+			return false;
+		}
+		try (BufferedReader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+			List<String> expected = header(schema);
+			List<String> header = new ArrayList<String>();
+			for (int i = 0; i < expected.size(); i++) {
+				header.add(reader.readLine());
+			}
+			if (!header.equals(expected)) {
+				System.err.println("Ignoring outdated validity cache " + file.getAbsolutePath());
+				return false;
+			}
+
+			// Parse all entries first, so an incomplete file does not leave a partial cache
+			Map<List<EClass>, ImmutableList<EClass>> interned = new HashMap<List<EClass>, ImmutableList<EClass>>();
+			List<int[]> cells = new ArrayList<int[]>();
+			List<ImmutableList<EClass>> values = new ArrayList<ImmutableList<EClass>>();
+			for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+				if (line.isEmpty()) {
+					continue;
+				}
+				String[] fields = line.split(" ");
+				int id = Integer.parseInt(fields[0]);
+				int featureId = Integer.parseInt(fields[1]);
+				if (!schema.isConcrete(id)
+						|| !(schema.getEClass(id).getEStructuralFeature(featureId) instanceof EReference)) {
+					throw new IOException("Invalid entry: " + line);
+				}
+				List<EClass> validEClasses = new ArrayList<EClass>(fields.length - 2);
+				for (int i = 2; i < fields.length; i++) {
+					EClass validEClass = schema.getEClass(Integer.parseInt(fields[i]));
+					if (validEClass == null) {
+						throw new IOException("Invalid entry: " + line);
+					}
+					validEClasses.add(validEClass);
+				}
+				// Share equal lists, like the lists of a warmed up cache
+				ImmutableList<EClass> value = interned.get(validEClasses);
+				if (value == null) {
+					value = ImmutableList.copyOf(validEClasses);
+					interned.put(validEClasses, value);
+				}
+				cells.add(new int[] {id, featureId});
+				values.add(value);
+			}
+
+			for (int i = 0; i < cells.size(); i++) {
+				schema.putValidEClasses(cells.get(i)[0], cells.get(i)[1], values.get(i));
+			}
+			return true;
+		} catch (IOException | RuntimeException e) {
+			System.err.println("Unable to load validity cache " + file.getAbsolutePath() + ": " + e.getMessage());
+			return false;
+		}
+	}
+
+	/**
+	 * Saves the valid target classes computed so far.
+	 * The file is written to a temporary file of its own and then replaced atomically, so
+	 * concurrent campaigns (or workers) saving the file never read a partial file or
+	 * overwrite each other's temporary file.
+	 * @param file   the cache file
+	 * @param schema the schema of the current metamodel
+	 */
+	public static void save(File file, MetamodelSchema schema) {
+		Path tmpFile = null;
+		try {
+			File dir = file.getAbsoluteFile().getParentFile();
+			dir.mkdirs();
+			tmpFile = Files.createTempFile(dir.toPath(), file.getName(), ".tmp");
+			try (BufferedWriter writer = Files.newBufferedWriter(tmpFile, StandardCharsets.UTF_8)) {
+				for (String line : header(schema)) {
+					writer.write(line);
+					writer.newLine();
+				}
+				for (int id = 0; id < schema.getIdCount(); id++) {
+					if (!schema.isConcrete(id)) {
+						continue;
+					}
+					EClass eClass = schema.getEClass(id);
+					for (EReference eReference : schema.getReferences(id)) {
+						int featureId = eClass.getFeatureID(eReference);
+						ImmutableList<EClass> validEClasses = schema.getComputedValidEClasses(id, featureId);
+						if (validEClasses == null) {
+							continue;
+						}
+						StringBuilder sb = new StringBuilder();
+						sb.append(id).append(' ').append(featureId);
+						for (EClass validEClass : validEClasses) {
+							sb.append(' ').append(schema.getId(validEClass));
+						}
+						writer.write(sb.toString());
+						writer.newLine();
+					}
+				}
+			}
+			try {
+				Files.move(tmpFile, file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+						StandardCopyOption.ATOMIC_MOVE);
+			} catch (IOException e) {
+				Files.move(tmpFile, file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			}
+		} catch (IOException e) {
+			System.err.println("Unable to save validity cache " + file.getAbsolutePath() + ": " + e.getMessage());
+			if (tmpFile != null) {
+				tmpFile.toFile().delete();
+			}
+		}
+	}
+
+	private static List<String> header(MetamodelSchema schema) {
+		List<String> header = new ArrayList<String>();
+		header.add(HEADER);
+		header.add("version " + VERSION);
+		for (String nsURI : schema.getNsURIs()) {
+			header.add("nsURI " + nsURI);
+		}
+		header.add("signature " + schema.getSignature());
+		return header;
+	}
+}
@@ -0,0 +1,183 @@
+package de.hub.mse.emf.generator.internal;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.apache.commons.lang3.RandomStringUtils;
+
+import com.pholser.junit.quickcheck.random.SourceOfRandomness;
+
+/**
+ * Preallocated attribute values, so filling the attributes of a model does not allocate a new
+ * (boxed) value for every attribute.
+ *
+ * For each primitive type, a table holds boundary values (e.g. 0, -1, the minimum and maximum)
+ * followed by random values. For each length up to {@link #getMaxStringLength()}, a dictionary
+ * holds random alphanumeric strings. Characters are restricted to those that are valid in
+ * XML 1.0, so that generated models can be saved and loaded again. The tables are filled once from a fixed seed, and values
+ * are selected from them by the random source of the generation, so the same random choices
+ * always yield the same values.
+ *
+ * Instances are immutable and can be shared between threads.
+ *
+ * @author Lam
+ *
+ */
+public class ValuePool {
+
+	/** Default number of values per type and per string length. */
+	public static final int DEFAULT_SIZE = 256;
+
+	/** Default maximum length of the pooled strings. */
+	public static final int DEFAULT_MAX_STRING_LENGTH = 32;
+
+	private static final long DEFAULT_SEED = 42L;
+
+	private static final Object[] BOOLEANS = { Boolean.FALSE, Boolean.TRUE };
+
+	private static final Object[] BYTE_BOUNDARIES = { (byte) 0, (byte) 1, (byte) -1, Byte.MIN_VALUE, Byte.MAX_VALUE };
+
+	/** Boundary characters, all of which can be written to XML (unlike e.g. 0 or {@link Character#MAX_VALUE}). */
+	private static final Object[] CHAR_BOUNDARIES = { ' ', '0', 'a', 'Z', '\n', '\t', '\r', (char) 0x7F,
+			(char) 0xFF, (char) 0xD7FF, (char) 0xE000, (char) 0xFFFD };
+
+	private static final Object[] SHORT_BOUNDARIES = { (short) 0, (short) 1, (short) -1, Short.MIN_VALUE,
+			Short.MAX_VALUE, (short) Byte.MIN_VALUE, (short) Byte.MAX_VALUE, (short) 255 };
+
+	private static final Object[] INT_BOUNDARIES = { 0, 1, -1, 2, Integer.MIN_VALUE, Integer.MAX_VALUE,
+			Integer.MIN_VALUE + 1, Integer.MAX_VALUE - 1, (int) Short.MIN_VALUE, (int) Short.MAX_VALUE, 255, 256,
+			65535, 65536 };
+
+	private static final Object[] LONG_BOUNDARIES = { 0L, 1L, -1L, Long.MIN_VALUE, Long.MAX_VALUE,
+			(long) Integer.MIN_VALUE, (long) Integer.MAX_VALUE, 1L << 32 };
+
+	private static final Object[] FLOAT_BOUNDARIES = { 0.0f, -0.0f, 1.0f, -1.0f, Float.MIN_VALUE, Float.MAX_VALUE,
+			-Float.MAX_VALUE, Float.MIN_NORMAL, Float.NaN, Float.POSITIVE_INFINITY, Float.NEGATIVE_INFINITY };
+
+	private static final Object[] DOUBLE_BOUNDARIES = { 0.0d, -0.0d, 1.0d, -1.0d, Double.MIN_VALUE,
+			Double.MAX_VALUE, -Double.MAX_VALUE, Double.MIN_NORMAL, Double.NaN, Double.POSITIVE_INFINITY,
+			Double.NEGATIVE_INFINITY };
+
+	private final Map<Class<?>, Object[]> primitives = new HashMap<Class<?>, Object[]>();
+
+	/** The pooled strings, indexed by length. */
+	private final String[][] strings;
+
+	public ValuePool() {
+		this(DEFAULT_SIZE, DEFAULT_MAX_STRING_LENGTH, DEFAULT_SEED);
+	}
+
+	/**
+	 * @param size            the number of values per type and per string length
+	 * @param maxStringLength the maximum length of the pooled strings
+	 * @param seed            the seed of the pooled random values
+	 */
+	public ValuePool(int size, int maxStringLength, long seed) {
+		Random random = new Random(seed);
+		primitives.put(boolean.class, BOOLEANS);
+
+		Object[] bytes = fill(BYTE_BOUNDARIES, size);
+		byte[] buff = new byte[1];
+		for (int i = BYTE_BOUNDARIES.length; i < bytes.length; i++) {
+			random.nextBytes(buff);
+			bytes[i] = buff[0];
+		}
+		primitives.put(byte.class, bytes);
+
+		Object[] chars = fill(CHAR_BOUNDARIES, size);
+		for (int i = CHAR_BOUNDARIES.length; i < chars.length; i++) {
+			char c;
+			do {
+				c = (char) random.nextInt();
+			} while (!isXmlChar(c));
+			chars[i] = c;
+		}
+		primitives.put(char.class, chars);
+
+		Object[] shorts = fill(SHORT_BOUNDARIES, size);
+		for (int i = SHORT_BOUNDARIES.length; i < shorts.length; i++) {
+			shorts[i] = (short) random.nextInt();
+		}
+		primitives.put(short.class, shorts);
+
+		Object[] ints = fill(INT_BOUNDARIES, size);
+		for (int i = INT_BOUNDARIES.length; i < ints.length; i++) {
+			ints[i] = random.nextInt();
+		}
+		primitives.put(int.class, ints);
+
+		Object[] longs = fill(LONG_BOUNDARIES, size);
+		for (int i = LONG_BOUNDARIES.length; i < longs.length; i++) {
+			longs[i] = random.nextLong();
+		}
+		primitives.put(long.class, longs);
+
+		Object[] floats = fill(FLOAT_BOUNDARIES, size);
+		for (int i = FLOAT_BOUNDARIES.length; i < floats.length; i++) {
+			floats[i] = random.nextFloat();
+		}
+		primitives.put(float.class, floats);
+
+		Object[] doubles = fill(DOUBLE_BOUNDARIES, size);
+		for (int i = DOUBLE_BOUNDARIES.length; i < doubles.length; i++) {
+			doubles[i] = random.nextDouble();
+		}
+		primitives.put(double.class, doubles);
+
+		strings = new String[maxStringLength + 1][];
+		strings[0] = new String[] { "" };
+		for (int length = 1; length <= maxStringLength; length++) {
+			strings[length] = new String[size];
+			for (int i = 0; i < size; i++) {
+				strings[length][i] = RandomStringUtils.random(length, 0, 0, true, true, null, random).intern();
+			}
+		}
+	}
+
+	/** Returns a table of the given size starting with the boundary values. */
+	private static Object[] fill(Object[] boundaries, int size) {
+		Object[] values = new Object[Math.max(size, boundaries.length)];
+		System.arraycopy(boundaries, 0, values, 0, boundaries.length);
+		return values;
+	}
+
+	/**
+	 * Selects a pooled value of a primitive type.
+	 * @param primitiveType the primitive type, e.g. {@code int.class}
+	 * @param random        the random source selecting the value
+	 * @return the boxed value, or {@code null} if the type is not a primitive type
+	 */
+	public Object nextPrimitive(Class<?> primitiveType, SourceOfRandomness random) {
+		Object[] values = primitives.get(primitiveType);
+		if (values == null) {
+			return null;
+		}
+		return values[random.nextInt(values.length)];
+	}
+
+	/**
+	 * Selects a pooled alphanumeric string. Strings longer than the pooled ones are
+	 * generated.
+	 * @param length the length of the string
+	 * @param random the random source selecting the string
+	 * @return a string of the given length
+	 */
+	public String nextString(int length, SourceOfRandomness random) {
+		if (length > getMaxStringLength()) {
+			return RandomStringUtils.random(length, 0, 0, true, true, null, random.toJDKRandom());
+		}
+		String[] values = strings[length];
+		return values[random.nextInt(values.length)];
+	}
+
+	/** Returns the maximum length of the pooled strings. */
+	public int getMaxStringLength() {
+		return strings.length - 1;
+	}
+
+	/** Returns whether the given character may occur in an XML 1.0 document. */
+	static boolean isXmlChar(char c) {
+		return c == '\t' || c == '\n' || c == '\r' || (c >= 0x20 && c <= 0xD7FF) || (c >= 0xE000 && c <= 0xFFFD);
+	}
+}
@@ -0,0 +1,113 @@
+package de.hub.mse.emf.generator.internal;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Random;
+
+import org.eclipse.emf.ecore.EClass;
+import org.eclipse.emf.ecore.EObject;
+
+import de.hub.mse.emf.generator.cgf.MetamodelCoverage;
+
+/**
+ * Draws objects of a model with a probability depending on the global number of instances of
+ * their class (see {@link MetamodelCoverage#getEClassCount(EClass)}).
+ *
+ * The weights of the classes in the model are kept in {@link FenwickTree}s, one favoring higher
+ * and one favoring lower counts. A weight is updated when its class appears in or disappears
+ * from the model, and when the count of its class changes. A draw therefore takes logarithmic
+ * time, rather than a pass over the model to compute the distribution.
+ *
+ * @author Lam
+ *
+ */
+public class WeightedEObjectSampler implements ObjectIndex.Listener, MetamodelCoverage.EClassCountListener {
+
+	private final ObjectIndex objectIndex;
+
+	private final MetamodelCoverage metamodelCoverage;
+
+	/** Weights proportional to the counts, by slot of the class in the index. */
+	private final FenwickTree higherCountWeights = new FenwickTree();
+
+	/** Weights inversely proportional to the counts, by slot of the class in the index. */
+	private final FenwickTree lowerCountWeights = new FenwickTree();
+
+	/** The classes of the index, by slot. */
+	private final List<EClass> eClasses = new ArrayList<EClass>();
+
+	/**
+	 * Creates a sampler for the objects of the given index, registering it as listener of the
+	 * index and the coverage.
+	 * @param objectIndex       the index of the model
+	 * @param metamodelCoverage the coverage holding the global counts of the classes
+	 */
+	public WeightedEObjectSampler(ObjectIndex objectIndex, MetamodelCoverage metamodelCoverage) {
+		this.objectIndex = objectIndex;
+		this.metamodelCoverage = metamodelCoverage;
+		objectIndex.setListener(this);
+		metamodelCoverage.addEClassCountListener(this);
+		for (EClass eClass : objectIndex.getEClasses()) {
+			update(eClass, objectIndex.getSlot(eClass));
+		}
+	}
+
+	@Override
+	public void eClassPresenceChanged(EClass eClass, int slot, boolean present) {
+		update(eClass, slot);
+	}
+
+	@Override
+	public void indexCleared() {
+		higherCountWeights.clear();
+		lowerCountWeights.clear();
+		eClasses.clear();
+	}
+
+	@Override
+	public void eClassCountChanged(EClass eClass, int count) {
+		int slot = objectIndex.getSlot(eClass);
+		if (slot >= 0) {
+			update(eClass, slot);
+		}
+	}
+
+	private void update(EClass eClass, int slot) {
+		while (eClasses.size() <= slot) {
+			eClasses.add(null);
+		}
+		eClasses.set(slot, eClass);
+
+		if (objectIndex.getObjectsOfEClass(eClass).isEmpty()) {
+			higherCountWeights.set(slot, 0);
+			lowerCountWeights.set(slot, 0);
+			return;
+		}
+		double count = metamodelCoverage.getEClassCount(eClass);
+		higherCountWeights.set(slot, Math.max(count, 0));
+
+		// Prioritize lower counts by inverting them, assign 1 to 0-counts
+		lowerCountWeights.set(slot, count > 0 ? 1 / count : 1);
+	}
+
+	/**
+	 * Draws an object: first a class with a probability proportional to its weight, then an
+	 * object of that class uniformly. If all weights are 0, an object is drawn uniformly.
+	 *
+	 * @param prioritizeHigherCounts whether to prioritize objects from classes that have
+	 *                               higher frequency counts
+	 * @param random                 the source of randomness
+	 * @return the selected object
+	 */
+	public EObject select(boolean prioritizeHigherCounts, Random random) {
+		FenwickTree weights = prioritizeHigherCounts ? higherCountWeights : lowerCountWeights;
+		int slot = weights.find(random.nextDouble() * weights.total());
+		List<EObject> eObjects = slot >= 0 ? objectIndex.getObjectsOfEClass(eClasses.get(slot))
+				: objectIndex.getObjects();
+		if (eObjects.isEmpty()) {
+			throw new NoSuchElementException("The model is empty");
+		}
+		return eObjects.get(random.nextInt(eObjects.size()));
+	}
+}
@@ -1,40 +1,11 @@
 package de.hub.mse.emf.mutator;
 
 import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.Collections;
-import java.util.HashSet;
-import java.util.List;
 import java.util.Random;
 import java.util.logging.Logger;
 
-import org.eclipse.emf.common.command.BasicCommandStack;
-import org.eclipse.emf.common.command.Command;
-import org.eclipse.emf.common.command.CommandStack;
-import org.eclipse.emf.common.command.CommandWrapper;
-import org.eclipse.emf.common.command.CompoundCommand;
-import org.eclipse.emf.common.command.IdentityCommand;
-import org.eclipse.emf.common.util.TreeIterator;
-import org.eclipse.emf.ecore.EClass;
-import org.eclipse.emf.ecore.EObject;
-import org.eclipse.emf.ecore.EReference;
-import org.eclipse.emf.ecore.EStructuralFeature;
-import org.eclipse.emf.ecore.provider.EcoreItemProviderAdapterFactory;
 import org.eclipse.emf.ecore.resource.Resource;
 import org.eclipse.emf.ecore.resource.ResourceSet;
-import org.eclipse.emf.edit.command.AddCommand;
-import org.eclipse.emf.edit.command.DeleteCommand;
-import org.eclipse.uml2.uml.edit.providers.UMLResourceItemProvider;
-import org.eclipse.emf.edit.command.RemoveCommand;
-import org.eclipse.emf.edit.command.SetCommand;
-import org.eclipse.emf.edit.domain.AdapterFactoryEditingDomain;
-import org.eclipse.emf.edit.domain.EditingDomain;
-import org.eclipse.emf.edit.provider.ComposedAdapterFactory;
-import org.eclipse.emf.edit.provider.ItemProviderAdapter;
-import org.eclipse.uml2.common.edit.domain.UML2AdapterFactoryEditingDomain;
-import org.eclipse.uml2.uml.edit.providers.UMLItemProviderAdapterFactory;
-import org.eclipse.uml2.uml.edit.providers.UMLReflectiveItemProviderAdapterFactory;
-import org.eclipse.uml2.uml.edit.providers.UMLResourceItemProviderAdapterFactory;
 
 import com.pholser.junit.quickcheck.generator.GenerationStatus;
 import com.pholser.junit.quickcheck.random.SourceOfRandomness;
@@ -47,7 +18,7 @@ import de.hub.mse.emf.mutator.mutation.ChangeAttributesMutation;
 import de.hub.mse.emf.mutator.mutation.ChangeCrossReferencesMutation;
 import de.hub.mse.emf.mutator.mutation.DeleteObjectMutation;
 import de.hub.mse.emf.mutator.mutation.Mutation;
-import de.hub.mse.emf.mutator.mutation.MutationException;
+import de.hub.mse.emf.mutator.mutation.MutationJournal;
 import de.hub.mse.emf.mutator.mutation.MutationTargetSelector;
 import de.hub.mse.emf.mutator.mutation.UnsetAttributesMutation;
 /**
@@ -68,7 +39,8 @@ public class ModelMutator {
 	/** The metamodel coverage */
 	MetamodelCoverage metamodelCoverage;
 	
-	private EditingDomain editingDomain;
+	/** Applies the mutations and records them for undoing. */
+	private final MutationJournal journal = new MutationJournal();
 	
 	private MutationTargetSelector mutationTargetSelector;
 	
@@ -85,20 +57,11 @@ public class ModelMutator {
 		this.metamodelCoverage = metamodelCoverage;
 		this.mutationTargetSelector = new MutationTargetSelector(random, null, metamodelUtil, metamodelCoverage);
 		
-		// Setup editing domain
-		ComposedAdapterFactory adapterFactory = new ComposedAdapterFactory(ComposedAdapterFactory.Descriptor.Registry.INSTANCE);
-		adapterFactory.addAdapterFactory(new UMLResourceItemProviderAdapterFactory());
-		adapterFactory.addAdapterFactory(new UMLItemProviderAdapterFactory());
-		adapterFactory.addAdapterFactory(new EcoreItemProviderAdapterFactory());
-		adapterFactory.addAdapterFactory(new UMLReflectiveItemProviderAdapterFactory());
-
-		this.editingDomain = new UML2AdapterFactoryEditingDomain(adapterFactory, new BasicCommandStack(), resourceSet);
-		
 		this.mutationOperators = (mutationOperators == null) ? getDefaultMutationOperators() : mutationOperators;
 	}
 	
 	private ArrayList<Mutation> getDefaultMutationOperators() {
-		assert(editingDomain != null && mutationTargetSelector != null);
+		assert(mutationTargetSelector != null);
 		ArrayList<Mutation> mutationOperators = new ArrayList<Mutation>();
 		mutationOperators.add(new AddObjectMutation(10));
 		mutationOperators.add(new DeleteObjectMutation());
@@ -137,6 +100,15 @@ public class ModelMutator {
 		}
 	}
 	
+	/**
+	 * Re-seeds the random number generator shared by the target selector and the mutation operators,
+	 * e.g. to make a mutation reproducible from the seed of the current trial.
+	 * @param seed the new seed
+	 */
+	public void setSeed(long seed) {
+		random.setSeed(seed);
+	}
+	
 	public int mutate(Resource resource, GenerationStatus genStatus) {
 		/*
 		 * Possible mutation operators:
@@ -155,122 +127,47 @@ public class ModelMutator {
 		//int idx = random.nextInt(mutationOperators.size());
 		//Mutation selectedMutation = mutationOperators.get(idx);
 		Mutation selectedMutation = getRandomMutation();
-		Command mutationCommand = selectedMutation.getMutationCommand(editingDomain, mutationTargetSelector);
+		int modelSize = mutationTargetSelector.getModelSize();
 		
-		if(!(mutationCommand instanceof IdentityCommand) && mutationCommand.canExecute()) {
-			try {
-				editingDomain.getCommandStack().execute(mutationCommand);
-			}
-			catch(Exception e) {
-				System.err.println(e);
-			}
-			
-			return modelSizeDiff(mutationCommand);
+		journal.beginMutation();
+		try {
+			selectedMutation.mutate(journal, mutationTargetSelector);
 		}
-		else {
+		catch(RuntimeException e) {
+			// Revert the partially applied mutation
+			System.err.println(e);
+			journal.undo();
 			return Integer.MIN_VALUE;
 		}
+		
+		if(!journal.endMutation()) {
+			return Integer.MIN_VALUE;
+		}
+		
+		// The object index follows the changes of the model
+		return mutationTargetSelector.getModelSize() - modelSize;
 	}
 	
-	public boolean undoLastMutation() {
-		if(editingDomain.getCommandStack().canUndo()) {
-			editingDomain.getCommandStack().undo();
-			return true;
-		}
-		return false;
+	/**
+	 * Returns the number of objects of the model mutated last, as kept by the object index.
+	 * @return the model size
+	 */
+	public int getModelSize() {
+		return mutationTargetSelector.getModelSize();
 	}
 	
-	public void flushCommandStack() {
-		editingDomain.getCommandStack().flush();
+	/**
+	 * Undoes the last mutation that has not been undone yet.
+	 * @return {@code true} if a mutation has been undone
+	 */
+	public boolean undoLastMutation() {
+		return journal.undo();
 	}
 	
-	private int modelSizeDiff(Command command) {
-		
-		// Delete Commands (RemoveObjectMutation, ReplaceSubTreeMutation)
-		if(command instanceof CompoundCommand) {
-			
-			int sizeDiff = 0;
-			for(Command cmd : ((CompoundCommand) command).getCommandList()) {
-				sizeDiff += modelSizeDiff(cmd);
-			}
-			return sizeDiff;
-		}
-		
-		// AddObjectMutation, ReplaceSubTreeMutation
-		if(command instanceof AddCommand) {
-			int size = 0; // The object itself, plus the contents as follows
-			for(Object obj : ((AddCommand) command).getCollection()) {
-				assert(obj instanceof EObject);
-				size++;
-				EObject value = (EObject) obj;
-				for(TreeIterator<EObject> it = value.eAllContents(); it.hasNext();) {
-					it.next();
-					size++;
-				}
-				return size;
-			}
-			return 0; // Empty collection?
-		}
-		
-		// AddObjectMutation (single containment refs), ChangeAttributesMutation, UnsetAttributesMutation
-		if(command instanceof SetCommand) {
-			int size = 0;
-			SetCommand setCmd = (SetCommand) command;
-			EStructuralFeature feature = setCmd.getFeature();
-			if(feature instanceof EReference && !((EReference) feature).isContainment()) {
-				return 0;
-			}
-			if(((SetCommand) command).getValue() instanceof EObject) { // AddObjectMutation
-				EObject value = (EObject) ((SetCommand) command).getValue();
-				size++; // the object itself, plus the contents as follows
-				for(TreeIterator<EObject> it = value.eAllContents(); it.hasNext();) {
-					it.next();
-					size++;
-				}
-				return size;
-			}
-			return 0; // Model size unchanged
-		}
-		
-		// Part of DeleteCommand (Remove + Set/Add)
-		if(command instanceof RemoveCommand) {
-			for(Object obj : ((RemoveCommand) command).getCollection()) {
-				assert(obj instanceof EObject);
-				EObject value = (EObject) obj;
-				int size = 1; // the object itself, plus the contents as follows
-				for(TreeIterator<EObject> it = value.eAllContents(); it.hasNext();) {
-					it.next();
-					size++;
-				}
-				return -size; // Objects are removed, so size diff is negative
-			}
-		}
-		
-		if(command instanceof CommandWrapper) {
-			Command wrappedCommand = ((CommandWrapper) command).getCommand();
-			if(wrappedCommand instanceof SetCommand) {
-				SetCommand setCommand = (SetCommand) wrappedCommand;
-				if(setCommand.getValue().equals(SetCommand.UNSET_VALUE)) {
-					Object oldValue = setCommand.getOldValue();
-					if(oldValue instanceof EObject) {
-						EObject removedEObject = (EObject) oldValue;
-						int size = 1; // the object itself, plus the contents as follows
-						for(TreeIterator<EObject> it = removedEObject.eAllContents(); it.hasNext();) {
-							it.next();
-							size++;
-						}
-						return -size;
-					}	
-				}
-				System.err.println("!!!");
-			}
-			else {
-				System.err.println("???");
-				// TODO: HANDLE SUBSETSUPERSET COMMANDS
-			}
-		}
-		
-		// All other mutation operators don't modify the size
-		return 0;
+	/**
+	 * Discards all recorded mutations, which can no longer be undone afterwards.
+	 */
+	public void flushJournal() {
+		journal.flush();
 	}
 }
@@ -7,39 +7,31 @@ import java.text.MessageFormat;
 import java.util.Random;
 
 import org.apache.commons.lang3.RandomStringUtils;
-import org.eclipse.emf.common.command.Command;
-import org.eclipse.emf.common.command.CompoundCommand;
 import org.eclipse.emf.ecore.EAttribute;
 import org.eclipse.emf.ecore.EDataType;
 import org.eclipse.emf.ecore.EEnum;
 import org.eclipse.emf.ecore.EObject;
-import org.eclipse.emf.edit.command.SetCommand;
-import org.eclipse.emf.edit.domain.EditingDomain;
 
 public class ChangeAttributesMutation implements Mutation{
 	
 	@Override
-	public Command getMutationCommand(EditingDomain editingDomain, 
-			MutationTargetSelector targetSelector) {
+	public void mutate(MutationJournal journal, MutationTargetSelector targetSelector) {
 		
 		// Get random object from model
 		EObject targetObject = targetSelector.selectRandomEObject();
 		
-		CompoundCommand command = new CompoundCommand();
-		
 		for(EAttribute eAttribute : targetSelector.getUtil().eAllAttributes(targetObject.eClass())) {
-			command.append(getAttributeMutationCommand(editingDomain, targetSelector.getRandom(), targetObject, eAttribute));
+			mutateAttribute(journal, targetSelector.getRandom(), targetObject, eAttribute);
 		}
-		return command;
 	}
 	
 	/**
-	 * Creates a mutation command to mutate a single attribute.
+	 * Mutates a single attribute.
+	 * @param journal the journal to apply the change
 	 * @param eObject the object to mutate
 	 * @param eAttribute the attribute to mutate
-	 * @return the mutation command
 	 */
-	private Command getAttributeMutationCommand(EditingDomain editingDomain, Random random, 
+	private void mutateAttribute(MutationJournal journal, Random random, 
 			EObject eObject, EAttribute eAttribute) {
 		
 		EDataType eAttributeType = eAttribute.getEAttributeType();
@@ -63,7 +55,7 @@ public class ChangeAttributesMutation implements Mutation{
 			value = nextValue(instanceClass, random);
 		}
 
-		return new SetCommand(editingDomain, eObject, eAttribute, value);
+		journal.set(eObject, eAttribute, value);
 	}
 	
 	protected Object nextValue(Class<?> instanceClass, Random random) {
@@ -2,53 +2,45 @@ package de.hub.mse.emf.mutator.mutation;
 
 import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.Random;
 import java.util.Set;
 
-import org.eclipse.emf.common.command.Command;
-import org.eclipse.emf.common.command.CompoundCommand;
-import org.eclipse.emf.common.command.IdentityCommand;
 import org.eclipse.emf.ecore.EClass;
 import org.eclipse.emf.ecore.EObject;
 import org.eclipse.emf.ecore.EReference;
 import org.eclipse.emf.ecore.util.EContentsEList;
-import org.eclipse.emf.edit.command.SetCommand;
-import org.eclipse.emf.edit.domain.EditingDomain;
 
-import com.google.common.collect.ListMultimap;
+import com.google.common.collect.ImmutableList;
 
-import de.hub.mse.emf.generator.internal.EClassReferencePair;
+import de.hub.mse.emf.generator.internal.SamplingPool;
 
 public class ChangeCrossReferencesMutation implements Mutation{
 		
 	private Random random;
 	
+	/** Reusable pool of the possible targets of the current reference. */
+	private final SamplingPool<EObject> candidateObjects = new SamplingPool<EObject>();
+	
+	/** Sets of valid EClasses by the (cached) lists they were created from. */
+	private final Map<ImmutableList<EClass>, Set<EClass>> validEClassSets = new IdentityHashMap<ImmutableList<EClass>, Set<EClass>>();
+	
 	@Override
-	public Command getMutationCommand(EditingDomain editingDomain, MutationTargetSelector targetSelector) {
+	public void mutate(MutationJournal journal, MutationTargetSelector targetSelector) {
 		this.random = targetSelector.getRandom();
 		
 		List<EObject> allEObjects = targetSelector.getAllObjects();
-		ListMultimap<EClass, EObject> objectIndex = targetSelector.getObjectIndex();
-		CompoundCommand command = new CompoundCommand();
 
 		for(int i = 0; i < allEObjects.size(); i++) {
 			//if(random.nextBoolean()) continue;
-			Command nextCmd = createMutationCommand(allEObjects.get(i),objectIndex, editingDomain, targetSelector);
-			if(nextCmd instanceof IdentityCommand) continue;
-			if(!nextCmd.canUndo()) continue;
-			command.appendIfCanExecute(nextCmd);
-		}
-		
-		if(command.getCommandList().size() > 0) {
-			return command;
+			changeCrossReferences(allEObjects.get(i), journal, targetSelector);
 		}
-		
-		return new IdentityCommand();
 	}
 	
-	private Command createMutationCommand(EObject sourceObject, ListMultimap<EClass, EObject> objectIndex, EditingDomain editingDomain, MutationTargetSelector targetSelector) {
+	private void changeCrossReferences(EObject sourceObject, MutationJournal journal, MutationTargetSelector targetSelector) {
 		
 		// If the object has some set references, change them
 		/*
@@ -90,7 +82,6 @@ public class ChangeCrossReferencesMutation implements Mutation{
 			return command;
 		}
 		*/
-		CompoundCommand command = new CompoundCommand();
 		for(EReference crossReference : targetSelector.getUtil().eAllNonContainment(sourceObject.eClass())) {
 			/*
 			if (!crossReference.isChangeable() || sourceObject.eIsSet(crossReference)) {
@@ -101,16 +92,14 @@ public class ChangeCrossReferencesMutation implements Mutation{
 				continue;
 			}
 			
-			List<EObject> allObjects = new LinkedList<EObject>(objectIndex.get(crossReference.getEReferenceType()));
+			List<EObject> allObjects = targetSelector.getObjectsOfType(crossReference.getEReferenceType());
 
 			if(allObjects.isEmpty()) continue;
 			
 			// Determine valid eClasses
-			EClassReferencePair eClassRefPair = new EClassReferencePair(sourceObject.eClass(), crossReference);
-			HashSet<EClass> validEClassSet = 
-					new HashSet<EClass>(targetSelector.getUtil().eReferenceValidEClasses(eClassRefPair));
+			Set<EClass> validEClassSet = getValidEClassSet(
+					targetSelector.getUtil().eReferenceValidEClasses(sourceObject.eClass(), crossReference));
 			
-			ArrayList<EObject> candidateObjects = new ArrayList<EObject>();
 			for(EObject eObject : allObjects) {
 				if(validEClassSet.contains(eObject.eClass())) {
 					candidateObjects.add(eObject);
@@ -120,16 +109,19 @@ public class ChangeCrossReferencesMutation implements Mutation{
 			
 			if(!candidateObjects.isEmpty()) {
 				int idx = random.nextInt(candidateObjects.size());
-				EObject target = candidateObjects.get(idx);
-				command.append(new SetCommand(editingDomain, sourceObject, crossReference, target));
+				EObject target = candidateObjects.removeAt(idx);
+				journal.set(sourceObject, crossReference, target);
 			}
+			candidateObjects.clear();
 		}
-		
-		if(command.getCommandList().size() > 0) {
-			return command;
-		}
-		else {
-			return new IdentityCommand();
+	}
+	
+	private Set<EClass> getValidEClassSet(ImmutableList<EClass> validEClasses) {
+		Set<EClass> validEClassSet = validEClassSets.get(validEClasses);
+		if(validEClassSet == null) {
+			validEClassSet = new HashSet<EClass>(validEClasses);
+			validEClassSets.put(validEClasses, validEClassSet);
 		}
+		return validEClassSet;
 	}
 }
@@ -1,25 +1,19 @@
 package de.hub.mse.emf.mutator.mutation;
 
-import java.util.Random;
-
-import org.eclipse.emf.common.command.Command;
-import org.eclipse.emf.ecore.EObject;
-import org.eclipse.emf.edit.domain.EditingDomain;
-
-import de.hub.mse.emf.generator.internal.MetamodelUtil;
-
 /**
  * Mutation interface
  * @author Lam
  *
  */
 public interface Mutation {
-	
+
 	/**
-	 * Returns a {@link Command} that can be executed to perform the mutation.
-	 * 
-	 * @param editingDomain EditingDomain to execute mutation on
+	 * Performs the mutation. All changes are applied through the journal, which records them
+	 * so that the mutation can be undone. A mutation that cannot be applied does not change
+	 * anything.
+	 *
+	 * @param journal MutationJournal to apply and record the changes of the mutation
 	 * @param targetSelector MutationTargetSelector to select mutation targets
 	 */
-	public abstract Command getMutationCommand(EditingDomain editingDomain, MutationTargetSelector targetSelector);
+	public abstract void mutate(MutationJournal journal, MutationTargetSelector targetSelector);
 }
@@ -0,0 +1,410 @@
+package de.hub.mse.emf.mutator.mutation;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.emf.common.util.ECollections;
+import org.eclipse.emf.common.util.EList;
+import org.eclipse.emf.common.util.TreeIterator;
+import org.eclipse.emf.ecore.EAnnotation;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.EReference;
+import org.eclipse.emf.ecore.EStructuralFeature;
+import org.eclipse.emf.ecore.EStructuralFeature.Setting;
+import org.eclipse.emf.ecore.InternalEObject;
+import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.emf.ecore.util.EcoreUtil;
+
+/**
+ * Applies the changes of mutations directly to a model and records them, so the mutations can
+ * be undone in reverse order.
+ *
+ * Unlike executing EMF Edit commands on an editing domain, no item providers, command wrappers
+ * or command stack are involved: each change is a single {@code eSet}, {@code eUnset} or list
+ * operation, recorded as a small entry holding the state it replaced. Mutating and undoing
+ * therefore take time proportional to the size of the change.
+ *
+ * The changes of a mutation are delimited by {@link #beginMutation()} and
+ * {@link #endMutation()}, and {@link #undo()} reverts the changes of the last mutation. The
+ * changes mirror the checks of the corresponding commands: a change that the command could not
+ * execute, e.g. of an unchangeable feature, is not applied and reported by returning
+ * {@code false}. Supersets of a changed feature (see the "subsets" annotations of UML), which
+ * are updated implicitly, are recorded as well; derived unions need not be recorded.
+ *
+ * @author Lam
+ *
+ */
+public class MutationJournal {
+
+	/** A recorded change. */
+	private static abstract class Entry {
+		abstract void undo();
+	}
+
+	/** A feature that has been set or unset, restored from its previous value. */
+	private static class SetEntry extends Entry {
+		final EObject owner;
+		final EStructuralFeature feature;
+		/** The previous value, a copy of the list for many-valued features. */
+		final Object oldValue;
+		final boolean wasSet;
+
+		SetEntry(EObject owner, EStructuralFeature feature) {
+			this.owner = owner;
+			this.feature = feature;
+			this.oldValue = feature.isMany() ? new ArrayList<Object>(list(owner, feature)) : owner.eGet(feature, false);
+			this.wasSet = owner.eIsSet(feature);
+		}
+
+		@SuppressWarnings("unchecked")
+		@Override
+		void undo() {
+			if (!wasSet) {
+				owner.eUnset(feature);
+			} else if (feature.isMany()) {
+				// Only moves the elements that have changed, e.g. keeps subsets of the list
+				ECollections.setEList(list(owner, feature), (List<Object>) oldValue);
+			} else {
+				owner.eSet(feature, oldValue);
+			}
+		}
+	}
+
+	/** A value that has been added to a list. */
+	private static class AddEntry extends Entry {
+		final EList<Object> list;
+		final int index;
+		final Object value;
+
+		AddEntry(EList<Object> list, int index, Object value) {
+			this.list = list;
+			this.index = index;
+			this.value = value;
+		}
+
+		@Override
+		void undo() {
+			if (index < list.size() && list.get(index) == value) {
+				list.remove(index);
+			} else {
+				list.remove(value);
+			}
+		}
+	}
+
+	/** A value that has been removed from a list. */
+	private static class RemoveEntry extends Entry {
+		final EList<Object> list;
+		final int index;
+		final Object value;
+
+		RemoveEntry(EList<Object> list, int index, Object value) {
+			this.list = list;
+			this.index = index;
+			this.value = value;
+		}
+
+		@Override
+		void undo() {
+			list.add(Math.min(index, list.size()), value);
+		}
+	}
+
+	/** Source of the annotations referring to the features a feature subsets. */
+	private static final String SUBSETS_ANNOTATION = "subsets";
+
+	private final List<Entry> entries = new ArrayList<Entry>();
+
+	/** The number of entries before each recorded mutation. */
+	private final List<Integer> marks = new ArrayList<Integer>();
+
+	/** Starts recording the changes of a new mutation. */
+	public void beginMutation() {
+		marks.add(entries.size());
+	}
+
+	/**
+	 * Ends recording the changes of the current mutation. A mutation without changes is not
+	 * kept, so it is not undone by {@link #undo()}.
+	 * @return {@code true} if the mutation changed the model
+	 */
+	public boolean endMutation() {
+		int last = marks.size() - 1;
+		if (last < 0) {
+			throw new IllegalStateException("No mutation started");
+		}
+		if (marks.get(last) == entries.size()) {
+			marks.remove(last);
+			return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Reverts the changes of the last recorded mutation, or of the current one if it has not
+	 * been ended, e.g. because it failed.
+	 * @return {@code true} if a mutation has been undone
+	 */
+	public boolean undo() {
+		if (marks.isEmpty()) {
+			return false;
+		}
+		int mark = marks.remove(marks.size() - 1);
+		for (int i = entries.size() - 1; i >= mark; i--) {
+			entries.remove(i).undo();
+		}
+		return true;
+	}
+
+	/** Discards all recorded mutations, which can no longer be undone. */
+	public void flush() {
+		entries.clear();
+		marks.clear();
+	}
+
+	/** Returns the number of recorded mutations that can be undone. */
+	public int getMutationCount() {
+		return marks.size();
+	}
+
+	/** Returns the number of recorded changes. */
+	public int size() {
+		return entries.size();
+	}
+
+	/**
+	 * Sets a feature of an object, like a {@code SetCommand}.
+	 * @param owner   the object to change
+	 * @param feature the feature to set
+	 * @param value   the new value, a collection for many-valued features
+	 * @return {@code true} if the feature has been set
+	 */
+	public boolean set(EObject owner, EStructuralFeature feature, Object value) {
+		if (!isChangeable(owner, feature)) {
+			return false;
+		}
+		if (feature.isMany()) {
+			if (!(value instanceof Collection<?>)) {
+				return false;
+			}
+			for (Object element : (Collection<?>) value) {
+				if (!isValid(feature, element)) {
+					return false;
+				}
+			}
+		} else if (!isValid(feature, value)) {
+			return false;
+		}
+		if (feature instanceof EReference) {
+			if (feature.isMany()) {
+				for (Object element : (Collection<?>) value) {
+					prepareReference((EReference) feature, (EObject) element);
+				}
+			} else if (value != null) {
+				prepareReference((EReference) feature, (EObject) value);
+			}
+		}
+		recordSupersets(owner, feature);
+		SetEntry entry = new SetEntry(owner, feature);
+		owner.eSet(feature, value);
+		entries.add(entry);
+		return true;
+	}
+
+	/**
+	 * Unsets a feature of an object, like a {@code SetCommand} with the unset value.
+	 * @param owner   the object to change
+	 * @param feature the feature to unset
+	 * @return {@code true} if the feature has been unset
+	 */
+	public boolean unset(EObject owner, EStructuralFeature feature) {
+		if (!isChangeable(owner, feature)) {
+			return false;
+		}
+		SetEntry entry = new SetEntry(owner, feature);
+		owner.eUnset(feature);
+		entries.add(entry);
+		return true;
+	}
+
+	/**
+	 * Adds a value to a many-valued feature of an object, like an {@code AddCommand}.
+	 * @param owner   the object to change
+	 * @param feature the many-valued feature
+	 * @param value   the value to add
+	 * @return {@code true} if the value has been added
+	 */
+	public boolean add(EObject owner, EStructuralFeature feature, Object value) {
+		if (!feature.isMany() || !isChangeable(owner, feature) || value == null || !isValid(feature, value)) {
+			return false;
+		}
+		EList<Object> list = list(owner, feature);
+		if (feature.isUnique() && list.contains(value)) {
+			return false;
+		}
+		if (feature instanceof EReference) {
+			prepareReference((EReference) feature, (EObject) value);
+		}
+		recordSupersets(owner, feature);
+		int index = list.size();
+		list.add(value);
+		entries.add(new AddEntry(list, index, value));
+		return true;
+	}
+
+	/**
+	 * Deletes an object along with its contents, like a {@code DeleteCommand}: the object is
+	 * removed from its container, or from the contents of its resource, and all references to
+	 * the deleted objects from the rest of the model (i.e. the resource) are removed.
+	 * @param eObject the object to delete
+	 * @return {@code true} if the object has been deleted
+	 */
+	public boolean delete(EObject eObject) {
+		EObject container = eObject.eContainer();
+		Resource resource = ((InternalEObject) eObject).eDirectResource();
+		if (container == null && resource == null) {
+			return false;
+		}
+
+		List<EObject> deletedEObjects = new ArrayList<EObject>();
+		deletedEObjects.add(eObject);
+		for (TreeIterator<EObject> it = eObject.eAllContents(); it.hasNext();) {
+			deletedEObjects.add(it.next());
+		}
+		Set<EObject> deletedEObjectSet = new HashSet<EObject>(deletedEObjects);
+
+		EObject root = EcoreUtil.getRootContainer(eObject);
+		Map<EObject, Collection<Setting>> usages = root.eResource() != null
+				? EcoreUtil.UsageCrossReferencer.findAll(deletedEObjects, root.eResource())
+				: EcoreUtil.UsageCrossReferencer.findAll(deletedEObjects, root);
+
+		// Record all referencing features before changing any of them, since removing a
+		// reference may implicitly remove others, e.g. from subsets of a list
+		Map<Setting, Boolean> recordedSettings = new IdentityHashMap<Setting, Boolean>();
+		for (Collection<Setting> settings : usages.values()) {
+			for (Setting setting : settings) {
+				EObject referencingEObject = setting.getEObject();
+				EStructuralFeature feature = setting.getEStructuralFeature();
+				if (deletedEObjectSet.contains(referencingEObject) || !feature.isChangeable()
+						|| recordedSettings.put(setting, Boolean.TRUE) != null) {
+					continue;
+				}
+				entries.add(new SetEntry(referencingEObject, feature));
+			}
+		}
+		for (Map.Entry<EObject, Collection<Setting>> usage : usages.entrySet()) {
+			EObject deletedEObject = usage.getKey();
+			for (Setting setting : usage.getValue()) {
+				EObject referencingEObject = setting.getEObject();
+				EStructuralFeature feature = setting.getEStructuralFeature();
+				if (!recordedSettings.containsKey(setting)) {
+					continue;
+				}
+				if (feature.isMany()) {
+					EList<Object> list = list(referencingEObject, feature);
+					while (list.remove(deletedEObject)) {
+						// Remove all occurrences
+					}
+				} else if (referencingEObject.eGet(feature, false) == deletedEObject) {
+					referencingEObject.eUnset(feature);
+				}
+			}
+		}
+
+		detach(eObject);
+		return true;
+	}
+
+	/** Checks whether the feature of the object can be changed. */
+	private static boolean isChangeable(EObject owner, EStructuralFeature feature) {
+		return feature.isChangeable() && owner.eClass().getFeatureID(feature) >= 0;
+	}
+
+	/** Checks whether the value is a valid value (or element) of the feature. */
+	private static boolean isValid(EStructuralFeature feature, Object value) {
+		if (value == null) {
+			Class<?> instanceClass = feature.getEType().getInstanceClass();
+			return instanceClass == null || !instanceClass.isPrimitive();
+		}
+		return feature.getEType().isInstance(value);
+	}
+
+	/**
+	 * Records the changes that EMF applies implicitly when the given object becomes a value of
+	 * the reference: it is removed from its previous container, or from the previous owner of a
+	 * single-valued opposite.
+	 */
+	private void prepareReference(EReference reference, EObject value) {
+		if (reference.isContainment()) {
+			if (value.eContainer() != null || ((InternalEObject) value).eDirectResource() != null) {
+				detach(value);
+			}
+			return;
+		}
+		EReference eOpposite = reference.getEOpposite();
+		if (eOpposite != null && !eOpposite.isMany() && value.eIsSet(eOpposite)) {
+			entries.add(new SetEntry(value, eOpposite));
+		}
+	}
+
+	/**
+	 * Records the supersets of a feature, to which a value set or added to the feature is added
+	 * implicitly, e.g. the member ends of an association when adding an owned end. Derived unions
+	 * are computed from their subsets and are not recorded.
+	 */
+	private void recordSupersets(EObject owner, EStructuralFeature feature) {
+		EAnnotation subsets = feature.getEAnnotation(SUBSETS_ANNOTATION);
+		if (subsets == null) {
+			return;
+		}
+		for (EObject reference : subsets.getReferences()) {
+			if (reference instanceof EStructuralFeature) {
+				EStructuralFeature superset = (EStructuralFeature) reference;
+				if (!superset.isDerived() && isChangeable(owner, superset)) {
+					entries.add(new SetEntry(owner, superset));
+				}
+				recordSupersets(owner, superset);
+			}
+		}
+	}
+
+	/** Removes an object from its container or from the contents of its resource. */
+	private void detach(EObject eObject) {
+		EObject container = eObject.eContainer();
+		if (container == null) {
+			EList<Object> contents = cast(((InternalEObject) eObject).eDirectResource().getContents());
+			remove(contents, eObject);
+			return;
+		}
+		EReference containmentFeature = eObject.eContainmentFeature();
+		if (containmentFeature.isMany()) {
+			remove(list(container, containmentFeature), eObject);
+		} else {
+			SetEntry entry = new SetEntry(container, containmentFeature);
+			container.eUnset(containmentFeature);
+			entries.add(entry);
+		}
+	}
+
+	private void remove(EList<Object> list, Object value) {
+		int index = list.indexOf(value);
+		if (index >= 0) {
+			list.remove(index);
+			entries.add(new RemoveEntry(list, index, value));
+		}
+	}
+
+	private static EList<Object> list(EObject owner, EStructuralFeature feature) {
+		return cast(owner.eGet(feature));
+	}
+
+	@SuppressWarnings("unchecked")
+	private static EList<Object> cast(Object list) {
+		return (EList<Object>) list;
+	}
+}
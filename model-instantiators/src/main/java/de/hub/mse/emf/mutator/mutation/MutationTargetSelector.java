@@ -1,23 +1,23 @@
 package de.hub.mse.emf.mutator.mutation;
 
 import java.util.ArrayList;
-import java.util.LinkedHashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.NoSuchElementException;
 import java.util.Random;
+import java.util.Set;
 
-import org.eclipse.emf.common.util.TreeIterator;
 import org.eclipse.emf.ecore.EClass;
 import org.eclipse.emf.ecore.EObject;
 import org.eclipse.emf.ecore.EReference;
 import org.eclipse.emf.ecore.resource.Resource;
 
-import com.google.common.collect.ArrayListMultimap;
 import com.google.common.collect.ImmutableList;
-import com.google.common.collect.ListMultimap;
 
 import de.hub.mse.emf.generator.cgf.MetamodelCoverage;
-import de.hub.mse.emf.generator.internal.EClassReferencePair;
 import de.hub.mse.emf.generator.internal.MetamodelUtil;
+import de.hub.mse.emf.generator.internal.ObjectIndex;
+import de.hub.mse.emf.generator.internal.WeightedEObjectSampler;
 
 /**
  * The MutationTargetSelector is responsible for selecting suitable targets in
@@ -33,21 +33,21 @@ public class MutationTargetSelector {
 
 	private Random random;
 
-	private Resource modelResource;
-	
-	private ListMultimap<EClass, EObject> objectIndex;
-	
-	private boolean indexValid;
+	/** The objects of the model, kept up to date while the model is mutated. */
+	private final ObjectIndex objectIndex = new ObjectIndex();
 
 	private MetamodelCoverage metamodelCoverage;
 
+	/** Draws objects weighted by the global counts of their classes. */
+	private final WeightedEObjectSampler weightedSampler;
+
 	public MutationTargetSelector(Random random, Resource modelResource, MetamodelUtil metamodelUtil,
 			MetamodelCoverage metamodelCoverage) {
-		this.modelResource = modelResource;
 		this.metamodelUtil = metamodelUtil;
 		this.metamodelCoverage = metamodelCoverage;
 		this.random = random;
-		this.indexValid = false;
+		this.weightedSampler = new WeightedEObjectSampler(objectIndex, metamodelCoverage);
+		this.objectIndex.setResource(modelResource);
 	}
 
 	/**
@@ -57,15 +57,26 @@ public class MutationTargetSelector {
 	 * @param modelResource the resource containing the model
 	 */
 	public void setModelResource(Resource modelResource) {
-		this.modelResource = modelResource;
+		this.objectIndex.setResource(modelResource);
 	}
 	
+	/**
+	 * Returns all objects of the model. The returned list is a copy, which does not change
+	 * when the model is mutated while iterating over it.
+	 * 
+	 * @return the objects of the model
+	 */
 	public List<EObject> getAllObjects(){
-		List<EObject> allEObjects = new ArrayList<EObject>();
-		for(TreeIterator<EObject> it = modelResource.getAllContents(); it.hasNext();) {
-			allEObjects.add(it.next());
-		}
-		return allEObjects;
+		return new ArrayList<EObject>(objectIndex.getObjects());
+	}
+
+	/**
+	 * Returns the number of objects in the model.
+	 * 
+	 * @return the model size
+	 */
+	public int getModelSize() {
+		return objectIndex.size();
 	}
 
 	/**
@@ -95,90 +106,65 @@ public class MutationTargetSelector {
 		return this.metamodelCoverage;
 	}
 	
-	public ListMultimap<EClass, EObject> getObjectIndex(){
-		if(!indexValid) {
-			objectIndex = ArrayListMultimap.create();
-			for(TreeIterator<EObject> it = modelResource.getAllContents(); it.hasNext();) {
-				EObject eObject = it.next();
-				EClass eClass = eObject.eClass();
-				objectIndex.put(eClass, eObject);
-				for (EClass eSuperType : eClass.getEAllSuperTypes()) {
-					objectIndex.put(eSuperType, eObject);
-				}
-			}
-			//indexValid = true; FIXME
-		}
-		return objectIndex;
-	}
-	
-	public void invalidateIndex() {
-		indexValid = false;
+	/**
+	 * Returns the objects of the model whose class is the given class or one of its
+	 * subclasses. The returned list changes with the model.
+	 * 
+	 * @param eClass the type of the objects
+	 * @return the objects of the given type
+	 */
+	public List<EObject> getObjectsOfType(EClass eClass) {
+		return objectIndex.getObjectsOfType(eClass);
 	}
 
 	/**
-	 * Select a random object from the whole model. Implements the reservoir
-	 * sampling algorithm for space efficiency.
-	 * 
-	 * TODO Cache model sizes to draw a random number and get the object in a single
-	 * pass.
+	 * Select a random object from the whole model.
 	 * 
-	 * @param modelResource
 	 * @return the selected object
 	 */
 	public EObject selectRandomEObject() {
-		TreeIterator<EObject> it = modelResource.getAllContents();
-		EObject result = it.next();
-
-		for (int i = 1; it.hasNext(); i++) {
-
-			// Sample with decreasing probability
-			// If the sampled number is 0, replace value
-			int j = random.nextInt(i + 1);
-			if (j == 0) {
-				result = it.next();
-			} else {
-				it.next();
-			}
+		List<EObject> allEObjects = objectIndex.getObjects();
+		if (allEObjects.isEmpty()) {
+			throw new NoSuchElementException("The model is empty");
 		}
-		return result;
+		return allEObjects.get(random.nextInt(allEObjects.size()));
 	}
 
 	/**
-	 * Select multiple random objects from the model by using reservoir sampling.
+	 * Select multiple distinct random objects from the model. If the model has fewer
+	 * objects, all of them are selected and the remaining slots are filled with random
+	 * ones among them.
 	 * 
 	 * @param n the number of objects to select
 	 * @return the array containing the selected objects
 	 */
 	public EObject[] selectEObjects(int n) {
 		EObject[] selectedEObjects = new EObject[n];
+		List<EObject> allEObjects = objectIndex.getObjects();
+		int size = allEObjects.size();
 
-		TreeIterator<EObject> it = modelResource.getAllContents();
-		for (int i = 0; i < n; i++) {
-			if (it.hasNext()) {
-				selectedEObjects[i] = it.next();
-			} else {
-				// No more elements to choose from, select a random existing one
-				selectedEObjects[i] = selectedEObjects[random.nextInt(i)];
+		if (size <= n) {
+			for (int i = 0; i < n; i++) {
+				if (i < size) {
+					selectedEObjects[i] = allEObjects.get(i);
+				} else {
+					// No more elements to choose from, select a random existing one
+					selectedEObjects[i] = selectedEObjects[random.nextInt(i)];
+				}
 			}
-		}
-
-		// No more elements
-		if (!it.hasNext()) {
 			return selectedEObjects;
 		}
 
-		for (int i = n; it.hasNext(); i++) {
-
-			// Pick random number from 0 to i
-			int j = random.nextInt(i + 1);
-
-			// If the randomly selected index is smaller than n,
-			// replace with next object
-			if (j < n) {
-				selectedEObjects[j] = it.next();
-			} else {
-				it.next();
+		// Floyd's algorithm: n distinct indices with n random numbers
+		Set<Integer> selectedIndices = new HashSet<Integer>();
+		int k = 0;
+		for (int i = size - n; i < size; i++) {
+			int idx = random.nextInt(i + 1);
+			if (!selectedIndices.add(idx)) {
+				idx = i;
+				selectedIndices.add(i);
 			}
+			selectedEObjects[k++] = allEObjects.get(idx);
 		}
 		return selectedEObjects;
 	}
@@ -188,89 +174,18 @@ public class MutationTargetSelector {
 	 * Metaclass-to-count-map. In particular, it favors objects that have been
 	 * observed less frequently over all models.
 	 * 
+	 * The class weights are maintained across calls and mutations (see
+	 * {@link WeightedEObjectSampler}), so each draw takes logarithmic time.
+	 * 
 	 * @param numObjects             the number of objects to draw
-	 * @param eClassCountMap         a map mapping {@link EClass}es to frequency
-	 *                               counts
 	 * @param prioritizeHigherCounts whether to prioritize objects from classes that
 	 *                               have higher frequency counts
 	 * @return the list of selected objects
 	 */
 	public ArrayList<EObject> selectWeightedEObjects(int numObjects, boolean prioritizeHigherCounts) {
-		// 1. Determine the EClasses that occur in the model
-		// LinkedHashSet<EClass> eClassesInModel = new LinkedHashSet<EClass>();
-		// TODO this should be precomputed
-		LinkedHashMap<EClass, ArrayList<EObject>> classIndex = new LinkedHashMap<EClass, ArrayList<EObject>>();
-
-		for (TreeIterator<EObject> it = modelResource.getAllContents(); it.hasNext();) {
-			EObject curEObject = it.next();
-			if (classIndex.containsKey(curEObject.eClass())) {
-				classIndex.get(curEObject.eClass()).add(curEObject);
-			} else {
-				ArrayList<EObject> eObjectList = new ArrayList<EObject>();
-				eObjectList.add(curEObject);
-				classIndex.put(curEObject.eClass(), eObjectList);
-			}
-		}
-
-		// 2. Get counts for each EClass and compute absolute frequency
-		// as a representation of the discrete cumulative density function (CDF)
-		double[] absoluteCounts = new double[classIndex.size()];
-		double[] cumulativeCounts = new double[classIndex.size()];
-		EClass[] eClasses = new EClass[classIndex.size()];
-
-		int i = 0;
-		double sum = 0;
-
-		// Compute cumulative counts and store EClasses for fast access later
-		// LinkedHashSet guarantees that the iteration order is the same as the
-		// insertion order
-		for (EClass eClass : classIndex.keySet()) {
-			eClasses[i] = eClass;
-
-			double count = metamodelCoverage.getEClassCount(eClass);
-
-			// Prioritize lower counts by inverting them, assign 1 to 0-counts
-			// TODO: Actually we should never encounter any 0-counts at all
-			if (!prioritizeHigherCounts) {
-				count = count != 0 ? 1 / count : 1;
-			}
-
-			absoluteCounts[i] = count;
-			cumulativeCounts[i] = sum + count;
-			sum += count;
-			i++;
-		}
-
-		// 3. Now that we have our frequency distribution, draw objects randomly
-		ArrayList<EObject> selectedEObjects = new ArrayList<EObject>();
+		ArrayList<EObject> selectedEObjects = new ArrayList<EObject>(numObjects);
 		for (int j = 0; j < numObjects; j++) {
-			// Draw random number and select EClass based on CDF
-			// int x = random.nextInt(sum);
-			double x = random.nextDouble() * sum;
-
-			// To find our sampled EClass, we have to find the first index i
-			// in our CDF where CDF[i] > x, since x lies in that interval
-			// We do that with binary search
-			int lower = 0;
-			int upper = classIndex.size() - 1;
-
-			int idx = 0;
-			while (upper >= lower) {
-				idx = (lower + upper) / 2;
-				if (cumulativeCounts[idx] < x) {
-					// Too low, search in upper half
-					lower = idx + 1;
-				} else if (cumulativeCounts[idx] - absoluteCounts[idx] > x) {
-					// Too high, search in lower half
-					upper = idx - 1;
-				} else {
-					break;
-				}
-			}
-
-			ArrayList<EObject> eObjectsForClass = classIndex.get(eClasses[idx]);
-			EObject selectedEObject = eObjectsForClass.get(random.nextInt(eObjectsForClass.size()));
-			selectedEObjects.add(selectedEObject);
+			selectedEObjects.add(weightedSampler.select(prioritizeHigherCounts, random));
 		}
 		return selectedEObjects;
 	}
@@ -303,8 +218,7 @@ public class MutationTargetSelector {
 	public EClass selectUncoveredReferenceType(EClass eClass, EReference eReference) {
 		ArrayList<EClass> uncoveredEClasses = new ArrayList<EClass>();
 
-		EClassReferencePair pair = new EClassReferencePair(eClass, eReference);
-		ImmutableList<EClass> allEClasses = metamodelUtil.eReferenceValidEClasses(pair);
+		ImmutableList<EClass> allEClasses = metamodelUtil.eReferenceValidEClasses(eClass, eReference);
 
 		if (allEClasses.isEmpty()) {
 			return null;
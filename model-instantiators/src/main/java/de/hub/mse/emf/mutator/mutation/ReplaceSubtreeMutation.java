@@ -1,20 +1,12 @@
 package de.hub.mse.emf.mutator.mutation;
 
-import java.util.Collections;
 import java.util.HashSet;
 import java.util.Set;
 
-import org.eclipse.emf.common.command.Command;
-import org.eclipse.emf.common.command.CompoundCommand;
-import org.eclipse.emf.common.command.IdentityCommand;
 import org.eclipse.emf.common.util.TreeIterator;
 import org.eclipse.emf.ecore.EClass;
 import org.eclipse.emf.ecore.EObject;
 import org.eclipse.emf.ecore.EReference;
-import org.eclipse.emf.edit.command.AddCommand;
-import org.eclipse.emf.edit.command.DeleteCommand;
-import org.eclipse.emf.edit.command.SetCommand;
-import org.eclipse.emf.edit.domain.EditingDomain;
 
 import de.hub.mse.emf.generator.ModelGenerator;
 
@@ -38,20 +30,14 @@ public class ReplaceSubtreeMutation implements Mutation{
 	}
 	
 	@Override
-	public Command getMutationCommand(EditingDomain editingDomain, MutationTargetSelector targetSelector) {
+	public void mutate(MutationJournal journal, MutationTargetSelector targetSelector) {
 				
 		// Select target to replace
 		EObject targetObject = targetSelector.selectWeightedEObjects(1, false).get(0);
 		EObject container = targetObject.eContainer();
 		
 		if(container == null) {
-			return new IdentityCommand();
-		}
-		
-		DeleteCommand deleteCommand = new DeleteCommand(editingDomain, Collections.singleton(targetObject));
-		
-		if(!deleteCommand.canExecute()) {
-			return new IdentityCommand();
+			return;
 		}
 		
 		/*
@@ -81,24 +67,22 @@ public class ReplaceSubtreeMutation implements Mutation{
 
 		
 		if(subModel == null) {
-			return new IdentityCommand();
+			return;
 		}
 		
-		// We have all ingredients, now compose command
-		CompoundCommand command = new CompoundCommand();
-		command.append(deleteCommand);
+		// We have all ingredients, now replace the subtree
+		journal.delete(targetObject);
 		
 		if(containmentRef.isMany()) {
-			command.append(new AddCommand(editingDomain, container, containmentRef, subModel));
+			journal.add(container, containmentRef, subModel);
 		}
 		else {
-			command.append(new SetCommand(editingDomain, container, containmentRef, subModel));
+			journal.set(container, containmentRef, subModel);
 		}
 		
 		for(EClass eClass : containedEClasses) {
 			targetSelector.getMetamodelCoverage().addTempCoveredEClass(eClass);
 		}
-		return command;
 	}
 
 }
@@ -11,13 +11,9 @@
 
 package fr.inria.atlanmod.instantiator;
 
-import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
-import java.util.LinkedHashSet;
-import java.util.LinkedList;
-import java.util.List;
 import java.util.Map;
 import java.util.Random;
 import java.util.Set;
@@ -262,79 +258,7 @@ public class GenericMetamodelConfig implements ISpecimenConfiguration {
 
 	@Override
 	public ImmutableSet<EClass> possibleRootEClasses() {
-		List<EClass> eClasses = new LinkedList<EClass>();
-		// creating a subtypes map
-		Map<EClass,Set<EClass>> eSubtypesMap = computeSubtypesMap();
-		
-		// Eclasses.filter( instance of EClass && not abstract && not interface) 
-		for (Iterator<EObject> it = metamodelResource.getAllContents(); it.hasNext();) {
-			EObject eObject = (EObject) it.next();
-			if (eObject instanceof EClass) {
-				EClass eClass = (EClass) eObject;
-				if (!eClass.isAbstract() && !eClass.isInterface()) {
-					eClasses.add(eClass);
-					}
-			}
-		}
-		
-		//copying the list of eClasses 
-		List <EClass> result = new LinkedList<EClass>(eClasses);
-//		Collections.copy(result , eClasses);
-		
-		// iterating eClasses and removing elements (along with subtypes) being 
-		// subject to a container reference 
-		for (EClass cls : eClasses ) {
-			for (EReference cont : cls.getEAllContainments()) {
-				Set<EClass> list = eSubtypesClosure(eSubtypesMap, (EClass)cont.getEType());
-				if (list.size() == 0) {
-					result.remove((EClass)cont.getEType());
-				} else {
-					result.removeAll(list); 
-					}
-			}
-		}
-		
-		return ImmutableSet.copyOf(result);
-	}
-
-	@SuppressWarnings("unchecked")
-	private Set<EClass> eSubtypesClosure(Map<EClass, Set<EClass>> eSubtypesMap, EClass eType) {
-		Set<EClass> result = new LinkedHashSet<EClass> ();
-			if (!eSubtypesMap.containsKey(eType)) {
-				return Collections.EMPTY_SET;
-			} else {
-				result.addAll(eSubtypesMap.get(eType));
-				for (EClass eSubType : eSubtypesMap.get(eType)) {
-					if (! eSubType.equals(eType)) 
-						result.addAll(eSubtypesClosure(eSubtypesMap, eSubType));
-				}
-			}
-		return result;
-	}
-
-
-	private Map<EClass, Set <EClass>> computeSubtypesMap() {
-		Map<EClass, Set<EClass>> result = new HashMap<EClass, Set<EClass>> (); 
-		Iterator<EObject> iter = metamodelResource.getAllContents();
-		
-		 for (EObject ecls = null ;  iter.hasNext(); ) {
-			 ecls = iter.next();
-			 if (ecls instanceof EClass) {
-				 EClass clazz = (EClass) ecls;
-				 for (EClass cls : clazz.getEAllSuperTypes()) {
-					 if (result.containsKey(cls)) {
-						 result.get(cls).add(clazz);
-					 } else {
-						 Set<EClass> list = new HashSet<EClass>();
-						 list.add(cls);
-						 list.add(clazz);
-						 result.put(cls, list);
-					 }
-				 }
-			 }
-		 }
-			 
-		return result;
+		return metamodelResource.getEClassHierarchy().getPossibleRootEClasses();
 	}
 
 
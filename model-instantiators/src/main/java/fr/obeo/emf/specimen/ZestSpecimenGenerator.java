@@ -47,6 +47,7 @@ import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.ListMultimap;
 import com.pholser.junit.quickcheck.random.SourceOfRandomness;
 
+import de.hub.mse.emf.generator.internal.SamplingPool;
 import fr.inria.atlanmod.instantiator.ZestMetamodelConfig;
 import fr.obeo.emf.specimen.internal.EPackagesData;
 
@@ -140,6 +141,9 @@ public class ZestSpecimenGenerator {
 		LOGGER.info(MessageFormat.format("Generation finished for resource ''{0}''", resource.getURI()));
 	}
 
+	/** Reusable pool of the values that can still be assigned to a many-valued reference. */
+	private final SamplingPool<EObject> valuePool = new SamplingPool<EObject>();
+
 	/**
 	 * @param eObject
 	 * @param indexByKind
@@ -154,12 +158,19 @@ public class ZestSpecimenGenerator {
 				List<Object> values = (List<Object>) eObject.eGet(eReference);
 				int sample = configuration.getDistributionFor(eReference, random);
 				LOGGER.fine(MessageFormat.format("Generating {0} values for EReference ''{1}'' in EObject {2}", sample, eReference.getName(), eObject.toString()));
-				for (int i = 0; i < sample; i++) {
-					List<EObject> possibleValues = indexByKind.get(eReferenceType);
-					if (!possibleValues.isEmpty()) {
-						final EObject nextEObject = possibleValues.get(randomGenerator.nextInt(possibleValues.size()));
+				if (eReference.isUnique()) {
+					// Draw distinct values, duplicates would be rejected anyway
+					valuePool.addAll(indexByKind.get(eReferenceType));
+					for (int i = 0; i < sample && !valuePool.isEmpty(); i++) {
+						final EObject nextEObject = valuePool.removeAt(randomGenerator.nextInt(valuePool.size()));
 						values.add(nextEObject);
 					}
+					valuePool.clear();
+				} else {
+					List<EObject> possibleValues = indexByKind.get(eReferenceType);
+					for (int i = 0; i < sample && !possibleValues.isEmpty(); i++) {
+						values.add(possibleValues.get(randomGenerator.nextInt(possibleValues.size())));
+					}
 				}
 			} else {
 				if (eReference.isRequired() || random.nextBoolean()) {
@@ -0,0 +1,102 @@
+package de.hub.mse.emf.generator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.eclipse.emf.common.util.TreeIterator;
+import org.eclipse.emf.ecore.EClass;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.EReference;
+import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.emf.ecore.resource.ResourceSet;
+import org.eclipse.emf.ecore.resource.impl.ResourceSetImpl;
+import org.eclipse.emf.ecore.util.EcoreUtil;
+import org.eclipse.uml2.uml.UMLPackage;
+import org.eclipse.uml2.uml.resource.UMLResource;
+import org.junit.Before;
+import org.junit.Test;
+
+import de.hub.mse.emf.generator.internal.GenerationMetrics;
+import de.hub.mse.emf.generator.internal.MetamodelResource;
+import de.hub.mse.emf.generator.internal.MetamodelUtil;
+
+public class BatchModelGeneratorTest {
+	private ModelGenerationConfigImpl config;
+	private MetamodelUtil metamodelUtil;
+	private long[] seeds;
+
+	@Before
+	public void setUp() {
+		config = new ModelGenerationConfigImpl(new MetamodelResource(UMLPackage.eINSTANCE),
+				UMLPackage.Literals.MODEL, new HashSet<EClass>(), 200, 10, 10, 10);
+		metamodelUtil = new MetamodelUtil(config.ePackages(), config.ignoredEClasses(), config.getEClassWhitelist());
+
+		Random random = new Random(2024);
+		seeds = new long[32];
+		for (int i = 0; i < seeds.length; i++) {
+			seeds[i] = random.nextLong();
+		}
+	}
+
+	/**
+	 * The same seeds yield the same models and the same coverage, whether the models are
+	 * generated one after another or concurrently.
+	 */
+	@Test
+	public void testDeterminism() throws Exception {
+		try (BatchModelGenerator sequential = new BatchModelGenerator(config, metamodelUtil, this::createResourceSet, 1);
+				BatchModelGenerator parallel = new BatchModelGenerator(config, metamodelUtil, this::createResourceSet, 4)) {
+			List<Resource> expected = sequential.generate(seeds);
+			List<Resource> actual = parallel.generate(seeds);
+
+			assertEquals(seeds.length, actual.size());
+			for (int i = 0; i < seeds.length; i++) {
+				EObject expectedModel = expected.get(i).getContents().get(0);
+				EObject actualModel = actual.get(i).getContents().get(0);
+				assertTrue("Model " + i + " differs", EcoreUtil.equals(expectedModel, actualModel));
+				assertEquals(coveredEClasses(expectedModel), coveredEClasses(actualModel));
+				assertEquals(coveredEContainmentRefs(expectedModel), coveredEContainmentRefs(actualModel));
+			}
+
+			GenerationMetrics.Snapshot expectedMetrics = sequential.getMetrics().snapshot();
+			GenerationMetrics.Snapshot actualMetrics = parallel.getMetrics().snapshot();
+			for (GenerationMetrics.Counter counter : GenerationMetrics.Counter.values()) {
+				assertEquals(counter.key, expectedMetrics.get(counter), actualMetrics.get(counter));
+			}
+			for (int i = 0; i < GenerationMetrics.MODEL_SIZE_BOUNDS.length; i++) {
+				assertEquals(expectedMetrics.getModelSizeCount(i), actualMetrics.getModelSizeCount(i));
+			}
+		}
+	}
+
+	private ResourceSet createResourceSet() {
+		ResourceSetImpl resourceSet = new ResourceSetImpl();
+		resourceSet.getPackageRegistry().put(UMLPackage.eNS_URI, UMLPackage.eINSTANCE);
+		resourceSet.getResourceFactoryRegistry().getExtensionToFactoryMap().put(UMLResource.FILE_EXTENSION, UMLResource.Factory.INSTANCE);
+		return resourceSet;
+	}
+
+	/** The classes instantiated in a model, which the generator records as covered. */
+	private static Set<EClass> coveredEClasses(EObject model) {
+		Set<EClass> eClasses = new HashSet<EClass>();
+		eClasses.add(model.eClass());
+		for (TreeIterator<EObject> it = model.eAllContents(); it.hasNext();) {
+			eClasses.add(it.next().eClass());
+		}
+		return eClasses;
+	}
+
+	/** The containment references used in a model, which the generator records as covered. */
+	private static Set<EReference> coveredEContainmentRefs(EObject model) {
+		Set<EReference> eReferences = new HashSet<EReference>();
+		for (TreeIterator<EObject> it = model.eAllContents(); it.hasNext();) {
+			eReferences.add(it.next().eContainmentFeature());
+		}
+		return eReferences;
+	}
+}
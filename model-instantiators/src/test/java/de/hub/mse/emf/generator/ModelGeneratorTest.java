@@ -1,7 +1,271 @@
 package de.hub.mse.emf.generator;
 
+import static com.google.common.collect.Iterables.get;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.eclipse.emf.common.util.URI;
+import org.eclipse.emf.ecore.EClass;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.EPackage;
+import org.eclipse.emf.ecore.EReference;
+import org.eclipse.emf.ecore.EcoreFactory;
 import org.eclipse.emf.ecore.EcorePackage;
+import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.emf.ecore.resource.impl.ResourceSetImpl;
+import org.eclipse.emf.ecore.util.EcoreUtil;
+import org.eclipse.uml2.uml.UMLPackage;
+import org.eclipse.uml2.uml.resource.UMLResource;
+import org.junit.Test;
+
+import com.google.common.base.Optional;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ListMultimap;
+import com.pholser.junit.quickcheck.random.SourceOfRandomness;
+
+import de.hub.mse.emf.generator.internal.GenerationMetrics.Counter;
+import de.hub.mse.emf.generator.internal.MetamodelResource;
 
 public class ModelGeneratorTest {
 	EcorePackage ecorePackage = EcorePackage.eINSTANCE;
+
+	/**
+	 * A chain of more than a thousand nested objects is generated on a thread with a
+	 * small stack, i.e. the depth of the containment tree is not limited by the call stack.
+	 */
+	@Test
+	public void testDeepModel() throws InterruptedException {
+		// A metamodel of nodes, each optionally containing another node
+		EPackage ePackage = EcoreFactory.eINSTANCE.createEPackage();
+		ePackage.setName("deep");
+		ePackage.setNsPrefix("deep");
+		ePackage.setNsURI("http://mofuzz/test/deep");
+		ePackage.setEFactoryInstance(EcoreFactory.eINSTANCE.createEFactory());
+		final EClass node = EcoreFactory.eINSTANCE.createEClass();
+		node.setName("Node");
+		EReference child = EcoreFactory.eINSTANCE.createEReference();
+		child.setName("child");
+		child.setEType(node);
+		child.setContainment(true);
+		node.getEStructuralFeatures().add(child);
+		ePackage.getEClassifiers().add(node);
+
+		final int depth = 1500;
+		final ModelGenerator generator = new ModelGenerator(new ModelGenerationConfigImpl(
+				new MetamodelResource(ePackage), node, new HashSet<EClass>(), 10 * depth, depth, 1, 10));
+		final AtomicReference<EObject> model = new AtomicReference<EObject>();
+		final AtomicReference<Throwable> error = new AtomicReference<Throwable>();
+		Thread thread = new Thread(null, new Runnable() {
+			@Override
+			public void run() {
+				try {
+					model.set(generator.generateSubModel(new Random(7), node, depth, 1, 10 * depth,
+							new HashSet<EClass>()));
+				} catch (Throwable e) {
+					error.set(e);
+				}
+			}
+		}, "deep-model-generator", 256 * 1024);
+		thread.start();
+		thread.join();
+
+		assertNull(String.valueOf(error.get()), error.get());
+		int generatedDepth = 0;
+		for (EObject eObject = model.get(); eObject.eContents().size() == 1; eObject = eObject.eContents().get(0)) {
+			generatedDepth++;
+		}
+		assertTrue("Depth " + generatedDepth, generatedDepth >= 1000);
+	}
+
+	/**
+	 * The worklist in {@link ModelGenerator#generateEObject} makes the same random draws
+	 * in the same order as the former recursive implementation, so the same seeds yield
+	 * the same models.
+	 */
+	@Test
+	public void testSameModelsAsRecursiveGeneration() {
+		ModelGenerationConfigImpl config = new ModelGenerationConfigImpl(new MetamodelResource(UMLPackage.eINSTANCE),
+				UMLPackage.Literals.MODEL, new HashSet<EClass>(), 200, 10, 10, 10);
+		ModelGenerator generator = new ModelGenerator(config);
+		ModelGenerator recursiveGenerator = new RecursiveModelGenerator(config);
+
+		Random seeds = new Random(2024);
+		for (int i = 0; i < 32; i++) {
+			long seed = seeds.nextLong();
+			Resource expected = createResource();
+			Resource actual = createResource();
+			recursiveGenerator.generate(expected, new SourceOfRandomness(new Random(seed)), null);
+			generator.generate(actual, new SourceOfRandomness(new Random(seed)), null);
+			assertTrue("Model " + i + " differs", EcoreUtil.equals(expected.getContents(), actual.getContents()));
+		}
+	}
+
+	private static Resource createResource() {
+		ResourceSetImpl resourceSet = new ResourceSetImpl();
+		resourceSet.getPackageRegistry().put(UMLPackage.eNS_URI, UMLPackage.eINSTANCE);
+		resourceSet.getResourceFactoryRegistry().getExtensionToFactoryMap().put(UMLResource.FILE_EXTENSION,
+				UMLResource.Factory.INSTANCE);
+		return resourceSet.createResource(URI.createURI("model." + UMLResource.FILE_EXTENSION));
+	}
+
+	/**
+	 * Generates the containment tree by recursive method calls, as {@link ModelGenerator}
+	 * did before it used a worklist.
+	 */
+	private static class RecursiveModelGenerator extends ModelGenerator {
+
+		RecursiveModelGenerator(IModelGenerationConfig config) {
+			super(config);
+		}
+
+		@Override
+		protected Optional<EObject> generateEObject(EClass eClass, ListMultimap<EClass, EObject> indexByKind,
+				SourceOfRandomness random) {
+			EObject eObject = newEObject(eClass, indexByKind, random);
+			generateEContainmentReferences(eObject, eClass, indexByKind, random);
+			return Optional.fromNullable(eObject);
+		}
+
+		private void generateEContainmentReferences(EObject eObject, EClass eClass,
+				ListMultimap<EClass, EObject> indexByKind, SourceOfRandomness random) {
+			List<EReference> allContainmentReferences = new ArrayList<EReference>();
+			List<EReference> uncoveredContainmentReferences = new ArrayList<EReference>();
+
+			for (EReference eReference : metamodelUtil.eAllContainment(eClass)) {
+				if (eReference.isRequired()) {
+					generateEContainmentReference(eObject, eReference, indexByKind, random);
+					continue;
+				} else if (metamodelUtil.useWhitelist()
+						&& !metamodelUtil.isWhitelistedOrSuperType(eReference.getEReferenceType())) {
+					continue;
+				}
+				if (!metamodelCoverage.isCovered(eReference) || !coveredEReferences.contains(eReference)) {
+					uncoveredContainmentReferences.add(eReference);
+				}
+				allContainmentReferences.add(eReference);
+			}
+
+			if (allContainmentReferences.size() == 0) {
+				return;
+			}
+
+			int breadth = maxBreadth != -1 ? maxBreadth : config.getBreadthFor(eClass, random) + 1;
+			for (int i = 0; i < breadth; i++) {
+				if ((currentObjectCount < goalObjectCount && currentDepth <= currentMaxDepth)) {
+					if (!uncoveredContainmentReferences.isEmpty()) {
+						int idx = random.nextInt(uncoveredContainmentReferences.size());
+						generateEContainmentReference(eObject, uncoveredContainmentReferences.get(idx), indexByKind,
+								random);
+					} else {
+						int idx = random.nextInt(allContainmentReferences.size());
+						EReference eReference = allContainmentReferences.get(idx);
+						if (!eReference.isMany() && eObject.eIsSet(eReference)) {
+							continue;
+						}
+						generateEContainmentReference(eObject, eReference, indexByKind, random);
+					}
+				}
+			}
+		}
+
+		private void generateEContainmentReference(EObject eObject, EReference eReference,
+				ListMultimap<EClass, EObject> indexByKind, SourceOfRandomness random) {
+			currentDepth++;
+
+			ImmutableList<EClass> eAllConcreteSubTypeOrSelf;
+			if (useValidityCache) {
+				eAllConcreteSubTypeOrSelf = metamodelUtil.eReferenceValidEClasses(eObject.eClass(), eReference);
+			} else {
+				eAllConcreteSubTypeOrSelf = metamodelUtil.eAllConcreteSubTypeOrSelf(eReference);
+			}
+
+			if (!eAllConcreteSubTypeOrSelf.isEmpty()) {
+				List<EClass> uncoveredEClasses = new ArrayList<EClass>();
+				for (EClass eClass : eAllConcreteSubTypeOrSelf) {
+					if (!metamodelCoverage.isCovered(eClass)) {
+						uncoveredEClasses.add(eClass);
+					}
+				}
+				if (eReference.isMany()) {
+					generateManyContainmentReference(eObject, eReference, indexByKind, eAllConcreteSubTypeOrSelf,
+							uncoveredEClasses, random);
+				} else {
+					generateSingleContainmentReference(eObject, eReference, indexByKind, eAllConcreteSubTypeOrSelf,
+							uncoveredEClasses, random);
+				}
+			}
+
+			currentDepth--;
+		}
+
+		private void generateSingleContainmentReference(EObject eObject, EReference eReference,
+				ListMultimap<EClass, EObject> indexByKind, ImmutableList<EClass> eAllConcreteSubTypesOrSelf,
+				List<EClass> uncoveredEClasses, SourceOfRandomness random) {
+			if (!eReference.isRequired() && coveredEReferences.contains(eReference) && uncoveredEClasses.isEmpty()
+					&& random.nextBoolean()) {
+				return;
+			}
+			metrics.increment(Counter.SINGLE_CONTAINMENT_REFS);
+
+			try {
+				EClass nextEClass;
+				if (!uncoveredEClasses.isEmpty()) {
+					nextEClass = get(uncoveredEClasses, random.nextInt(uncoveredEClasses.size()));
+				} else {
+					nextEClass = get(eAllConcreteSubTypesOrSelf, random.nextInt(eAllConcreteSubTypesOrSelf.size()));
+				}
+				Optional<EObject> nextEObject = generateEObject(nextEClass, indexByKind, random);
+				if (nextEObject.isPresent()) {
+					eObject.eSet(eReference, nextEObject.get());
+					metrics.increment(Counter.SINGLE_CONTAINMENT_REF_SUCCESS);
+				} else {
+					metrics.increment(Counter.SINGLE_CONTAINMENT_REF_FAIL);
+				}
+				return;
+			} catch (IllegalArgumentException e) {
+				metrics.increment(Counter.ILLEGAL_ARGUMENT_EXCEPTIONS);
+			}
+			metrics.increment(Counter.SINGLE_CONTAINMENT_REF_FAIL);
+		}
+
+		private void generateManyContainmentReference(EObject eObject, EReference eReference,
+				ListMultimap<EClass, EObject> indexByKind, ImmutableList<EClass> eAllConcreteSubTypesOrSelf,
+				List<EClass> uncoveredEClasses, SourceOfRandomness random) {
+			@SuppressWarnings("unchecked")
+			List<EObject> values = (List<EObject>) eObject.eGet(eReference);
+			int childCount = maxBreadth != -1 ? maxBreadth : config.getElementCountFor(eReference, random);
+			childCount = Math.max(Math.min(uncoveredEClasses.size(), 1), childCount);
+
+			for (int i = 0; i < childCount; i++) {
+				metrics.increment(Counter.MANY_CONTAINMENT_REFS);
+				EClass nextEClass;
+				if (!uncoveredEClasses.isEmpty()) {
+					nextEClass = get(uncoveredEClasses, randomGenerator.nextInt(uncoveredEClasses.size()));
+				} else {
+					nextEClass = get(eAllConcreteSubTypesOrSelf,
+							randomGenerator.nextInt(eAllConcreteSubTypesOrSelf.size()));
+				}
+				Optional<EObject> nextEObject = generateEObject(nextEClass, indexByKind, random);
+				if (nextEObject.isPresent()) {
+					try {
+						values.add(nextEObject.get());
+						metrics.increment(Counter.MANY_CONTAINMENT_REF_SUCCESS);
+						coveredEClasses.add(nextEClass);
+						coveredEReferences.add(eReference);
+						uncoveredEClasses.remove(nextEClass);
+					} catch (ArrayStoreException e) {
+						metrics.increment(Counter.ARRAY_STORE_EXCEPTIONS);
+					}
+				} else {
+					metrics.increment(Counter.MANY_CONTAINMENT_REF_FAIL);
+				}
+			}
+		}
+	}
 }
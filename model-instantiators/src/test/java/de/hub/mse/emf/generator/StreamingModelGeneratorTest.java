@@ -0,0 +1,60 @@
+package de.hub.mse.emf.generator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Random;
+
+import org.eclipse.emf.common.util.URI;
+import org.eclipse.emf.ecore.EClass;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.emf.ecore.resource.impl.ResourceSetImpl;
+import org.eclipse.uml2.uml.UMLPackage;
+import org.eclipse.uml2.uml.resource.UMLResource;
+import org.junit.Test;
+
+import com.pholser.junit.quickcheck.random.SourceOfRandomness;
+
+import de.hub.mse.emf.generator.internal.MetamodelResource;
+
+public class StreamingModelGeneratorTest {
+
+	/**
+	 * The written XMI loads back as a UML model with exactly the objects the generator has
+	 * written, and all cross-references refer to written objects.
+	 */
+	@Test
+	public void testRoundTrip() throws IOException {
+		ModelGenerationConfigImpl config = new ModelGenerationConfigImpl(new MetamodelResource(UMLPackage.eINSTANCE),
+				UMLPackage.Literals.MODEL, new HashSet<EClass>(), 500, 10, 10, 10);
+		StreamingModelGenerator generator = new StreamingModelGenerator(config, 100);
+
+		Random seeds = new Random(2024);
+		for (int i = 0; i < 16; i++) {
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			generator.generate(out, new SourceOfRandomness(new Random(seeds.nextLong())));
+
+			ResourceSetImpl resourceSet = new ResourceSetImpl();
+			resourceSet.getPackageRegistry().put(UMLPackage.eNS_URI, UMLPackage.eINSTANCE);
+			resourceSet.getResourceFactoryRegistry().getExtensionToFactoryMap().put(UMLResource.FILE_EXTENSION,
+					UMLResource.Factory.INSTANCE);
+			Resource resource = resourceSet.createResource(URI.createURI("model_" + i + "." + UMLResource.FILE_EXTENSION));
+			assertTrue(resource instanceof UMLResource);
+			resource.load(new ByteArrayInputStream(out.toByteArray()), null);
+
+			assertTrue("Model " + i + ": " + resource.getErrors(), resource.getErrors().isEmpty());
+			assertEquals(1, resource.getContents().size());
+			int objectCount = 0;
+			for (Iterator<EObject> it = resource.getAllContents(); it.hasNext(); it.next()) {
+				objectCount++;
+			}
+			assertEquals("Model " + i, generator.getWrittenObjectCount(), objectCount);
+		}
+	}
+}
@@ -1,7 +1,13 @@
 package de.hub.mse.emf.generator.cgf;
 
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
 import java.util.Random;
 
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.emf.ecore.util.EcoreUtil;
 import org.junit.Test;
 
 import com.pholser.junit.quickcheck.generator.GenerationStatus;
@@ -32,4 +38,38 @@ public class CoverageGuidedUMLGeneratorTest {
 		}
 		System.out.println("");
 	}
+	
+	@Test
+	public void testUndoMutations() {
+		CoverageGuidedUMLGenerator generator = new CoverageGuidedUMLGenerator();
+		SourceOfRandomness random = new SourceOfRandomness(new Random(24));
+		ModelGenerationStatus genStatus = new ModelGenerationStatus(generator);
+		genStatus.setUndoMutations(true);
+		
+		while(!generator.isMutationPhase()) {
+			generator.generate(random, genStatus);
+			generator.saveInput(random.nextInt(1000));
+		}
+		
+		// All children of a parent are produced from the parent itself, without copying it
+		Resource previous = null;
+		for(int j = 0; j < 1000; j++) {
+			Resource child = generator.generate(random, genStatus);
+			if(genStatus.getCurrentChildCount() > 1) {
+				assertSame(previous, child);
+			}
+			previous = child;
+		}
+		
+		// Undoing a mutation restores the parent
+		UMLModelProvider modelProvider = new UMLModelProvider();
+		Resource parent = modelProvider.generate(random, genStatus);
+		for(int j = 0; j < 200; j++) {
+			EObject copy = EcoreUtil.copy(parent.getContents().get(0));
+			if(modelProvider.mutate(parent, random, genStatus) != Integer.MIN_VALUE) {
+				modelProvider.undoLastMutation();
+			}
+			assertTrue("Mutation " + j + " not undone", EcoreUtil.equals(copy, parent.getContents().get(0)));
+		}
+	}
 }
@@ -0,0 +1,87 @@
+package de.hub.mse.emf.generator.internal;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.HashSet;
+import java.util.List;
+
+import org.eclipse.emf.ecore.EClass;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.emf.ecore.resource.impl.ResourceImpl;
+import org.eclipse.uml2.uml.Model;
+import org.eclipse.uml2.uml.Package;
+import org.eclipse.uml2.uml.UMLFactory;
+import org.eclipse.uml2.uml.UMLPackage;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableList;
+
+public class CandidateIndexTest {
+
+	private static final ImmutableList<EClass> CLASSES = ImmutableList.of(UMLPackage.Literals.CLASS);
+
+	private static final ImmutableList<EClass> PACKAGES = ImmutableList.of(UMLPackage.Literals.PACKAGE);
+
+	/**
+	 * Moving a subtree out of the model and back updates exactly the entries of the subtree,
+	 * and the index matches an index built from scratch.
+	 */
+	@Test
+	public void testUpdateAfterMove() {
+		Resource resource = new ResourceImpl();
+		Model model = UMLFactory.eINSTANCE.createModel();
+		resource.getContents().add(model);
+		Package p1 = model.createNestedPackage("p1");
+		Package p2 = model.createNestedPackage("p2");
+		org.eclipse.uml2.uml.Class c1 = p1.createOwnedClass("C1", false);
+		org.eclipse.uml2.uml.Class c2 = p2.createOwnedClass("C2", false);
+		Package detached = UMLFactory.eINSTANCE.createPackage();
+
+		CandidateIndex index = new CandidateIndex(UMLPackage.Literals.MODEL);
+		index.reset(resource);
+		assertEquals(set(c1, c2), new HashSet<EObject>(index.getCandidates(CLASSES)));
+		assertEquals(set(p1, p2), new HashSet<EObject>(index.getCandidates(PACKAGES)));
+
+		// Move p1 (and c1) out of the model
+		detached.getNestedPackages().add(p1);
+		index.update(p1);
+		assertEquals(set(c2), new HashSet<EObject>(index.getCandidates(CLASSES)));
+		assertEquals(set(p2), new HashSet<EObject>(index.getCandidates(PACKAGES)));
+		assertSameAsRebuilt(index, resource);
+
+		// Move c1 into the model again
+		p2.getPackagedElements().add(c1);
+		index.update(c1);
+		assertEquals(set(c1, c2), new HashSet<EObject>(index.getCandidates(CLASSES)));
+		assertEquals(set(p2), new HashSet<EObject>(index.getCandidates(PACKAGES)));
+		assertSameAsRebuilt(index, resource);
+
+		// Move within the model
+		model.getNestedPackages().add(p1);
+		index.update(p1);
+		p1.getPackagedElements().add(c2);
+		index.update(c2);
+		assertEquals(set(c1, c2), new HashSet<EObject>(index.getCandidates(CLASSES)));
+		assertEquals(set(p1, p2), new HashSet<EObject>(index.getCandidates(PACKAGES)));
+		assertSameAsRebuilt(index, resource);
+	}
+
+	private static void assertSameAsRebuilt(CandidateIndex index, Resource resource) {
+		CandidateIndex rebuilt = new CandidateIndex(UMLPackage.Literals.MODEL);
+		rebuilt.reset(resource);
+		for (ImmutableList<EClass> validEClasses : ImmutableList.of(CLASSES, PACKAGES)) {
+			List<EObject> candidates = index.getCandidates(validEClasses);
+			assertEquals(candidates.size(), new HashSet<EObject>(candidates).size());
+			assertEquals(new HashSet<EObject>(rebuilt.getCandidates(validEClasses)), new HashSet<EObject>(candidates));
+		}
+	}
+
+	private static HashSet<EObject> set(EObject... eObjects) {
+		HashSet<EObject> set = new HashSet<EObject>();
+		for (EObject eObject : eObjects) {
+			set.add(eObject);
+		}
+		return set;
+	}
+}
@@ -0,0 +1,70 @@
+package de.hub.mse.emf.generator.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+public class FenwickTreeTest {
+
+	@Test
+	public void testFind() {
+		FenwickTree tree = new FenwickTree(2);
+		tree.set(0, 1);
+		tree.set(2, 0);
+		tree.set(3, 2);
+		tree.set(9, 3); // grows
+		assertEquals(6, tree.total(), 1e-9);
+
+		assertEquals(0, tree.find(0));
+		assertEquals(0, tree.find(0.99));
+		assertEquals(3, tree.find(1));
+		assertEquals(3, tree.find(2.99));
+		assertEquals(9, tree.find(3));
+		assertEquals(9, tree.find(6)); // upper bound is clamped
+
+		tree.set(9, 0);
+		assertEquals(3, tree.total(), 1e-9);
+		assertEquals(3, tree.find(2.5));
+
+		tree.clear();
+		assertEquals(0, tree.total(), 1e-9);
+		assertEquals(-1, tree.find(0));
+	}
+
+	@Test
+	public void testSampling() {
+		FenwickTree tree = new FenwickTree();
+		Random random = new Random(42);
+		double[] weights = new double[100];
+
+		// Many updates, so the tree is rebuilt several times
+		for (int i = 0; i < 10000; i++) {
+			int idx = random.nextInt(weights.length);
+			weights[idx] = random.nextInt(4) == 0 ? 0 : random.nextDouble();
+			tree.set(idx, weights[idx]);
+		}
+		double sum = 0;
+		for (int i = 0; i < weights.length; i++) {
+			assertEquals(weights[i], tree.get(i), 0);
+			sum += weights[i];
+		}
+		assertEquals(sum, tree.total(), 1e-9);
+
+		int[] counts = new int[weights.length];
+		int samples = 200000;
+		for (int i = 0; i < samples; i++) {
+			counts[tree.find(random.nextDouble() * tree.total())]++;
+		}
+		for (int i = 0; i < weights.length; i++) {
+			double expected = samples * weights[i] / sum;
+			if (weights[i] == 0) {
+				assertEquals(0, counts[i]);
+			} else {
+				assertTrue(Math.abs(counts[i] - expected) < 5 * Math.sqrt(expected) + 5);
+			}
+		}
+	}
+}
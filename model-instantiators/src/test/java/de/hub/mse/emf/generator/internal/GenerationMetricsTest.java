@@ -0,0 +1,85 @@
+package de.hub.mse.emf.generator.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import de.hub.mse.emf.generator.internal.GenerationMetrics.Counter;
+
+public class GenerationMetricsTest {
+
+	@Test
+	public void testConcurrentUpdates() throws InterruptedException {
+		final GenerationMetrics metrics = new GenerationMetrics();
+		Thread[] threads = new Thread[4];
+		for (int t = 0; t < threads.length; t++) {
+			threads[t] = new Thread(() -> {
+				for (int i = 0; i < 10000; i++) {
+					metrics.increment(Counter.SINGLE_CROSS_REFS);
+					if (i % 2 == 0) {
+						metrics.increment(Counter.SINGLE_CROSS_REF_SUCCESS);
+					}
+				}
+			});
+			threads[t].start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+
+		GenerationMetrics.Snapshot snapshot = metrics.snapshot();
+		assertEquals(40000, snapshot.get(Counter.SINGLE_CROSS_REFS));
+		assertEquals(20000, snapshot.get(Counter.SINGLE_CROSS_REF_SUCCESS));
+		assertEquals(0.5, snapshot.getRate(Counter.SINGLE_CROSS_REF_SUCCESS, Counter.SINGLE_CROSS_REFS), 1e-9);
+		assertEquals(0.0, snapshot.getRate(Counter.MANY_CROSS_REF_SUCCESS, Counter.MANY_CROSS_REFS), 1e-9);
+	}
+
+	@Test
+	public void testModelSizes() {
+		GenerationMetrics metrics = new GenerationMetrics();
+		metrics.addModelSize(1);
+		metrics.addModelSize(9);
+		metrics.addModelSize(150);
+		metrics.addModelSize(5000);
+
+		GenerationMetrics.Snapshot snapshot = metrics.snapshot();
+		assertEquals(1, snapshot.getModelSizeCount(0));
+		assertEquals(1, snapshot.getModelSizeCount(1));
+		assertEquals(1, snapshot.getModelSizeCount(3));
+		assertTrue(snapshot.toJson().contains("\"model_sizes\": [1, 1, 0, 1, 0"));
+
+		metrics.reset();
+		assertEquals(0, metrics.snapshot().getModelSizeCount(0));
+	}
+
+	@Test
+	public void testCsvDump() throws Exception {
+		GenerationMetrics metrics = new GenerationMetrics();
+		File file = File.createTempFile("metrics", ".csv");
+		file.deleteOnExit();
+
+		try (GenerationMetrics.Dump dump = metrics.startDump(file, 1, TimeUnit.HOURS)) {
+			metrics.increment(Counter.MODELS);
+			metrics.addModelSize(150);
+		}
+
+		List<String> lines = Files.readAllLines(file.toPath());
+		assertEquals(2, lines.size());
+		assertEquals(GenerationMetrics.Snapshot.toCsvHeader(), lines.get(0));
+		assertEquals(lines.get(0).split(",").length, lines.get(1).split(",").length);
+		assertEquals("1", lines.get(1).split(", ")[1]);
+
+		// The model size distribution follows the counters
+		List<String> header = Arrays.asList(lines.get(0).split(", "));
+		String[] row = lines.get(1).split(", ");
+		assertEquals("1", row[header.indexOf("model_size_lt_200")]);
+		assertEquals("0", row[header.indexOf("model_size_lt_100")]);
+	}
+}
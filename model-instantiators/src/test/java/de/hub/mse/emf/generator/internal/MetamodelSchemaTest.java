@@ -0,0 +1,138 @@
+package de.hub.mse.emf.generator.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashSet;
+import java.util.Iterator;
+
+import org.eclipse.emf.ecore.EAttribute;
+import org.eclipse.emf.ecore.EClass;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.EPackage;
+import org.eclipse.emf.ecore.EReference;
+import org.eclipse.emf.ecore.EcoreFactory;
+import org.eclipse.emf.ecore.EcorePackage;
+import org.eclipse.emf.ecore.util.EcoreUtil;
+import org.eclipse.uml2.uml.UMLPackage;
+import org.eclipse.uml2.uml.UMLPackage.Literals;
+import org.junit.Before;
+import org.junit.Test;
+
+import de.hub.mse.emf.generator.ModelGenerationConfigImpl;
+
+public class MetamodelSchemaTest {
+
+	private ModelGenerationConfigImpl config;
+
+	@Before
+	public void setUp() {
+		UMLPackage.eINSTANCE.eClass();
+		EcoreUtil.resolveAll(UMLPackage.eINSTANCE);
+		MetamodelResource metamodelResource = new MetamodelResource(UMLPackage.eINSTANCE);
+		config = new ModelGenerationConfigImpl(metamodelResource, Literals.MODEL, new HashSet<EClass>(), 500, 10, 10, 10);
+	}
+
+	private MetamodelUtil newMetamodelUtil() {
+		return new MetamodelUtil(config.ePackages(), config.ignoredEClasses(), config.getEClassWhitelist());
+	}
+
+	@Test
+	public void testIds() {
+		MetamodelSchema schema = newMetamodelUtil().getSchema();
+
+		// Every class of the metamodel has a distinct id, which maps back to the class
+		int numEClasses = 0;
+		for (EPackage ePackage : config.ePackages()) {
+			for (Iterator<EObject> it = ePackage.eAllContents(); it.hasNext();) {
+				EObject eObject = it.next();
+				if (eObject instanceof EClass) {
+					EClass eClass = (EClass) eObject;
+					int id = schema.getId(eClass);
+					assertTrue(eClass.getName(), id >= 0 && id < schema.getIdCount());
+					assertSame(eClass, schema.getEClass(id));
+					numEClasses++;
+				}
+			}
+		}
+		int numIds = 0;
+		for (int id = 0; id < schema.getIdCount(); id++) {
+			EClass eClass = schema.getEClass(id);
+			if (eClass != null) {
+				assertEquals(id, schema.getId(eClass));
+				numIds++;
+			}
+		}
+		assertEquals(numEClasses, numIds);
+	}
+
+	@Test
+	public void testEClassesOutsideMetamodel() {
+		MetamodelUtil metamodelUtil = newMetamodelUtil();
+		MetamodelSchema schema = metamodelUtil.getSchema();
+
+		// A class of another package, with a classifier id that is also used by a UML class
+		EClass eClass = EcorePackage.Literals.ECLASS;
+		assertEquals(-1, schema.getId(eClass));
+		assertEquals(metamodelUtil.loadEAllAttributes(eClass), schema.eAllAttributes(eClass));
+		assertEquals(metamodelUtil.loadEAllContainment(eClass), schema.eAllContainment(eClass));
+		assertEquals(metamodelUtil.loadEAllNonContainment(eClass), schema.eAllNonContainment(eClass));
+		EReference eReference = EcorePackage.Literals.ECLASS__ESUPER_TYPES;
+		assertEquals(metamodelUtil.loadEReferenceValidEClasses(new EClassReferencePair(eClass, eReference)),
+				schema.eReferenceValidEClasses(eClass, eReference));
+		assertEquals(metamodelUtil.loadEAllConcreteSubTypeOrSelf(eReference),
+				schema.eAllConcreteSubTypeOrSelf(eReference));
+
+		// A class without a package
+		EClass dynamicEClass = EcoreFactory.eINSTANCE.createEClass();
+		EAttribute eAttribute = EcoreFactory.eINSTANCE.createEAttribute();
+		eAttribute.setName("name");
+		eAttribute.setEType(EcorePackage.Literals.ESTRING);
+		dynamicEClass.getEStructuralFeatures().add(eAttribute);
+		assertEquals(-1, schema.getId(dynamicEClass));
+		assertEquals(1, schema.eAllAttributes(dynamicEClass).size());
+		assertTrue(schema.eAllContainment(dynamicEClass).isEmpty());
+	}
+
+	/**
+	 * The tables are filled on first use and answer like the caches of a separate
+	 * {@link MetamodelUtil}, i.e. like the lookups before the schema was introduced.
+	 * The valid target classes are probed for every fourth class only, to keep the test short.
+	 */
+	@Test
+	public void testLazyCells() {
+		MetamodelSchema schema = newMetamodelUtil().getSchema();
+		MetamodelUtil reference = newMetamodelUtil();
+
+		for (int id = 0; id < schema.getIdCount(); id++) {
+			EClass eClass = schema.getEClass(id);
+			if (eClass == null) {
+				continue;
+			}
+			assertEquals(reference.loadEAllAttributes(eClass), schema.eAllAttributes(eClass));
+			assertEquals(reference.loadEAllContainment(eClass), schema.eAllContainment(eClass));
+			assertEquals(reference.loadEAllNonContainment(eClass), schema.eAllNonContainment(eClass));
+			if (!schema.isConcrete(id) || id % 4 != 0) {
+				continue;
+			}
+			for (EReference eReference : schema.getReferences(id)) {
+				int featureId = eClass.getFeatureID(eReference);
+				assertNull(schema.getComputedValidEClasses(id, featureId));
+
+				Object validEClasses = schema.eReferenceValidEClasses(eClass, eReference);
+				assertEquals(eClass.getName() + "." + eReference.getName(),
+						reference.loadEReferenceValidEClasses(new EClassReferencePair(eClass, eReference)),
+						validEClasses);
+				assertNotNull(schema.getComputedValidEClasses(id, featureId));
+				assertSame(validEClasses, schema.eReferenceValidEClasses(eClass, eReference));
+
+				assertEquals(reference.loadEAllConcreteSubTypeOrSelf(eReference),
+						schema.eAllConcreteSubTypeOrSelf(eReference));
+				assertSame(schema.eAllConcreteSubTypeOrSelf(eReference), schema.eAllConcreteSubTypeOrSelf(eReference));
+			}
+		}
+	}
+}
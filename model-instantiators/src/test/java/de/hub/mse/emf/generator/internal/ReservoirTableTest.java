@@ -0,0 +1,61 @@
+package de.hub.mse.emf.generator.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+public class ReservoirTableTest {
+
+	@Test
+	public void testBoundedSample() {
+		ReservoirTable<String, Integer> table = new ReservoirTable<String, Integer>(10);
+		Random random = new Random(42);
+		for (int i = 0; i < 1000; i++) {
+			table.add(i % 2 == 0 ? "even" : "odd", i, random);
+		}
+		table.add("single", -1, random);
+
+		List<Integer> even = table.get("even");
+		assertEquals(10, even.size());
+		assertEquals(500, table.getCount("even"));
+		assertEquals(10, new HashSet<Integer>(even).size());
+		for (int value : even) {
+			assertTrue(value % 2 == 0);
+		}
+		assertEquals(1, table.get("single").size());
+		assertTrue(table.get("none").isEmpty());
+
+		table.clear();
+		assertTrue(table.get("even").isEmpty());
+		assertEquals(0, table.getCount("even"));
+	}
+
+	@Test
+	public void testUniformSample() {
+		// Each of the 100 values is retained with probability 1/10
+		int[] retained = new int[100];
+		Random random = new Random(7);
+		for (int run = 0; run < 2000; run++) {
+			ReservoirTable<String, Integer> table = new ReservoirTable<String, Integer>(10);
+			for (int i = 0; i < 100; i++) {
+				table.add("key", i, random);
+			}
+			for (int value : table.get("key")) {
+				retained[value]++;
+			}
+		}
+		Set<Integer> rare = new HashSet<Integer>();
+		for (int i = 0; i < 100; i++) {
+			if (retained[i] < 120 || retained[i] > 280) {
+				rare.add(i);
+			}
+		}
+		assertTrue("Not uniform: " + rare, rare.isEmpty());
+	}
+}
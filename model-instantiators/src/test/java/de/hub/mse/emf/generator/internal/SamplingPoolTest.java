@@ -0,0 +1,68 @@
+package de.hub.mse.emf.generator.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+public class SamplingPoolTest {
+
+	@Test
+	public void testSamplingWithoutReplacement() {
+		SamplingPool<Object> pool = new SamplingPool<Object>();
+		Random random = new Random(42);
+		Object[] candidates = new Object[100];
+		for (int i = 0; i < candidates.length; i++) {
+			candidates[i] = new Object();
+		}
+		Object removed = candidates[50];
+
+		for (int round = 0; round < 3; round++) {
+			pool.clear();
+			for (Object candidate : candidates) {
+				pool.add(candidate);
+			}
+			assertTrue(pool.remove(removed));
+			assertFalse(pool.remove(removed));
+
+			// Every candidate is drawn exactly once
+			Set<Object> drawn = Collections.newSetFromMap(new IdentityHashMap<Object, Boolean>());
+			while (!pool.isEmpty()) {
+				assertTrue(drawn.add(pool.removeAt(random.nextInt(pool.size()))));
+			}
+			assertEquals(99, drawn.size());
+			assertFalse(drawn.contains(removed));
+		}
+	}
+
+	@Test
+	public void testRemoveByIdentity() {
+		SamplingPool<String> pool = new SamplingPool<String>();
+		String a = new String("a");
+		pool.add(a);
+
+		// An equal, but distinct candidate is not removed
+		assertFalse(pool.remove(new String("a")));
+		assertEquals(1, pool.size());
+		assertTrue(pool.remove(a));
+		assertTrue(pool.isEmpty());
+	}
+
+	@Test
+	public void testRemove() {
+		SamplingPool<String> pool = new SamplingPool<String>();
+		pool.addAll(Arrays.asList("a", "b", "c"));
+		String b = pool.removeAt(1);
+		assertEquals("b", b);
+		assertEquals(2, pool.size());
+		assertFalse(pool.remove("x"));
+		assertEquals(2, pool.size());
+	}
+}
@@ -0,0 +1,121 @@
+package de.hub.mse.emf.generator.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.HashSet;
+import java.util.List;
+
+import org.eclipse.emf.ecore.EClass;
+import org.eclipse.emf.ecore.EReference;
+import org.eclipse.emf.ecore.util.EcoreUtil;
+import org.eclipse.uml2.uml.UMLPackage;
+import org.eclipse.uml2.uml.UMLPackage.Literals;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableSet;
+
+import de.hub.mse.emf.generator.ModelGenerationConfigImpl;
+
+public class ValidityCacheFileTest {
+
+	private ModelGenerationConfigImpl config;
+
+	@Before
+	public void setUp() {
+		UMLPackage.eINSTANCE.eClass();
+		EcoreUtil.resolveAll(UMLPackage.eINSTANCE);
+		MetamodelResource metamodelResource = new MetamodelResource(UMLPackage.eINSTANCE);
+		config = new ModelGenerationConfigImpl(metamodelResource, Literals.MODEL, new HashSet<EClass>(), 500, 10, 10, 10);
+	}
+
+	private MetamodelUtil newMetamodelUtil() {
+		return new MetamodelUtil(config.ePackages(), config.ignoredEClasses(), config.getEClassWhitelist());
+	}
+
+	@Test
+	public void testRoundTrip() throws IOException {
+		File cacheFile = File.createTempFile("validity", ".cache");
+		cacheFile.delete();
+		cacheFile.deleteOnExit();
+
+		// First run: probe all references and save them
+		MetamodelUtil probed = newMetamodelUtil();
+		assertFalse(ValidityCacheFile.load(cacheFile, probed.getSchema()));
+		assertTrue(probed.warmUpValidityCache(cacheFile, 4));
+		assertTrue(cacheFile.isFile());
+
+		// The temporary file has been moved to the cache file
+		File[] tmpFiles = cacheFile.getParentFile().listFiles(
+				(dir, name) -> name.startsWith(cacheFile.getName()) && name.endsWith(".tmp"));
+		assertEquals(0, tmpFiles.length);
+
+		// Second run: load the cache, which must yield the same valid EClasses
+		MetamodelUtil loaded = newMetamodelUtil();
+		assertTrue(ValidityCacheFile.load(cacheFile, loaded.getSchema()));
+		MetamodelSchema schema = loaded.getSchema();
+		for (int id = 0; id < schema.getIdCount(); id++) {
+			if (!schema.isConcrete(id)) {
+				continue;
+			}
+			EClass eClass = schema.getEClass(id);
+			for (EReference eReference : schema.getReferences(id)) {
+				assertNotNull(schema.getComputedValidEClasses(id, eClass.getFeatureID(eReference)));
+				assertEquals(probed.eReferenceValidEClasses(eClass, eReference),
+						loaded.eReferenceValidEClasses(eClass, eReference));
+			}
+		}
+	}
+
+	@Test
+	public void testOutdatedCache() throws IOException {
+		File cacheFile = File.createTempFile("validity", ".cache");
+		cacheFile.deleteOnExit();
+		MetamodelUtil metamodelUtil = newMetamodelUtil();
+		ValidityCacheFile.save(cacheFile, metamodelUtil.getSchema());
+
+		// A different signature invalidates the file
+		List<String> lines = Files.readAllLines(cacheFile.toPath());
+		for (int i = 0; i < lines.size(); i++) {
+			if (lines.get(i).startsWith("signature ")) {
+				lines.set(i, "signature 0");
+			}
+		}
+		Files.write(cacheFile.toPath(), lines);
+		assertFalse(ValidityCacheFile.load(cacheFile, metamodelUtil.getSchema()));
+	}
+
+	@Test
+	public void testCopyValidEClasses() {
+		MetamodelUtil probed = newMetamodelUtil();
+		assertTrue(probed.warmUpValidityCache(null, 4));
+
+		// Another instance of the same metamodel takes over the probed references
+		MetamodelUtil copied = newMetamodelUtil();
+		assertTrue(copied.getSchema().copyValidEClasses(probed.getSchema()));
+		MetamodelSchema schema = copied.getSchema();
+		for (int id = 0; id < schema.getIdCount(); id++) {
+			if (!schema.isConcrete(id)) {
+				continue;
+			}
+			EClass eClass = schema.getEClass(id);
+			for (EReference eReference : schema.getReferences(id)) {
+				int featureId = eClass.getFeatureID(eReference);
+				assertSame(probed.getSchema().getComputedValidEClasses(id, featureId),
+						schema.getComputedValidEClasses(id, featureId));
+			}
+		}
+
+		// A schema with a different whitelist does not match
+		MetamodelUtil whitelisted = new MetamodelUtil(config.ePackages(), config.ignoredEClasses(),
+				ImmutableSet.of(Literals.MODEL, Literals.CLASS));
+		assertFalse(whitelisted.getSchema().copyValidEClasses(probed.getSchema()));
+	}
+}
@@ -0,0 +1,73 @@
+package de.hub.mse.emf.generator.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+import com.pholser.junit.quickcheck.random.SourceOfRandomness;
+
+public class ValuePoolTest {
+
+	@Test
+	public void testPrimitives() {
+		ValuePool pool = new ValuePool(64, 8, 1L);
+		SourceOfRandomness random = new SourceOfRandomness(new Random(42));
+
+		Set<Object> ints = new HashSet<Object>();
+		for (int i = 0; i < 10000; i++) {
+			ints.add(pool.nextPrimitive(int.class, random));
+		}
+		assertTrue(ints.contains(Integer.MIN_VALUE));
+		assertTrue(ints.contains(Integer.MAX_VALUE));
+		assertTrue(ints.contains(0));
+		assertTrue(ints.size() > 32);
+
+		assertTrue(pool.nextPrimitive(double.class, random) instanceof Double);
+		assertTrue(pool.nextPrimitive(char.class, random) instanceof Character);
+		assertTrue(pool.nextPrimitive(boolean.class, random) instanceof Boolean);
+		assertNull(pool.nextPrimitive(String.class, random));
+	}
+
+	@Test
+	public void testXmlChars() {
+		ValuePool pool = new ValuePool(1024, 8, 1L);
+		SourceOfRandomness random = new SourceOfRandomness(new Random(42));
+
+		for (int i = 0; i < 10000; i++) {
+			char c = (Character) pool.nextPrimitive(char.class, random);
+			assertTrue(Integer.toHexString(c), ValuePool.isXmlChar(c));
+		}
+	}
+
+	@Test
+	public void testStrings() {
+		ValuePool pool = new ValuePool(16, 8, 1L);
+		SourceOfRandomness random = new SourceOfRandomness(new Random(42));
+		assertEquals("", pool.nextString(0, random));
+		for (int length = 1; length <= 20; length++) {
+			String value = pool.nextString(length, random);
+			assertEquals(length, value.length());
+			assertTrue(value.matches("[a-zA-Z0-9]*"));
+		}
+	}
+
+	@Test
+	public void testDeterministic() {
+		ValuePool pool = new ValuePool();
+		ValuePool other = new ValuePool();
+		SourceOfRandomness random = new SourceOfRandomness(new Random(7));
+		SourceOfRandomness otherRandom = new SourceOfRandomness(new Random(7));
+		for (int i = 0; i < 100; i++) {
+			assertEquals(pool.nextPrimitive(long.class, random), other.nextPrimitive(long.class, otherRandom));
+			// Pooled strings are shared rather than allocated
+			assertSame(pool.nextString(5, random), other.nextString(5, otherRandom));
+		}
+	}
+}
@@ -0,0 +1,157 @@
+package de.hub.mse.emf.mutator.mutation;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+
+import org.eclipse.emf.common.util.URI;
+import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.emf.ecore.resource.impl.ResourceSetImpl;
+import org.eclipse.uml2.uml.UMLFactory;
+import org.eclipse.uml2.uml.UMLPackage;
+import org.eclipse.uml2.uml.resource.UMLResource;
+import org.junit.Before;
+import org.junit.Test;
+
+public class MutationJournalTest {
+	private Resource modelResource;
+	private org.eclipse.uml2.uml.Model model;
+	private org.eclipse.uml2.uml.Class clazz;
+	private org.eclipse.uml2.uml.Class type;
+	private org.eclipse.uml2.uml.Property property;
+	private MutationJournal journal;
+
+	@Before
+	public void setUp() {
+		ResourceSetImpl resourceSet = new ResourceSetImpl();
+		resourceSet.getPackageRegistry().put(UMLPackage.eNS_URI, UMLPackage.eINSTANCE);
+		resourceSet.getResourceFactoryRegistry().getExtensionToFactoryMap().put(UMLResource.FILE_EXTENSION, UMLResource.Factory.INSTANCE);
+
+		/* Create our model:
+		 *
+		 *  Model
+		 *    |--- Class
+		 *    |		|--- Property (typed by Type)
+		 *    |--- Type
+		 */
+		modelResource = resourceSet.createResource(URI.createFileURI("mutationJournalTest" + ".uml"));
+		model = UMLFactory.eINSTANCE.createModel();
+		clazz = UMLFactory.eINSTANCE.createClass();
+		type = UMLFactory.eINSTANCE.createClass();
+		property = UMLFactory.eINSTANCE.createProperty();
+		model.getPackagedElements().add(clazz);
+		model.getPackagedElements().add(type);
+		clazz.getOwnedAttributes().add(property);
+		property.setType(type);
+		modelResource.getContents().add(model);
+
+		journal = new MutationJournal();
+	}
+
+	@Test
+	public void testUndoSetAndAdd() {
+		model.setName("model");
+
+		journal.beginMutation();
+		assertTrue(journal.set(model, UMLPackage.Literals.NAMED_ELEMENT__NAME, "mutated"));
+		assertTrue(journal.unset(clazz, UMLPackage.Literals.NAMED_ELEMENT__NAME));
+		assertTrue(journal.add(clazz, UMLPackage.Literals.STRUCTURED_CLASSIFIER__OWNED_ATTRIBUTE,
+				UMLFactory.eINSTANCE.createProperty()));
+		// Many-valued features can only be set to collections, as with a SetCommand
+		assertFalse(journal.set(clazz, UMLPackage.Literals.STRUCTURED_CLASSIFIER__OWNED_ATTRIBUTE, property));
+		assertTrue(journal.endMutation());
+		assertEquals("mutated", model.getName());
+		assertEquals(2, clazz.getOwnedAttributes().size());
+
+		// A mutation without changes cannot be undone
+		journal.beginMutation();
+		assertFalse(journal.endMutation());
+		assertEquals(1, journal.getMutationCount());
+
+		assertTrue(journal.undo());
+		assertEquals("model", model.getName());
+		assertFalse(clazz.eIsSet(UMLPackage.Literals.NAMED_ELEMENT__NAME));
+		assertEquals(Arrays.asList(property), clazz.getOwnedAttributes());
+		assertFalse(journal.undo());
+		assertEquals(0, journal.size());
+	}
+
+	@Test
+	public void testUndoDelete() {
+		journal.beginMutation();
+		assertTrue(journal.delete(type));
+		assertTrue(journal.endMutation());
+
+		// The type and the reference to it are removed
+		assertEquals(Arrays.asList(clazz), model.getPackagedElements());
+		assertNull(property.getType());
+
+		assertTrue(journal.undo());
+		assertEquals(Arrays.asList(clazz, type), model.getPackagedElements());
+		assertSame(type, property.getType());
+
+		// Roots are removed from the contents of their resource
+		journal.beginMutation();
+		assertTrue(journal.delete(model));
+		assertTrue(journal.endMutation());
+		assertTrue(modelResource.getContents().isEmpty());
+		journal.undo();
+		assertSame(model, modelResource.getContents().get(0));
+	}
+
+	@Test
+	public void testUndoMove() {
+		// Adding the property to another class moves it there
+		journal.beginMutation();
+		assertTrue(journal.add(type, UMLPackage.Literals.STRUCTURED_CLASSIFIER__OWNED_ATTRIBUTE, property));
+		assertTrue(journal.endMutation());
+		assertTrue(clazz.getOwnedAttributes().isEmpty());
+		assertEquals(Arrays.asList(property), type.getOwnedAttributes());
+		assertSame(type, property.getOwner());
+
+		assertTrue(journal.undo());
+		assertEquals(Arrays.asList(property), clazz.getOwnedAttributes());
+		assertTrue(type.getOwnedAttributes().isEmpty());
+		assertSame(clazz, property.getOwner());
+		assertTrue(clazz.getAttributes().contains(property));
+		assertFalse(type.getAttributes().contains(property));
+
+		// Moving an object to another package restores its position
+		org.eclipse.uml2.uml.Package nestedPackage = model.createNestedPackage("nested");
+		journal.beginMutation();
+		assertTrue(journal.add(nestedPackage, UMLPackage.Literals.PACKAGE__PACKAGED_ELEMENT, clazz));
+		assertTrue(journal.endMutation());
+		assertEquals(Arrays.asList(type, nestedPackage), model.getPackagedElements());
+
+		assertTrue(journal.undo());
+		assertEquals(Arrays.asList(clazz, type, nestedPackage), model.getPackagedElements());
+		assertTrue(nestedPackage.getPackagedElements().isEmpty());
+	}
+
+	@Test
+	public void testUndoSubset() {
+		org.eclipse.uml2.uml.Association association = UMLFactory.eINSTANCE.createAssociation();
+		model.getPackagedElements().add(association);
+		org.eclipse.uml2.uml.Property end = UMLFactory.eINSTANCE.createProperty();
+
+		// The owned ends subset the member ends and the owned members (a derived union)
+		journal.beginMutation();
+		assertTrue(journal.add(association, UMLPackage.Literals.ASSOCIATION__OWNED_END, end));
+		assertTrue(journal.endMutation());
+		assertEquals(Arrays.asList(end), association.getOwnedEnds());
+		assertEquals(Arrays.asList(end), association.getMemberEnds());
+		assertTrue(association.getOwnedMembers().contains(end));
+		assertSame(association, end.getAssociation());
+
+		assertTrue(journal.undo());
+		assertTrue(association.getOwnedEnds().isEmpty());
+		assertTrue(association.getMemberEnds().isEmpty());
+		assertFalse(association.getOwnedMembers().contains(end));
+		assertNull(end.getAssociation());
+		assertNull(end.eContainer());
+	}
+}
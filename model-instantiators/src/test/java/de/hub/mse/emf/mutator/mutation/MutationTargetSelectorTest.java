@@ -4,8 +4,10 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Random;
 
 import org.eclipse.emf.common.util.URI;
@@ -200,4 +202,45 @@ public class MutationTargetSelectorTest {
 		assertTrue(Math.abs(1 - operationCount / expectedOperationCount) < error);
 		
 	}
+
+	@Test
+	public void testObjectIndex() {
+		Resource modelResource = resourceSet.createResource(URI.createFileURI("objectIndexTest" + ".uml"));
+		org.eclipse.uml2.uml.Model model = UMLFactory.eINSTANCE.createModel();
+		org.eclipse.uml2.uml.Class clazz = UMLFactory.eINSTANCE.createClass();
+		org.eclipse.uml2.uml.Operation op1 = UMLFactory.eINSTANCE.createOperation();
+		org.eclipse.uml2.uml.Operation op2 = UMLFactory.eINSTANCE.createOperation();
+		model.getPackagedElements().add(clazz);
+		clazz.getOwnedOperations().add(op1);
+		modelResource.getContents().add(model);
+		targetSelector.setModelResource(modelResource);
+
+		assertEquals(3, targetSelector.getModelSize());
+		assertEquals(1, targetSelector.getObjectsOfType(UMLPackage.Literals.OPERATION).size());
+		assertEquals(3, targetSelector.getObjectsOfType(UMLPackage.Literals.NAMED_ELEMENT).size());
+
+		// The index follows changes of the containment tree, the list of all objects is a snapshot
+		List<EObject> allEObjects = targetSelector.getAllObjects();
+		clazz.getOwnedOperations().add(op2);
+		assertEquals(4, targetSelector.getModelSize());
+		assertEquals(3, allEObjects.size());
+		assertTrue(targetSelector.getObjectsOfType(UMLPackage.Literals.OPERATION).contains(op2));
+
+		model.getPackagedElements().remove(clazz);
+		assertEquals(1, targetSelector.getModelSize());
+		assertTrue(targetSelector.getObjectsOfType(UMLPackage.Literals.OPERATION).isEmpty());
+		assertEquals(model, targetSelector.selectRandomEObject());
+
+		model.getPackagedElements().add(clazz);
+		assertEquals(4, targetSelector.getModelSize());
+		assertEquals(4, new HashSet<EObject>(Arrays.asList(targetSelector.selectEObjects(4))).size());
+
+		// A new resource replaces the index
+		Resource otherResource = resourceSet.createResource(URI.createFileURI("objectIndexTest2" + ".uml"));
+		otherResource.getContents().add(UMLFactory.eINSTANCE.createModel());
+		targetSelector.setModelResource(otherResource);
+		assertEquals(1, targetSelector.getModelSize());
+		clazz.getOwnedOperations().remove(op1);
+		assertEquals(1, targetSelector.getModelSize());
+	}
 }
@@ -0,0 +1,168 @@
+package de.hub.mse.emf.fuzz;
+
+import java.util.Arrays;
+
+import edu.berkeley.cs.jqf.fuzz.util.Hashing;
+import edu.berkeley.cs.jqf.instrument.tracing.events.BranchEvent;
+import edu.berkeley.cs.jqf.instrument.tracing.events.CallEvent;
+import edu.berkeley.cs.jqf.instrument.tracing.events.TraceEvent;
+import edu.berkeley.cs.jqf.instrument.tracing.events.TraceEventVisitor;
+
+/**
+ * Coverage map backed by primitive arrays, using the same hashing and hit-count
+ * buckets as {@link edu.berkeley.cs.jqf.fuzz.util.Coverage}.
+ *
+ * In addition to the counts, the indices touched since the last {@link #clear()} are
+ * tracked, so that clearing a run coverage and merging it into the total coverage
+ * only visits the covered entries and never allocates or boxes.
+ * The keys newly covered by the last merge are kept in a reusable buffer and are
+ * only copied out on demand, see {@link #getNewCoverage()}.
+ *
+ * @author Hoang Lam Nguyen
+ */
+public class ArrayCoverage implements TraceEventVisitor {
+
+	/** The size of the coverage map. */
+	public static final int COVERAGE_MAP_SIZE = (1 << 16) - 1;
+
+	/** Cache of the highest one bit of small hit counts. */
+	private static final int[] HOB_CACHE = new int[1024];
+
+	static {
+		for (int i = 0; i < HOB_CACHE.length; i++) {
+			HOB_CACHE[i] = Integer.highestOneBit(i);
+		}
+	}
+
+	/** Hit counts (run coverage) or hit-count buckets (total coverage) per key. */
+	private final int[] counts = new int[COVERAGE_MAP_SIZE];
+
+	/** Keys with a non-zero count, in the order in which they were first hit. */
+	private int[] nonZeroIndices = new int[256];
+
+	/** Number of keys with a non-zero count. */
+	private int nonZeroCount = 0;
+
+	/** Keys that were newly covered by the last call to {@link #updateBits(ArrayCoverage)}. */
+	private int[] newCoverage = new int[64];
+
+	/** Number of valid entries in {@link #newCoverage}. */
+	private int newCoverageCount = 0;
+
+	/** Returns the size of the coverage map. */
+	public int size() {
+		return COVERAGE_MAP_SIZE;
+	}
+
+	/** Updates the coverage with a trace event. */
+	public void handleEvent(TraceEvent e) {
+		e.applyVisitor(this);
+	}
+
+	@Override
+	public void visitBranchEvent(BranchEvent b) {
+		increment1(b.getIid(), b.getArm());
+	}
+
+	@Override
+	public void visitCallEvent(CallEvent e) {
+		increment(e.getIid());
+	}
+
+	/** Increments the count of a single key. */
+	public void increment(int key) {
+		incrementAtIndex(Hashing.hash(key, COVERAGE_MAP_SIZE));
+	}
+
+	/** Increments the count of a pair of keys (e.g. a branch and its arm). */
+	public void increment1(int key1, int key2) {
+		incrementAtIndex(Hashing.hash1(key1, key2, COVERAGE_MAP_SIZE));
+	}
+
+	private void incrementAtIndex(int idx) {
+		if (counts[idx]++ == 0) {
+			addNonZeroIndex(idx);
+		}
+	}
+
+	private void addNonZeroIndex(int idx) {
+		if (nonZeroCount == nonZeroIndices.length) {
+			nonZeroIndices = Arrays.copyOf(nonZeroIndices, nonZeroCount * 2);
+		}
+		nonZeroIndices[nonZeroCount++] = idx;
+	}
+
+	/** Returns the number of keys with a non-zero count. */
+	public int getNonZeroCount() {
+		return nonZeroCount;
+	}
+
+	/** Returns the keys with a non-zero count. Allocates a new array on every call. */
+	public int[] getCoveredKeys() {
+		return Arrays.copyOf(nonZeroIndices, nonZeroCount);
+	}
+
+	/** Returns the count of the key at the given index of the map. */
+	public int getAtIndex(int idx) {
+		return counts[idx];
+	}
+
+	/** Resets all counts; only the keys covered since the last reset are visited. */
+	public void clear() {
+		for (int i = 0; i < nonZeroCount; i++) {
+			counts[nonZeroIndices[i]] = 0;
+		}
+		nonZeroCount = 0;
+		newCoverageCount = 0;
+	}
+
+	private static int hob(int count) {
+		return count < HOB_CACHE.length ? HOB_CACHE[count] : Integer.highestOneBit(count);
+	}
+
+	/**
+	 * Merges the hit-count buckets of a run into this (total) coverage in a single pass
+	 * over the keys covered by the run. The keys the run newly covers are recorded in
+	 * the run, see {@link #getNewCoverageCount()}.
+	 * @param run the coverage of a single run
+	 * @return whether any bucket of this coverage has changed
+	 */
+	public boolean updateBits(ArrayCoverage run) {
+		boolean changed = false;
+		run.newCoverageCount = 0;
+		for (int i = 0; i < run.nonZeroCount; i++) {
+			int idx = run.nonZeroIndices[i];
+			int before = counts[idx];
+			int after = before | hob(run.counts[idx]);
+			if (after != before) {
+				counts[idx] = after;
+				changed = true;
+				if (before == 0) {
+					addNonZeroIndex(idx);
+					run.addNewCoverage(idx);
+				}
+			}
+		}
+		return changed;
+	}
+
+	private void addNewCoverage(int idx) {
+		if (newCoverageCount == newCoverage.length) {
+			newCoverage = Arrays.copyOf(newCoverage, newCoverageCount * 2);
+		}
+		newCoverage[newCoverageCount++] = idx;
+	}
+
+	/** Returns the number of keys newly covered by this run in the last merge. */
+	public int getNewCoverageCount() {
+		return newCoverageCount;
+	}
+
+	/**
+	 * Returns the keys newly covered by this run in the last merge, i.e. the keys
+	 * this run is responsible for. Allocates a new array on every call.
+	 */
+	public int[] getNewCoverage() {
+		return Arrays.copyOf(newCoverage, newCoverageCount);
+	}
+}
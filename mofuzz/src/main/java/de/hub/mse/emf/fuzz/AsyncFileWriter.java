@@ -0,0 +1,63 @@
+package de.hub.mse.emf.fuzz;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writes files on a background thread, so that saving inputs and failures
+ * does not block the fuzzing loop. Pending writes are completed when the
+ * JVM shuts down.
+ *
+ * @author Hoang Lam Nguyen
+ */
+public class AsyncFileWriter {
+
+	/** Maximum time (in seconds) to wait for pending writes on shutdown. */
+	private static final long SHUTDOWN_TIMEOUT = 30;
+
+	/** The single background thread performing the writes (in order). */
+	private final ExecutorService executor;
+
+	/**
+	 * Creates a new writer.
+	 * @param name the name of the background thread
+	 */
+	public AsyncFileWriter(String name) {
+		this.executor = Executors.newSingleThreadExecutor(runnable -> {
+			Thread thread = new Thread(runnable, name);
+			thread.setDaemon(true);
+			return thread;
+		});
+		Runtime.getRuntime().addShutdownHook(new Thread(this::close));
+	}
+
+	/**
+	 * Schedules writing data to a file, replacing any existing content.
+	 * The caller must not modify the data afterwards.
+	 * @param file the file to write
+	 * @param data the content of the file
+	 */
+	public void write(File file, byte[] data) {
+		executor.execute(() -> {
+			try {
+				Files.write(file.toPath(), data);
+			} catch (IOException e) {
+				System.err.println("Unable to write " + file.getAbsolutePath() + ": " + e.getMessage());
+			}
+		});
+	}
+
+	/** Completes all pending writes and stops the background thread. */
+	public void close() {
+		executor.shutdown();
+		try {
+			executor.awaitTermination(SHUTDOWN_TIMEOUT, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
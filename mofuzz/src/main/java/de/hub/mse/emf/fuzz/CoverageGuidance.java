@@ -2,17 +2,18 @@ package de.hub.mse.emf.fuzz;
 
 import java.io.Console;
 import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
 import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Collection;
 import java.util.Date;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Random;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
@@ -27,7 +28,6 @@ import edu.berkeley.cs.jqf.fuzz.guidance.Guidance;
 import edu.berkeley.cs.jqf.fuzz.guidance.GuidanceException;
 import edu.berkeley.cs.jqf.fuzz.guidance.Result;
 import edu.berkeley.cs.jqf.fuzz.guidance.TimeoutException;
-import edu.berkeley.cs.jqf.fuzz.util.Coverage;
 import edu.berkeley.cs.jqf.instrument.tracing.events.TraceEvent;
 
 /**
@@ -44,7 +44,7 @@ import edu.berkeley.cs.jqf.instrument.tracing.events.TraceEvent;
 
 public class CoverageGuidance implements Guidance {
 	
-	/** Currently, only single-threaded applications are supported, which is ensured by this field */
+	/** Currently, only single-threaded applications are supported per worker, which is ensured by this field */
 	protected Thread appThread;
 	
 	/** The name of the test for display purposes. */
@@ -72,23 +72,50 @@ public class CoverageGuidance implements Guidance {
 	/** The directory where saved (failing) inputs are written. */
 	protected File savedFailuresDirectory;
 	
-	/** Blind fuzzing -- do we need this? */
+	/** Blind fuzzing: no coverage feedback, the generator only observes pass/fail outcomes. */
 	protected boolean blind;
 	
+	/** Whether the generator undoes its mutations instead of mutating copies of saved inputs. */
+	protected boolean undoMutations;
+	
 	/** Number of saved inputs (or number of inputs that triggered new coverage). */
 	protected int numSavedInputs = 0;
 	
+	/** Seed inputs to be loaded before fuzzing starts, or {@code null} if there are none (left). */
+	protected File[] seedFiles;
+	
+	/** Number of failing inputs written to disk. */
+	protected int numSavedFailures = 0;
+	
+	/** Background writer for saved and failing inputs. */
+	protected final AsyncFileWriter inputWriter = new AsyncFileWriter("mofuzz-input-writer");
+	
 	/** Coverage statistics for a single run. */
-	protected Coverage runCoverage = new Coverage();
+	protected ArrayCoverage runCoverage = new ArrayCoverage();
+	
+	/** Cumulative coverage statistics (shared by all workers in a parallel campaign). */
+	protected ArrayCoverage totalCoverage;
 	
-	/** Cumulative coverage statistics. */
-	protected Coverage totalCoverage = new Coverage();
+	/** Cumulative coverage of valid inputs (shared by all workers in a parallel campaign). */
+	protected ArrayCoverage validCoverage;
 	
 	/** The maximum number of keys covered by any single input found so far. */
 	protected int maxCoverage = 0;
 	
 	/** The set of unique failures found so far. */
-	protected Set<List<StackTraceElement>> uniqueFailures = new HashSet<>();	
+	protected Set<List<StackTraceElement>> uniqueFailures;
+	
+	
+	// ---------- PARALLEL FUZZING ----------
+	
+	/** State shared with the other workers, or {@code null} if this is the only worker. */
+	protected final SharedFuzzingState sharedState;
+	
+	/** The id of this worker within a parallel campaign. */
+	protected final int workerId;
+	
+	/** Number of shared inputs already imported from the other workers. */
+	protected int numSyncedInputs = 0;
 	
 	
 	// ---------- LOGGING / STATS OUTPUT ----------
@@ -96,8 +123,8 @@ public class CoverageGuidance implements Guidance {
 	/** Whether to print log statements to stderr (debug option; manually edit). */
 	protected final boolean verbose = true;
 	
-	/** A system console, which is non-null only if STDOUT is a console. */
-	protected final Console console = System.console();
+	/** A system console, which is non-null only if STDOUT is a console (and this is the first worker). */
+	protected final Console console;
 	
 	/** Time since this guidance instance was created. */
 	protected final Date startTime = new Date();
@@ -117,17 +144,50 @@ public class CoverageGuidance implements Guidance {
 	/** The file where saved plot data is written. */
 	protected File statsFile;
 	
+	/** Buffered sink appending to the log file. */
+	protected LogSink logSink;
+	
+	/** Buffered sink appending to the plot data file. */
+	protected LogSink statsSink;
+	
+	/** The lineage of the generated inputs, to rebuild them from their seeds. */
+	protected ReplayLog replayLog;
+	
+	/** Size (in bytes) after which the log file is rotated. */
+	protected static final long MAX_LOG_FILE_SIZE = 64L * 1024 * 1024;
+	
+	/** Maximum number of rotated log files that are kept. */
+	protected static final int MAX_ROTATED_LOG_FILES = 4;
+	
+	/** Period (in seconds) in which the metrics of the generator are written, or 0 to not write them. */
+	protected long metricsPeriodSeconds = 0;
+	
+	/** The periodic dump of the generator's metrics, or {@code null} if there is none. */
+	protected AutoCloseable metricsDump;
+	
+	
+	// ---------- SEEDING ----------
+	
+	/** The seed all trial seeds of the campaign are derived from. */
+	protected final long campaignSeed;
+	
+	/** The seed of the current trial. */
+	protected long trialSeed;
+	
+	/** Increment of the SplitMix64 sequence (golden ratio). */
+	private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+	
 	
 	// ---------- TIMEOUT HANDLING ----------
 	
 	/** Timeout for an individual run */
 	protected long singleRunTimeoutMillis;
 	
-	/** Date when last run was started. */
-	protected Date runStart;
+	/** Time when last run was started, see {@link System#nanoTime()}. */
+	protected long runStartNanos;
 	
-	/** Number of conditional jumps since last run was started. */
-	protected long branchCount;
+	/** Watchdog enforcing the single-run timeout, or {@code null} if there is no timeout. */
+	protected RunWatchdog watchdog;
 	
 	/** Whether to stop/exit once a crash is found. **/
     static final boolean EXIT_ON_CRASH = Boolean.getBoolean("jqf.ei.EXIT_ON_CRASH");
@@ -146,11 +206,48 @@ public class CoverageGuidance implements Guidance {
 	 * @throws IOException if the output directory could not be prepared
 	 */
 	public CoverageGuidance(String testName, Duration duration, File outputDirectory) throws IOException {
+		this(testName, duration, outputDirectory, null, 0);
+	}
+	
+	/**
+	 * Creates a new guidance instance for one worker of a parallel campaign.
+	 * The cumulative coverage and the unique failures are taken from the shared state,
+	 * and inputs saved by this worker are published to the other workers.
+	 * Only the first worker displays the status screen.
+	 * @param testName the name of test to display on the status screen.
+	 * @param duration the amount of time to run fuzzing for, where
+	 * 					{@code null} indicates unlimited time.
+	 * @param outputDirectory the directory where the results of this worker will be written.
+	 * @param sharedState the state shared between all workers, or {@code null} for a single worker.
+	 * @param workerId the id of this worker.
+	 * @throws IOException if the output directory could not be prepared
+	 */
+	public CoverageGuidance(String testName, Duration duration, File outputDirectory,
+			SharedFuzzingState sharedState, int workerId) throws IOException {
 		this.testName = testName;
 		this.maxDurationMillis = duration != null ? duration.toMillis() : Long.MAX_VALUE;
 		this.outputDirectory = outputDirectory;
+		this.sharedState = sharedState;
+		this.workerId = workerId;
+		this.totalCoverage = sharedState != null ? sharedState.getTotalCoverage() : new ArrayCoverage();
+		this.validCoverage = sharedState != null ? sharedState.getValidCoverage() : new ArrayCoverage();
+		this.uniqueFailures = sharedState != null ? sharedState.getUniqueFailures() : new HashSet<>();
+		this.console = workerId == 0 ? System.console() : null;
 		this.prepareOutputDirectory();
 		
+		// Try to parse the campaign seed, otherwise pick a random one
+		String seed = System.getProperty("jqf.ei.SEED");
+		if (seed != null && !seed.isEmpty()) {
+			try {
+				this.campaignSeed = Long.parseLong(seed);
+			} catch (NumberFormatException e1) {
+				throw new IllegalArgumentException("Invalid seed: " + seed);
+			}
+		} else {
+			this.campaignSeed = new Random().nextLong();
+		}
+		infoLog("Campaign seed: %d (worker %d)", campaignSeed, workerId);
+		
 		// Try to parse the single-run timeout
 		String timeout = System.getProperty("jqf.ei.TIMEOUT");
 		if (timeout != null && !timeout.isEmpty()) {
@@ -161,12 +258,55 @@ public class CoverageGuidance implements Guidance {
 				throw new IllegalArgumentException("Invalid timeout duration: " + timeout);
 			}
 		}
+		if (this.singleRunTimeoutMillis > 0) {
+			this.watchdog = new RunWatchdog(singleRunTimeoutMillis);
+		}
+	}
+	
+	/**
+	 * Enables blind fuzzing. Trace events are neither expected nor collected,
+	 * and inputs are never saved, i.e. inputs are only classified as passing or failing.
+	 * @param blind whether to fuzz without coverage feedback
+	 */
+	public void setBlind(boolean blind) {
+		this.blind = blind;
+	}
+	
+	public boolean isBlind() {
+		return blind;
+	}
+	
+	/**
+	 * Lets the generator mutate saved inputs in place and undo each mutation after the trial,
+	 * instead of mutating copies of them. Changes the test makes to its input cannot be undone,
+	 * so this must only be enabled if the test does not modify its input.
+	 * @param undoMutations whether to undo mutations instead of copying saved inputs
+	 */
+	public void setUndoMutations(boolean undoMutations) {
+		this.undoMutations = undoMutations;
+	}
+	
+	/**
+	 * Enables writing the metrics of the generator (if it has any) to generation_metrics.csv
+	 * in the output directory.
+	 * @param seconds the period in which the metrics are written, or 0 to not write them
+	 */
+	public void setMetricsPeriod(long seconds) {
+		this.metricsPeriodSeconds = seconds;
 	}
 	
 	public void setGenStatus(ModelGenerationStatus status) {
 		this.genStatus = status;
 	}
 	
+	/**
+	 * Sets the seed inputs, which are passed on to the generator before the first trial.
+	 * @param seedFiles the files containing the seed inputs
+	 */
+	public void setSeedFiles(File[] seedFiles) {
+		this.seedFiles = seedFiles != null && seedFiles.length > 0 ? seedFiles : null;
+	}
+	
 	private void prepareOutputDirectory() throws IOException {
 
         // Create the output directory if it does not exist
@@ -190,6 +330,7 @@ public class CoverageGuidance implements Guidance {
         this.savedFailuresDirectory.mkdirs();
         this.statsFile = new File(outputDirectory, "plot_data");
         this.logFile = new File(outputDirectory, "fuzz.log");
+        File replayLogFile = new File(outputDirectory, InputReplay.REPLAY_LOG_FILE_NAME);
         //this.currentInputFile = new File(outputDirectory, ".cur_input");
 
 
@@ -199,6 +340,7 @@ public class CoverageGuidance implements Guidance {
         // We also do not check if the deletes are actually successful.
         statsFile.delete();
         logFile.delete();
+        replayLogFile.delete();
         for (File file : savedInputsDirectory.listFiles()) {
             file.delete();
         }
@@ -206,26 +348,20 @@ public class CoverageGuidance implements Guidance {
             file.delete();
         }
 
-        appendLineToFile(statsFile,"# unix_time, cycles_done, cur_path, paths_total, pending_total, " +
+        this.logSink = new LogSink(logFile, MAX_LOG_FILE_SIZE, MAX_ROTATED_LOG_FILES);
+        this.statsSink = new LogSink(statsFile, 0, 0);
+        this.replayLog = new ReplayLog(replayLogFile);
+        statsSink.append("# unix_time, cycles_done, cur_path, paths_total, pending_total, " +
                 "branch_count, map_size, unique_crashes, unique_hangs, max_depth, execs_per_sec, valid_inputs, invalid_inputs, valid_cov");
     }
 	
 
-    /** Writes a line of text to a given log file. */
-    protected void appendLineToFile(File file, String line) throws GuidanceException {
-        try (PrintWriter out = new PrintWriter(new FileWriter(file, true))) {
-            out.println(line);
-        } catch (IOException e) {
-            throw new GuidanceException(e);
-        }
-    }
-    
     /** Writes a line of text to the log file. */
     protected void infoLog(String str, Object... args) {
         if (verbose) {
             String line = String.format(str, args);
-            if (logFile != null) {
-                appendLineToFile(logFile, line);
+            if (logSink != null) {
+                logSink.append(line);
 
             } else {
                 System.err.println(line);
@@ -271,15 +407,15 @@ public class CoverageGuidance implements Guidance {
         } else {
             //Input currentParentInput = savedInputs.get(currentParentInputIdx);
             currentParentInputDesc = genStatus.getCurrentParentIdx() + " ";
-            //currentParentInputDesc += currentParentInput.isFavored() ? "(favored)" : "(not favored)";
+            currentParentInputDesc += genStatus.isCurrentParentFavored() ? "(favored)" : "(not favored)";
             currentParentInputDesc += " {" + genStatus.getCurrentChildCount() +
                     "/" + genStatus.getTargetNumChildren() + " mutations}";
         }
 
         int nonZeroCount = totalCoverage.getNonZeroCount();
         double nonZeroFraction = nonZeroCount * 100.0 / totalCoverage.size();
-        //int nonZeroValidCount = validCoverage.getNonZeroCount();
-        //double nonZeroValidFraction = nonZeroValidCount * 100.0 / validCoverage.size();
+        int nonZeroValidCount = validCoverage.getNonZeroCount();
+        double nonZeroValidFraction = nonZeroValidCount * 100.0 / validCoverage.size();
 
         console.printf("\033[2J");
         console.printf("\033[H");
@@ -291,27 +427,34 @@ public class CoverageGuidance implements Guidance {
         console.printf("Elapsed time:         %s (%s)\n", millisToDuration(elapsedMilliseconds),
                 maxDurationMillis == Long.MAX_VALUE ? "no time limit" : ("max " + millisToDuration(maxDurationMillis)));
         console.printf("Number of executions: %,d\n", numTrials);
+        if (sharedState != null) {
+            console.printf("All workers:          %,d executions (%d workers)\n",
+                    sharedState.getNumTrials(), sharedState.getNumWorkers());
+        }
         console.printf("Valid inputs:         %,d (%.2f%%)\n", numValid, numValid * 100.0 / numTrials);
         console.printf("Cycles completed:     %d\n", genStatus.getNumCycles());
         console.printf("Unique failures:      %,d\n", uniqueFailures.size());
-        //console.printf("Queue size:           %,d (%,d favored last cycle)\n", savedInputs.size(), numFavoredLastCycle);
-        console.printf("Queue size:           %,d \n", genStatus.size());
+        console.printf("Queue size:           %,d (%,d favored)\n", genStatus.size(), genStatus.getNumFavored());
         console.printf("Current parent input: %s\n", currentParentInputDesc);
         console.printf("Execution speed:      %,d/sec now | %,d/sec overall\n", intervalExecsPerSec, execsPerSec);
         console.printf("Total coverage:       %,d branches (%.2f%% of map)\n", nonZeroCount, nonZeroFraction);
-        //console.printf("Valid coverage:       %,d branches (%.2f%% of map)\n", nonZeroValidCount, nonZeroValidFraction);
+        console.printf("Valid coverage:       %,d branches (%.2f%% of map)\n", nonZeroValidCount, nonZeroValidFraction);
         
 
         String plotData = String.format("%d, %d, %d, %d, %d, %d, %.2f%%, %d, %d, %d, %.2f, %d, %d, %.2f%%",
                 TimeUnit.MILLISECONDS.toSeconds(now.getTime()), genStatus.getNumCycles(), genStatus.getCurrentParentIdx(),
                 numSavedInputs, 0, nonZeroCount, nonZeroFraction, uniqueFailures.size(), 0, 0, intervalExecsPerSecDouble,
-                numValid, numTrials-numValid, 0.0);
-        appendLineToFile(statsFile, plotData);
+                numValid, numTrials-numValid, nonZeroValidFraction);
+        statsSink.append(plotData);
 
     }
     
     /** Returns the banner to be displayed on the status screen */
     protected String getTitle() {
+    	if (blind) {
+    		return  "Blind Modelfuzzing\n" +
+    				"------------------\n";
+    	}
     	return  "Coverage-guided Modelfuzzing\n" +
                     "--------------------------\n";
     }
@@ -348,14 +491,48 @@ public class CoverageGuidance implements Guidance {
 	
 	@Override
 	public InputStream getInput() throws IllegalStateException, GuidanceException {
-		// Clear coverage status for this run
+		// The thread running the fuzzing loop is the application thread
+		if (appThread == null) {
+			appThread = Thread.currentThread();
+		}
+		
+		// Load seed inputs before the first trial
+		if (seedFiles != null) {
+			for (File seedFile : seedFiles) {
+				replayLog.seed(seedFile);
+			}
+			int numSeeds = genStatus.loadSeedInputs(Arrays.asList(seedFiles));
+			infoLog("Loaded %d of %d seed inputs", numSeeds, seedFiles.length);
+			seedFiles = null;
+		}
+		
+		// Configure the generator before the first trial
+		if (numTrials == 0) {
+			genStatus.setUndoMutations(undoMutations);
+			if (metricsPeriodSeconds > 0) {
+				startMetricsDump();
+			}
+		}
+		
+		// Pick up inputs saved by the other workers
+		if (sharedState != null) {
+			importSharedInputs();
+		}
+		
+		// Clear coverage status for this run, after loading inputs, so that the coverage of
+		// loading them (e.g. of EMF code on the application thread) is not attributed to the run
 		runCoverage.clear();
 		
 		// Write input to disk for debugging TODO
 		
+		// Derive the seed of this trial
+		this.trialSeed = trialSeed(campaignSeed, workerId, numTrials);
+		
 		// Start time-counting for timeout handling
-		this.runStart = new Date();
-		this.branchCount = 0;
+		this.runStartNanos = System.nanoTime();
+		if (watchdog != null) {
+			watchdog.arm();
+		}
 		
 		// We don't actually generate an input
 		return null;
@@ -366,21 +543,53 @@ public class CoverageGuidance implements Guidance {
 		Date now = new Date();
         long elapsedMilliseconds = now.getTime() - startTime.getTime();
         
-        if (EXIT_ON_CRASH && uniqueFailures.size() >= 1) {
+        if ((EXIT_ON_CRASH && uniqueFailures.size() >= 1) || elapsedMilliseconds >= maxDurationMillis) {
             // exit
+            stopMetricsDump();
             return false;
         }
         
-        return elapsedMilliseconds < maxDurationMillis;
+        return true;
+	}
+	
+	private void startMetricsDump() {
+		File metricsFile = new File(outputDirectory, "generation_metrics.csv");
+		try {
+			metricsDump = genStatus.startMetricsDump(metricsFile, metricsPeriodSeconds, TimeUnit.SECONDS);
+			if (metricsDump == null) {
+				infoLog("The generator has no metrics to write");
+			}
+		} catch (IOException e) {
+			infoLog("Unable to write %s: %s", metricsFile.getAbsolutePath(), e.getMessage());
+		}
+	}
+	
+	/** Writes the last metrics of the generator, if they are written at all. */
+	private void stopMetricsDump() {
+		if (metricsDump == null) {
+			return;
+		}
+		try {
+			metricsDump.close();
+		} catch (Exception e) {
+			infoLog("Unable to write the generation metrics: %s", e.getMessage());
+		}
+		metricsDump = null;
 	}
 
 	@Override
 	public void handleResult(Result result, Throwable error) throws GuidanceException {
 		// Stop timeout handling
-		this.runStart = null;
+		if (watchdog != null) {
+			watchdog.disarm();
+		}
+		long execNanos = System.nanoTime() - runStartNanos;
 		
 		// Increment run count
 		this.numTrials++;
+		if (sharedState != null) {
+			sharedState.incrementTrials();
+		}
 		
 		boolean valid = result == Result.SUCCESS;
 		
@@ -389,23 +598,42 @@ public class CoverageGuidance implements Guidance {
 			numValid++;
 		}
 		
-		if (result == Result.SUCCESS || result == Result.INVALID) {
-			
-			// Coverage before
-			int nonZeroBefore = totalCoverage.getNonZeroCount();
+		if (blind) {
+			// No coverage feedback, only failures are of interest
+		} else if (result == Result.SUCCESS || result == Result.INVALID) {
 			
-			// Compute a list of keys for which this input can assume responsibility,
-			// i.e. the newly covered branches.
-			Set<Object> responsibilities = computeResponsibilities(valid);
+			int nonZeroAfter;
+			boolean coverageBitsUpdated;
 			
-			boolean coverageBitsUpdated = totalCoverage.updateBits(runCoverage);
-			
-			// Coverage after
-			int nonZeroAfter = totalCoverage.getNonZeroCount();
+			// The total coverage may be shared with other workers
+			synchronized (totalCoverage) {
+				// Merge the run coverage, which also records the newly covered branches,
+				// i.e. the keys for which this input can assume responsibility.
+				coverageBitsUpdated = totalCoverage.updateBits(runCoverage);
+				
+				// Coverage after
+				nonZeroAfter = totalCoverage.getNonZeroCount();
+			}
 			if (nonZeroAfter > maxCoverage) {
 				maxCoverage = nonZeroAfter;
 			}
 			
+			// Branches this input is responsible for, copied before the valid coverage is merged
+			int[] responsibilities = null;
+			int newTotalCoverage = runCoverage.getNewCoverageCount();
+			if (newTotalCoverage > 0) {
+				responsibilities = runCoverage.getNewCoverage();
+			}
+			
+			// Only valid inputs contribute to the valid coverage
+			int newValidCoverage = 0;
+			if (valid) {
+				synchronized (validCoverage) {
+					validCoverage.updateBits(runCoverage);
+				}
+				newValidCoverage = runCoverage.getNewCoverageCount();
+			}
+			
 			// Possibly save input
 			boolean toSave = false;
 			String why = "";
@@ -417,27 +645,57 @@ public class CoverageGuidance implements Guidance {
 			}
 			
 			// Save if new total coverage is found, i.e. a new branch was taken
-			if (nonZeroAfter > nonZeroBefore) {
-				// Must be responsible for some branch
-				assert(responsibilities.size() > 0);
+			if (newTotalCoverage > 0) {
 				toSave = true;
-				why = why + "cov";
+				why = why + "+cov";
+			}
+			
+			// Save if a valid input reaches a branch not covered by any valid input so far,
+			// even if invalid inputs have already reached it
+			if (newValidCoverage > 0) {
+				if (responsibilities == null) {
+					// The input is responsible for the newly covered valid branches
+					responsibilities = runCoverage.getNewCoverage();
+				}
+				toSave = true;
+				why = why + "+valid";
 			}
 			
 			if (toSave) {
+				if (responsibilities == null) {
+					// Only new hit counts, no new branches
+					responsibilities = new int[0];
+				}
+				int[] coveredKeys = runCoverage.getCoveredKeys();
+				
 				// Instruct input generator to save inputs
-				genStatus.saveInput(responsibilities.size());
+				genStatus.saveInput(responsibilities.length, coveredKeys, execNanos);
+				replayLog.saved(numTrials - 1, responsibilities.length, coveredKeys, execNanos);
+				
+				// Write input to disk (in the background) and share it with the other workers
+				byte[] serialized = genStatus.serializeSavedInput();
+				if (serialized != null) {
+					File inputFile = new File(savedInputsDirectory, inputFileName(numSavedInputs));
+					inputWriter.write(inputFile, serialized);
+					inputWriter.write(new File(savedInputsDirectory, inputFile.getName() + ".seed"), trialInfo());
+					if (sharedState != null) {
+						sharedState.publishInput(workerId, serialized, responsibilities.length, coveredKeys, execNanos,
+								inputFile);
+					}
+				}
 				numSavedInputs++;
 				
 				// Write to log file
 				infoLog("Saving new input (at run %d): " +
                         "input #%d " +
-                        "of size %d; " +
-                        "total coverage = %d",
+                        "responsible for %d branches (%s); " +
+                        "total coverage = %d; valid coverage = %d",
                 numTrials,
                 genStatus.size(),
-                0,
-                nonZeroAfter);
+                responsibilities.length,
+                why,
+                nonZeroAfter,
+                validCoverage.getNonZeroCount());
 				
 			}
 		} else if (result == Result.FAILURE || result == Result.TIMEOUT) {
@@ -454,7 +712,8 @@ public class CoverageGuidance implements Guidance {
 				
 				// TODO Trim input
 				
-				// TODO Save crash to disk
+				// Save crash to disk (in the background)
+				saveFailure(error);
 				
 				// Write to log
 				long elapsed = new Date().getTime() - startTime.getTime();
@@ -469,18 +728,81 @@ public class CoverageGuidance implements Guidance {
 		}	
 	}
 	
-	// Compute a set of branches for which the current input may assume responsibility
-	private Set<Object> computeResponsibilities(boolean valid) {
-	    Set<Object> result = new HashSet<>();
-    
-	    // This input is responsible for all new coverage
-	    Collection<?> newCoverage = runCoverage.computeNewCoverage(totalCoverage);
-	    if (newCoverage.size() > 0) {
-	    		result.addAll(newCoverage);
-	    }
-	    return result;
+	/**
+	 * Derives the seed of a trial from the campaign seed (SplitMix64), so that
+	 * every trial can be replayed given the campaign seed, the worker and the trial number.
+	 * @param campaignSeed the seed of the campaign
+	 * @param workerId the id of the worker executing the trial
+	 * @param trial the number of trials the worker has completed before
+	 * @return the 64-bit seed of the trial
+	 */
+	public static long trialSeed(long campaignSeed, int workerId, long trial) {
+		long workerSeed = mix64(campaignSeed + (workerId + 1) * GOLDEN_GAMMA);
+		return mix64(workerSeed + (trial + 1) * GOLDEN_GAMMA);
 	}
-    
+	
+	private static long mix64(long z) {
+		z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+		z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+		return z ^ (z >>> 31);
+	}
+	
+	/**
+	 * Returns the seed and generator state of the current trial, to be stored next to a saved input.
+	 * Together with the replay log, the input can be rebuilt from it, see {@link InputReplay}.
+	 */
+	protected byte[] trialInfo() {
+		String info = String.format("campaign_seed=%d%nworker=%d%ntrial=%d%ntrial_seed=%d%n" +
+				"queue_size=%d%nparent_idx=%d%nchild_count=%d%ntarget_children=%d%ncycles=%d%nreplay_log=%s%n",
+				campaignSeed, workerId, numTrials - 1, trialSeed,
+				genStatus.size(), genStatus.getCurrentParentIdx(), genStatus.getCurrentChildCount(),
+				genStatus.getTargetNumChildren(), genStatus.getNumCycles(),
+				new File(outputDirectory, InputReplay.REPLAY_LOG_FILE_NAME).getAbsolutePath().replace('\\', '/'));
+		return info.getBytes(StandardCharsets.UTF_8);
+	}
+	
+	/**
+	 * Returns the seed of the current trial, which is used to initialize the source of randomness.
+	 * @return the 64-bit seed of the current trial
+	 */
+	public long getTrialSeed() {
+		return trialSeed;
+	}
+	
+	/** Returns the file name of a saved input, using the file extension of the generator. */
+	protected String inputFileName(int id) {
+		String extension = genStatus.getFileExtension();
+		return String.format("id_%06d", id) + (extension != null ? "." + extension : "");
+	}
+	
+	/** Writes the failing input and the stack trace of the failure to the failures directory. */
+	protected void saveFailure(Throwable error) {
+		String name = inputFileName(numSavedFailures++);
+		byte[] serialized = genStatus.serializeCurrentInput();
+		if (serialized != null) {
+			inputWriter.write(new File(savedFailuresDirectory, name), serialized);
+		}
+		inputWriter.write(new File(savedFailuresDirectory, name + ".seed"), trialInfo());
+		StringWriter trace = new StringWriter();
+		error.printStackTrace(new PrintWriter(trace));
+		inputWriter.write(new File(savedFailuresDirectory, name + ".trace"),
+				trace.toString().getBytes(StandardCharsets.UTF_8));
+	}
+	
+	/** Passes all inputs that were saved by the other workers since the last call on to the generator. */
+	protected void importSharedInputs() {
+		List<SharedFuzzingState.SharedInput> inputs = sharedState.getInputsSince(workerId, numSyncedInputs);
+		for (SharedFuzzingState.SharedInput input : inputs) {
+			if (input.getWorkerId() != workerId) {
+				genStatus.importInput(input.getSerialized(), input.getResponsibilities(),
+						input.getCoveredKeys(), input.getExecNanos());
+				replayLog.imported(numTrials, input.getResponsibilities(), input.getCoveredKeys(),
+						input.getExecNanos(), input.getFile());
+			}
+		}
+		numSyncedInputs += inputs.size();
+	}
+	
     /* Saves an interesting input to the queue. */
 	/*
     protected void saveCurrentInput(Set<Object> responsibilities, String why) throws IOException {
@@ -490,34 +812,68 @@ public class CoverageGuidance implements Guidance {
     
     @Override  
 	public Consumer<TraceEvent> generateCallBack(Thread thread) {
-    	if (appThread != null) {
-    		throw new IllegalStateException(ZestGuidance.class +
-    				" only supports single-threaded apps at the moment");
+    	if (appThread == null) {
+    		appThread = thread;
+    	}
+    	if (thread != appThread) {
+    		// Only single-threaded apps are supported, ignore events of helper threads
+    		// (e.g. threads loading seed inputs)
+    		return IGNORE_EVENTS;
     	}
-    	appThread = thread;
     	return this::handleEvent;
 	}
     
+    /** Callback for threads other than the application thread. */
+    private static final Consumer<TraceEvent> IGNORE_EVENTS = e -> {};
+    
 	/** Handles a trace event generated during test execution */
 	protected void handleEvent(TraceEvent e) {
 		// Collect totalCoverage
 		runCoverage.handleEvent(e);
-		// Check for possible timeouts every so often
-		if (this.singleRunTimeoutMillis > 0 &&
-				this.runStart != null && (++this.branchCount) % 10_000 == 0) {
-			long elapsed = new Date().getTime() - runStart.getTime();
-			if (elapsed > this.singleRunTimeoutMillis) {
-				throw new TimeoutException(elapsed, this.singleRunTimeoutMillis);
-			}
+		// Abort the run once the watchdog has flagged a timeout
+		if (watchdog != null && watchdog.hasTimedOut()) {
+			throw new TimeoutException(getRunMillis(), this.singleRunTimeoutMillis);
 		}
 	}
+	
+	/**
+	 * Returns whether the current (or last) run exceeded the single-run timeout.
+	 * @return true if the watchdog flagged the run as timed out
+	 */
+	public boolean hasRunTimedOut() {
+		return watchdog != null && watchdog.hasTimedOut();
+	}
+	
+	/**
+	 * Returns the duration of the current run so far.
+	 * @return elapsed time in milliseconds since the run was started
+	 */
+	public long getRunMillis() {
+		return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - runStartNanos);
+	}
     
+	/**
+	 * Returns the id of this worker.
+	 * @return the worker id, 0 if this is the only worker
+	 */
+	public int getWorkerId() {
+		return workerId;
+	}
+	
 	/**
      * Returns a reference to the coverage statistics.
      * @return a reference to the coverage statistics
      */
-	public Coverage getTotalCoverage() {
+	public ArrayCoverage getTotalCoverage() {
 		return totalCoverage;
 	}
+	
+	/**
+     * Returns a reference to the coverage statistics of valid inputs.
+     * @return a reference to the valid coverage statistics
+     */
+	public ArrayCoverage getValidCoverage() {
+		return validCoverage;
+	}
 
 }
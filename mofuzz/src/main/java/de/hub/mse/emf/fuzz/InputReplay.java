@@ -0,0 +1,141 @@
+package de.hub.mse.emf.fuzz;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.Random;
+
+import com.pholser.junit.quickcheck.random.SourceOfRandomness;
+
+import de.hub.mse.emf.fuzz.junit.quickcheck.ModelGenerationStatus;
+import de.hub.mse.emf.fuzz.junit.quickcheck.generator.InputSavingGenerator;
+
+/**
+ * Rebuilds an input from the {@code .seed} file that was written next to it, instead of
+ * loading the serialized input.
+ *
+ * The input of a trial depends not only on the seed of the trial but on the state of the
+ * generator, i.e. on all inputs the worker has saved or imported before (the parents the
+ * input has been mutated from). The {@code .seed} file names the campaign seed, the worker
+ * and the trial, and the {@link ReplayLog} of the worker holds this lineage. A fresh generator
+ * is therefore driven through the same trials with the same seeds, saving and importing the
+ * same inputs in between, until the trial of the input is generated again.
+ *
+ * @author Hoang Lam Nguyen
+ */
+public class InputReplay {
+
+	/** Name of the replay log in the output directory of a worker. */
+	public static final String REPLAY_LOG_FILE_NAME = "replay_log";
+
+	/**
+	 * Rebuilds the input a {@code .seed} file was written for.
+	 * @param seedFile the {@code .seed} file of a saved input or failure
+	 * @param generator a new instance of the generator used in the campaign
+	 * @return the rebuilt input
+	 * @throws IOException if the {@code .seed} file or the replay log could not be read
+	 */
+	public static Object replay(File seedFile, InputSavingGenerator<?> generator) throws IOException {
+		Properties info = new Properties();
+		try (InputStream in = new FileInputStream(seedFile)) {
+			info.load(in);
+		}
+		long campaignSeed = Long.parseLong(required(info, "campaign_seed"));
+		int workerId = Integer.parseInt(required(info, "worker"));
+		long trial = Long.parseLong(required(info, "trial"));
+
+		// The log is normally found in the output directory, next to corpus/ and failures/
+		File replayLog = new File(seedFile.getAbsoluteFile().getParentFile().getParentFile(), REPLAY_LOG_FILE_NAME);
+		if (!replayLog.exists() && info.getProperty("replay_log") != null) {
+			replayLog = new File(info.getProperty("replay_log"));
+		}
+		return replay(campaignSeed, workerId, trial, ReplayLog.read(replayLog), generator);
+	}
+
+	/**
+	 * Rebuilds the input of a trial.
+	 * @param campaignSeed the seed of the campaign
+	 * @param workerId the id of the worker that executed the trial
+	 * @param trial the number of the trial
+	 * @param events the events recorded by the worker, see {@link ReplayLog#read(File)}
+	 * @param generator a new instance of the generator used in the campaign
+	 * @return the rebuilt input
+	 * @throws IOException if an imported input could not be read
+	 */
+	public static Object replay(long campaignSeed, int workerId, long trial, List<ReplayLog.Event> events,
+			InputSavingGenerator<?> generator) throws IOException {
+		ModelGenerationStatus genStatus = new ModelGenerationStatus(generator);
+
+		// Seeds are loaded before the first trial
+		List<File> seedFiles = new ArrayList<>();
+		List<ReplayLog.Event> trialEvents = new ArrayList<>();
+		for (ReplayLog.Event event : events) {
+			if (event.getType() == ReplayLog.Event.Type.SEED) {
+				seedFiles.add(event.getFile());
+			} else {
+				trialEvents.add(event);
+			}
+		}
+		if (!seedFiles.isEmpty()) {
+			genStatus.loadSeedInputs(seedFiles);
+		}
+
+		int next = 0;
+		for (long t = 0;; t++) {
+			// Inputs of the other workers are imported before the trial
+			while (next < trialEvents.size() && trialEvents.get(next).getType() == ReplayLog.Event.Type.IMPORT
+					&& trialEvents.get(next).getTrial() <= t) {
+				ReplayLog.Event event = trialEvents.get(next++);
+				genStatus.importInput(Files.readAllBytes(event.getFile().toPath()), event.getResponsibilities(),
+						event.getCoveredKeys(), event.getExecNanos());
+			}
+
+			SourceOfRandomness random = new SourceOfRandomness(
+					new Random(CoverageGuidance.trialSeed(campaignSeed, workerId, t)));
+			Object input = generator.generate(random, genStatus);
+			if (t == trial) {
+				return input;
+			}
+
+			// Inputs are saved after the trial
+			while (next < trialEvents.size() && trialEvents.get(next).getType() == ReplayLog.Event.Type.SAVE
+					&& trialEvents.get(next).getTrial() <= t) {
+				ReplayLog.Event event = trialEvents.get(next++);
+				genStatus.saveInput(event.getResponsibilities(), event.getCoveredKeys(), event.getExecNanos());
+			}
+		}
+	}
+
+	private static String required(Properties info, String key) throws IOException {
+		String value = info.getProperty(key);
+		if (value == null) {
+			throw new IOException("Missing " + key + " in seed file");
+		}
+		return value;
+	}
+
+	/**
+	 * Rebuilds an input from its {@code .seed} file and writes the serialized input.
+	 * @param args the class of the generator, the {@code .seed} file and the output file
+	 * @throws Exception if the input could not be rebuilt
+	 */
+	public static void main(String[] args) throws Exception {
+		if (args.length != 3) {
+			System.err.println("Usage: InputReplay <generator class> <seed file> <output file>");
+			System.exit(1);
+		}
+		InputSavingGenerator<?> generator = (InputSavingGenerator<?>) Class.forName(args[0]).getDeclaredConstructor().newInstance();
+		replay(new File(args[1]), generator);
+		byte[] serialized = generator.serializeCurrentInput();
+		if (serialized == null) {
+			System.err.println("The generator does not support serializing inputs");
+			System.exit(2);
+		}
+		Files.write(new File(args[2]).toPath(), serialized);
+	}
+}
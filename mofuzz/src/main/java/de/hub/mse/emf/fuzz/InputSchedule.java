@@ -0,0 +1,220 @@
+package de.hub.mse.emf.fuzz;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Decides how many child inputs to derive from each input of a mutation queue
+ * (AFL/Zest-style culling and power schedule).
+ *
+ * For every covered key, the cheapest input covering it (execution time times input size)
+ * is its top-rated input. Culling greedily picks top-rated inputs until every covered key
+ * is covered by a picked input. These favored inputs receive the full energy, whereas
+ * inputs whose coverage is subsumed by the favored ones only receive a fraction of it.
+ * The energy is further scaled by how fast and small an input is compared to the average.
+ *
+ * Inputs are identified by their position in the queue, in the order they were added.
+ *
+ * @author Hoang Lam Nguyen
+ */
+public class InputSchedule {
+
+	/** Minimum number of children per input and cycle. */
+	public static final int MIN_ENERGY = 10;
+
+	/** Maximum number of children per input and cycle. */
+	public static final int MAX_ENERGY = 1000;
+
+	/** Fraction of the energy given to inputs that are not favored. */
+	public static final double NON_FAVORED_FACTOR = 0.1;
+
+	/** Top-rated input (queue index) for each key of the coverage map, or -1. */
+	private final int[] topRated = new int[ArrayCoverage.COVERAGE_MAP_SIZE];
+
+	/** Reusable buffer marking the keys covered by the favored inputs during culling. */
+	private final boolean[] culled = new boolean[ArrayCoverage.COVERAGE_MAP_SIZE];
+
+	/** The inputs in queue order. */
+	private final List<Entry> entries = new ArrayList<Entry>();
+
+	/** Whether the top-rated inputs have changed since the last culling. */
+	private boolean dirty = false;
+
+	/** Number of favored inputs after the last culling. */
+	private int numFavored = 0;
+
+	/** Sum of the known execution times, in nanoseconds. */
+	private double totalExecNanos = 0;
+
+	/** Number of inputs with a known execution time. */
+	private int numTimedInputs = 0;
+
+	/** Sum of the known input sizes. */
+	private double totalSize = 0;
+
+	/** Number of inputs with a known size. */
+	private int numSizedInputs = 0;
+
+	public InputSchedule() {
+		Arrays.fill(topRated, -1);
+	}
+
+	/**
+	 * Adds an input to the end of the queue.
+	 * @param responsibilities number of keys the input newly covered when it was saved
+	 * @param coveredKeys all keys covered by the input, or {@code null} if unknown;
+	 * 			inputs with unknown coverage are always favored
+	 * @param execNanos execution time of the input in nanoseconds, or 0 if unknown
+	 * @param size size of the input (e.g. number of model elements), or 0 if unknown
+	 * @return the queue index of the input
+	 */
+	public int add(int responsibilities, int[] coveredKeys, long execNanos, int size) {
+		int idx = entries.size();
+		Entry entry = new Entry(responsibilities, coveredKeys, execNanos, size);
+		entries.add(entry);
+
+		if (execNanos > 0) {
+			totalExecNanos += execNanos;
+			numTimedInputs++;
+		}
+		if (size > 0) {
+			totalSize += size;
+			numSizedInputs++;
+		}
+
+		if (coveredKeys == null) {
+			entry.favored = true;
+			numFavored++;
+			return idx;
+		}
+		for (int key : coveredKeys) {
+			int current = topRated[key];
+			if (current < 0 || entry.cost < entries.get(current).cost) {
+				topRated[key] = idx;
+				dirty = true;
+			}
+		}
+		return idx;
+	}
+
+	/**
+	 * Recomputes the favored inputs if any top-rated input has changed since the last call.
+	 * Visits each key of the coverage map once.
+	 */
+	public void cull() {
+		if (!dirty) {
+			return;
+		}
+		numFavored = 0;
+		for (Entry entry : entries) {
+			entry.favored = entry.coveredKeys == null;
+			if (entry.favored) {
+				numFavored++;
+			}
+		}
+		Arrays.fill(culled, false);
+		for (int key = 0; key < topRated.length; key++) {
+			int idx = topRated[key];
+			if (idx < 0 || culled[key]) {
+				continue;
+			}
+			Entry entry = entries.get(idx);
+			entry.favored = true;
+			numFavored++;
+			for (int covered : entry.coveredKeys) {
+				culled[covered] = true;
+			}
+		}
+		dirty = false;
+	}
+
+	/**
+	 * Returns the number of children to generate from an input in the current cycle.
+	 * Call {@link #cull()} before to take new inputs into account.
+	 * @param idx the queue index of the input
+	 * @return the energy of the input, between {@link #MIN_ENERGY} and {@link #MAX_ENERGY}
+	 */
+	public int getEnergy(int idx) {
+		Entry entry = entries.get(idx);
+
+		// At least 100 mutations, more for inputs responsible for many branches
+		double energy = Math.max(Math.round(Math.log10(entry.responsibilities) * 100), 100);
+
+		// Prefer inputs that are fast and small
+		if (entry.execNanos > 0 && numTimedInputs > 0) {
+			energy *= performanceFactor(entry.execNanos / (totalExecNanos / numTimedInputs));
+		}
+		if (entry.size > 0 && numSizedInputs > 0) {
+			energy *= performanceFactor(entry.size / (totalSize / numSizedInputs));
+		}
+
+		// Inputs whose coverage is subsumed by the favored ones still get a few mutations
+		if (!entry.favored) {
+			energy *= NON_FAVORED_FACTOR;
+		}
+		return (int) Math.min(Math.max(Math.round(energy), MIN_ENERGY), MAX_ENERGY);
+	}
+
+	/** Scales the energy by the ratio between a cost of an input and the average cost (similar to AFL). */
+	private static double performanceFactor(double ratio) {
+		if (ratio > 4) {
+			return 0.25;
+		} else if (ratio > 2) {
+			return 0.5;
+		} else if (ratio > 1.33) {
+			return 0.75;
+		} else if (ratio < 0.25) {
+			return 3;
+		} else if (ratio < 0.33) {
+			return 2;
+		} else if (ratio < 0.75) {
+			return 1.5;
+		}
+		return 1;
+	}
+
+	/**
+	 * Returns whether an input was favored by the last culling.
+	 * @param idx the queue index of the input
+	 * @return true if the input is favored
+	 */
+	public boolean isFavored(int idx) {
+		return entries.get(idx).favored;
+	}
+
+	/** Returns the number of favored inputs after the last culling. */
+	public int getNumFavored() {
+		return numFavored;
+	}
+
+	/** Returns the number of inputs in the queue. */
+	public int size() {
+		return entries.size();
+	}
+
+	/** Scheduling information of a single input. */
+	private static class Entry {
+
+		private final int responsibilities;
+
+		private final int[] coveredKeys;
+
+		private final long execNanos;
+
+		private final int size;
+
+		/** Cost of executing and mutating the input, lower is better. */
+		private final double cost;
+
+		private boolean favored = false;
+
+		Entry(int responsibilities, int[] coveredKeys, long execNanos, int size) {
+			this.responsibilities = responsibilities;
+			this.coveredKeys = coveredKeys;
+			this.execNanos = execNanos;
+			this.size = size;
+			this.cost = (double) Math.max(execNanos, 1) * Math.max(size, 1);
+		}
+	}
+}
@@ -0,0 +1,225 @@
+package de.hub.mse.emf.fuzz;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A line-based sink that appends to a single, long-lived file.
+ * Lines are handed over through a bounded queue and written by a background thread,
+ * which flushes whenever the queue runs empty. Optionally, the file is rotated
+ * once it exceeds a maximum size: fuzz.log is renamed to fuzz.log.1, the previously
+ * rotated files are shifted to fuzz.log.2, fuzz.log.3 etc. and the oldest one is deleted
+ * once the maximum number of rotated files is reached.
+ *
+ * @author Hoang Lam Nguyen
+ */
+public class LogSink {
+
+	/** Number of lines that may be pending before appending blocks. */
+	private static final int QUEUE_CAPACITY = 8192;
+
+	/** Interval (in ms) in which a blocked producer checks whether the background thread is still alive. */
+	private static final long OFFER_TIMEOUT = 100;
+
+	/** Number of bytes of the line separator. */
+	private static final int LINE_SEPARATOR_SIZE = utf8Length(System.lineSeparator());
+
+	/** Marker to stop the background thread. */
+	private static final String EOF = new String("<eof>");
+
+	/** The file lines are appended to. */
+	private final File file;
+
+	/** Size (in bytes) after which the file is rotated, or 0 to never rotate. */
+	private final long maxFileSize;
+
+	/** Maximum number of rotated files that are kept. */
+	private final int maxRotatedFiles;
+
+	/** The pending lines. */
+	private final BlockingQueue<String> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+
+	/** The background thread draining the queue. */
+	private final Thread drainer;
+
+	/** The writer of the current file; only accessed by the background thread. */
+	private Writer writer;
+
+	/** Number of bytes written to the current file (for rotation). */
+	private long fileSize;
+
+	/** Whether rotating the file has failed, in which case the file is no longer rotated. */
+	private boolean rotationFailed = false;
+
+	/** Whether the sink has been closed. */
+	private volatile boolean closed = false;
+
+	/**
+	 * Creates a new sink appending to the given file.
+	 * @param file the file to append lines to
+	 * @param maxFileSize the size (in bytes) after which the file is rotated, or 0 to never rotate
+	 * @param maxRotatedFiles the maximum number of rotated files that are kept
+	 * @throws IOException if the file could not be opened
+	 */
+	public LogSink(File file, long maxFileSize, int maxRotatedFiles) throws IOException {
+		if (maxFileSize > 0 && maxRotatedFiles < 1) {
+			throw new IllegalArgumentException("At least one rotated file must be kept: " + maxRotatedFiles);
+		}
+		this.file = file;
+		this.maxFileSize = maxFileSize;
+		this.maxRotatedFiles = maxRotatedFiles;
+		openWriter();
+
+		this.drainer = new Thread(this::drain, "mofuzz-log-" + file.getName());
+		this.drainer.setDaemon(true);
+		this.drainer.start();
+		Runtime.getRuntime().addShutdownHook(new Thread(this::close));
+	}
+
+	/**
+	 * Appends a line to the file. Blocks only if the queue is full, and the line is discarded
+	 * if the background thread has stopped in the meantime.
+	 * @param line the line to append (without line separator)
+	 */
+	public void append(String line) {
+		if (closed) {
+			return;
+		}
+		try {
+			offer(line);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/** Writes all pending lines and closes the file. */
+	public void close() {
+		if (closed) {
+			return;
+		}
+		closed = true;
+		try {
+			if (offer(EOF)) {
+				drainer.join(TimeUnit.SECONDS.toMillis(30));
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Hands a line over to the background thread, waiting while the queue is full.
+	 * @return {@code false} if the background thread has stopped and the line was discarded
+	 */
+	private boolean offer(String line) throws InterruptedException {
+		while (!queue.offer(line, OFFER_TIMEOUT, TimeUnit.MILLISECONDS)) {
+			if (!drainer.isAlive()) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private void openWriter() throws IOException {
+		this.writer = new BufferedWriter(new OutputStreamWriter(
+				new FileOutputStream(file, true), StandardCharsets.UTF_8));
+		this.fileSize = file.length();
+	}
+
+	/** Main loop of the background thread. */
+	private void drain() {
+		List<String> batch = new ArrayList<>();
+		try {
+			while (true) {
+				batch.add(queue.take());
+				queue.drainTo(batch);
+				for (String line : batch) {
+					if (line == EOF) {
+						writer.close();
+						return;
+					}
+					write(line);
+				}
+				batch.clear();
+				writer.flush();
+			}
+		} catch (IOException e) {
+			System.err.println("Unable to write " + file.getAbsolutePath() + ": " + e.getMessage());
+			// Discard further lines instead of blocking the producers
+			closed = true;
+			queue.clear();
+		} catch (InterruptedException e) {
+			// Stop draining
+			closed = true;
+			queue.clear();
+		}
+	}
+
+	private void write(String line) throws IOException {
+		if (maxFileSize > 0 && !rotationFailed && fileSize >= maxFileSize) {
+			rotate();
+		}
+		writer.write(line);
+		writer.write(System.lineSeparator());
+		fileSize += utf8Length(line) + LINE_SEPARATOR_SIZE;
+	}
+
+	/**
+	 * Moves the current file aside and starts a new one, deleting the oldest rotated file.
+	 * If the files cannot be moved, lines are appended to the current file, which is no longer rotated.
+	 */
+	private void rotate() throws IOException {
+		writer.close();
+		try {
+			Files.deleteIfExists(rotatedFile(maxRotatedFiles).toPath());
+			for (int i = maxRotatedFiles - 1; i >= 1; i--) {
+				File rotatedFile = rotatedFile(i);
+				if (rotatedFile.exists()) {
+					Files.move(rotatedFile.toPath(), rotatedFile(i + 1).toPath(), StandardCopyOption.REPLACE_EXISTING);
+				}
+			}
+			Files.move(file.toPath(), rotatedFile(1).toPath(), StandardCopyOption.REPLACE_EXISTING);
+		} catch (IOException e) {
+			System.err.println("Unable to rotate " + file.getAbsolutePath() + ": " + e.getMessage());
+			rotationFailed = true;
+		}
+		openWriter();
+	}
+
+	/** Returns the rotated file with the given number, 1 being the most recent one. */
+	File rotatedFile(int number) {
+		return new File(file.getPath() + "." + number);
+	}
+
+	/** Returns the number of bytes of the UTF-8 encoding of the given string, without encoding it. */
+	static int utf8Length(String s) {
+		int length = 0;
+		for (int i = 0; i < s.length(); i++) {
+			char c = s.charAt(i);
+			if (c < 0x80) {
+				length += 1;
+			} else if (c < 0x800) {
+				length += 2;
+			} else if (Character.isHighSurrogate(c) && i + 1 < s.length() && Character.isLowSurrogate(s.charAt(i + 1))) {
+				length += 4;
+				i++;
+			} else {
+				// Unpaired surrogates are encoded as a single '?'
+				length += Character.isSurrogate(c) ? 1 : 3;
+			}
+		}
+		return length;
+	}
+}
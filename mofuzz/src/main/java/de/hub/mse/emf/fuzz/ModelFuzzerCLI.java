@@ -4,14 +4,20 @@ import edu.berkeley.cs.jqf.instrument.InstrumentingClassLoader;
 import org.junit.runner.Result;
 
 import de.hub.mse.emf.fuzz.junit.GuidedModelFuzzing;
+import de.hub.mse.emf.fuzz.junit.ParallelModelFuzzing;
 import picocli.CommandLine;
 import picocli.CommandLine.Option;
 import picocli.CommandLine.Parameters;
 
 import java.io.File;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLClassLoader;
 import java.time.Duration;
 import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
 
 /**
  *
@@ -55,6 +61,23 @@ public class ModelFuzzerCLI implements Runnable{
             description = "Blind fuzzing: do not use coverage feedback (default: false)")
     private boolean blindFuzzing;
 
+    @Option(names = { "--undo-mutations" },
+            description = "Mutate saved inputs in place and undo each mutation after the trial instead of mutating copies."
+                    + " Only use this if the test does not modify its input, since such changes cannot be undone (default: false)")
+    private boolean undoMutations;
+
+    @Option(names = { "--generation-metrics" }, paramLabel = "SECONDS",
+            description = "Write the metrics of the generator to generation_metrics.csv in the output directory every SECONDS seconds (default: 0, disabled)")
+    private long metricsPeriod = 0;
+
+    @Option(names = { "-s", "--seed" },
+            description = "Campaign seed all trial seeds are derived from (default: random)")
+    private Long seed;
+
+    @Option(names = { "-w", "--workers" },
+            description = "Number of parallel fuzzing workers sharing coverage and saved inputs (default: 1)")
+    private int workers = 1;
+
     @Parameters(index = "0", paramLabel = "PACKAGE", description = "package containing the fuzz target and all dependencies")
     private String testPackageName;
 
@@ -99,15 +122,21 @@ public class ModelFuzzerCLI implements Runnable{
             }
         }
 
+        if (this.seed != null) {
+            System.setProperty("jqf.ei.SEED", this.seed.toString());
+        }
+
         if (this.libFuzzerCompatOutput) {
             System.setProperty("jqf.ei.LIBFUZZER_COMPAT_OUTPUT", "true");
         }
 
 
         try {
-            ClassLoader loader = new InstrumentingClassLoader(
-                    this.testPackageName.split(File.pathSeparator),
-                    ModelFuzzerCLI.class.getClassLoader());
+            // Blind fuzzing does not need any instrumentation
+            String[] classPath = this.testPackageName.split(File.pathSeparator);
+            ClassLoader loader = this.blindFuzzing ?
+                    createPlainClassLoader(classPath, ModelFuzzerCLI.class.getClassLoader()) :
+                    new InstrumentingClassLoader(classPath, ModelFuzzerCLI.class.getClassLoader());
 
             // Load the guidance
             String title = this.testClassName+"#"+this.testMethodName;
@@ -116,8 +145,15 @@ public class ModelFuzzerCLI implements Runnable{
                     new ZestGuidance(title, duration, this.outputDirectory, seedFiles) :
                     new ZestGuidance(title, duration, this.outputDirectory);
                     */
+            if (this.workers > 1) {
+                runParallel(title, loader, seedFiles);
+                return;
+            }
             CoverageGuidance guidance = new CoverageGuidance(title, duration, this.outputDirectory);
-            //guidance.setBlind(blindFuzzing);
+            guidance.setSeedFiles(seedFiles);
+            guidance.setBlind(blindFuzzing);
+            guidance.setUndoMutations(undoMutations);
+            guidance.setMetricsPeriod(metricsPeriod);
             
             // Run the Junit test
             Result res = GuidedModelFuzzing.run(testClassName, testMethodName, loader, guidance, System.out);
@@ -135,6 +171,48 @@ public class ModelFuzzerCLI implements Runnable{
         }
 
     }
+
+    /** Creates a class loader for the given class path that does not instrument any classes. */
+    private static ClassLoader createPlainClassLoader(String[] paths, ClassLoader parent) throws MalformedURLException {
+        URL[] urls = new URL[paths.length];
+        for (int i = 0; i < paths.length; i++) {
+            urls[i] = new File(paths[i]).toURI().toURL();
+        }
+        return new URLClassLoader(urls, parent);
+    }
+
+    /** Runs one guidance per worker, each writing its results to its own sub-directory. */
+    private void runParallel(String title, ClassLoader loader, File[] seedFiles) throws Exception {
+        // All workers derive their trial seeds from the same campaign seed
+        if (System.getProperty("jqf.ei.SEED") == null) {
+            System.setProperty("jqf.ei.SEED", Long.toString(new Random().nextLong()));
+        }
+
+        SharedFuzzingState sharedState = new SharedFuzzingState(this.workers);
+        List<CoverageGuidance> guidances = new ArrayList<>();
+        for (int i = 0; i < this.workers; i++) {
+            File workerDirectory = new File(this.outputDirectory, "worker-" + i);
+            CoverageGuidance guidance = new CoverageGuidance(title, duration, workerDirectory, sharedState, i);
+            guidance.setBlind(blindFuzzing);
+            guidance.setUndoMutations(undoMutations);
+            guidance.setMetricsPeriod(metricsPeriod);
+            guidances.add(guidance);
+        }
+        // Seeds exercising new coverage are shared with the other workers
+        guidances.get(0).setSeedFiles(seedFiles);
+
+        Result[] results = ParallelModelFuzzing.run(testClassName, testMethodName, loader, guidances, null);
+        if (Boolean.getBoolean("jqf.logCoverage")) {
+            System.out.println(String.format("Covered %d edges.",
+                    sharedState.getTotalCoverage().getNonZeroCount()));
+        }
+        for (Result res : results) {
+            if (Boolean.getBoolean("jqf.ei.EXIT_ON_CRASH") && (res == null || !res.wasSuccessful())) {
+                System.exit(3);
+            }
+        }
+    }
+
     public static void main(String[] args) {
         int exitCode = new CommandLine(new ModelFuzzerCLI())
                 .registerConverter(Duration.class, v -> {
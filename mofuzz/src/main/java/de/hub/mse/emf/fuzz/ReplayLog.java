@@ -0,0 +1,201 @@
+package de.hub.mse.emf.fuzz;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Records everything besides the trial seeds that influences the inputs a worker generates:
+ * the seed inputs, the inputs saved after each trial and the inputs imported from the other
+ * workers. Together with the campaign seed, this is the lineage of every input the worker
+ * generated, i.e. the generator can be driven through the same states again to rebuild any
+ * of them, see {@link InputReplay}.
+ *
+ * The log is a text file with one event per line:
+ * <pre>
+ * seed &lt;file&gt;
+ * import &lt;trial&gt; &lt;responsibilities&gt; &lt;execNanos&gt; &lt;coveredKeys&gt; &lt;file&gt;
+ * save &lt;trial&gt; &lt;responsibilities&gt; &lt;execNanos&gt; &lt;coveredKeys&gt;
+ * </pre>
+ * where imports are applied before the given trial, saves after it, and the covered keys are
+ * comma-separated (or {@code -} if there are none).
+ *
+ * @author Hoang Lam Nguyen
+ */
+public class ReplayLog {
+
+	/** The sink appending to the log file. */
+	private final LogSink sink;
+
+	/**
+	 * Creates a new log appending to the given file.
+	 * @param file the file to append events to
+	 * @throws IOException if the file could not be opened
+	 */
+	public ReplayLog(File file) throws IOException {
+		this.sink = new LogSink(file, 0, 0);
+	}
+
+	/**
+	 * Records a seed input, which is loaded before the first trial.
+	 * @param file the file containing the seed input
+	 */
+	public void seed(File file) {
+		sink.append("seed " + file.getAbsolutePath());
+	}
+
+	/**
+	 * Records an input imported from another worker before a trial.
+	 * @param trial the number of the trial
+	 * @param responsibilities the number of branches the input is responsible for
+	 * @param coveredKeys all coverage keys exercised by the input, may be {@code null}
+	 * @param execNanos the execution time of the input in nanoseconds
+	 * @param file the file the input was saved to by the other worker
+	 */
+	public void imported(long trial, int responsibilities, int[] coveredKeys, long execNanos, File file) {
+		sink.append("import " + trial + " " + responsibilities + " " + execNanos + " "
+				+ formatKeys(coveredKeys) + " " + file.getAbsolutePath());
+	}
+
+	/**
+	 * Records that the input of a trial has been saved.
+	 * @param trial the number of the trial
+	 * @param responsibilities the number of branches the input is responsible for
+	 * @param coveredKeys all coverage keys exercised by the input, may be {@code null}
+	 * @param execNanos the execution time of the input in nanoseconds
+	 */
+	public void saved(long trial, int responsibilities, int[] coveredKeys, long execNanos) {
+		sink.append("save " + trial + " " + responsibilities + " " + execNanos + " " + formatKeys(coveredKeys));
+	}
+
+	/** Writes all pending events and closes the log. */
+	public void close() {
+		sink.close();
+	}
+
+	/**
+	 * Reads all events of a log file.
+	 * @param file the log file
+	 * @return the events, in the order in which they were recorded
+	 * @throws IOException if the file could not be read or is malformed
+	 */
+	public static List<Event> read(File file) throws IOException {
+		List<Event> events = new ArrayList<>();
+		for (String line : Files.readAllLines(file.toPath(), StandardCharsets.UTF_8)) {
+			if (line.isEmpty()) {
+				continue;
+			}
+			try {
+				events.add(parse(line));
+			} catch (RuntimeException e) {
+				throw new IOException("Malformed replay log entry: " + line, e);
+			}
+		}
+		return events;
+	}
+
+	private static Event parse(String line) {
+		if (line.startsWith("seed ")) {
+			return new Event(Event.Type.SEED, -1, 0, null, 0, new File(line.substring(5)));
+		}
+		String[] parts = line.split(" ", 6);
+		long trial = Long.parseLong(parts[1]);
+		int responsibilities = Integer.parseInt(parts[2]);
+		long execNanos = Long.parseLong(parts[3]);
+		int[] coveredKeys = parseKeys(parts[4]);
+		switch (parts[0]) {
+		case "import":
+			return new Event(Event.Type.IMPORT, trial, responsibilities, coveredKeys, execNanos, new File(parts[5]));
+		case "save":
+			return new Event(Event.Type.SAVE, trial, responsibilities, coveredKeys, execNanos, null);
+		default:
+			throw new IllegalArgumentException("Unknown event " + parts[0]);
+		}
+	}
+
+	private static String formatKeys(int[] keys) {
+		if (keys == null || keys.length == 0) {
+			return "-";
+		}
+		StringBuilder builder = new StringBuilder();
+		for (int i = 0; i < keys.length; i++) {
+			if (i > 0) {
+				builder.append(',');
+			}
+			builder.append(keys[i]);
+		}
+		return builder.toString();
+	}
+
+	private static int[] parseKeys(String keys) {
+		if (keys.equals("-")) {
+			return new int[0];
+		}
+		String[] parts = keys.split(",");
+		int[] result = new int[parts.length];
+		for (int i = 0; i < parts.length; i++) {
+			result[i] = Integer.parseInt(parts[i]);
+		}
+		return result;
+	}
+
+	/**
+	 * An event of the log.
+	 */
+	public static class Event {
+
+		public enum Type {
+			SEED, IMPORT, SAVE
+		}
+
+		private final Type type;
+
+		private final long trial;
+
+		private final int responsibilities;
+
+		private final int[] coveredKeys;
+
+		private final long execNanos;
+
+		private final File file;
+
+		Event(Type type, long trial, int responsibilities, int[] coveredKeys, long execNanos, File file) {
+			this.type = type;
+			this.trial = trial;
+			this.responsibilities = responsibilities;
+			this.coveredKeys = coveredKeys;
+			this.execNanos = execNanos;
+			this.file = file;
+		}
+
+		public Type getType() {
+			return type;
+		}
+
+		/** Returns the number of the trial, or -1 for seed inputs. */
+		public long getTrial() {
+			return trial;
+		}
+
+		public int getResponsibilities() {
+			return responsibilities;
+		}
+
+		public int[] getCoveredKeys() {
+			return coveredKeys;
+		}
+
+		public long getExecNanos() {
+			return execNanos;
+		}
+
+		/** Returns the file of a seed or imported input, or {@code null} for saved inputs. */
+		public File getFile() {
+			return file;
+		}
+	}
+}
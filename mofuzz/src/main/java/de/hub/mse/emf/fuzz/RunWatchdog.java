@@ -0,0 +1,94 @@
+package de.hub.mse.emf.fuzz;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Enforces a timeout for individual runs using a dedicated thread.
+ * The application thread arms the watchdog when a run starts and disarms it when
+ * the run ends. If the deadline passes in between, the watchdog flags the run as
+ * timed out and interrupts the application thread.
+ * Deadlines are based on {@link System#nanoTime()}, so the application thread
+ * does not need to read the clock while the run is executing.
+ *
+ * @author Hoang Lam Nguyen
+ */
+public class RunWatchdog {
+
+	/** The timeout for a single run, in nanoseconds. */
+	private final long timeoutNanos;
+
+	/** The thread executing the current run. */
+	private Thread appThread;
+
+	/** Deadline of the current run, see {@link System#nanoTime()}. */
+	private long deadline;
+
+	/** Whether a run is currently executing. */
+	private boolean armed = false;
+
+	/** Whether the current run has exceeded its deadline. */
+	private volatile boolean timedOut = false;
+
+	/**
+	 * Creates and starts a new watchdog.
+	 * @param timeoutMillis the timeout for a single run, in milliseconds
+	 */
+	public RunWatchdog(long timeoutMillis) {
+		this.timeoutNanos = TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+		Thread watchdog = new Thread(this::watch, "mofuzz-watchdog");
+		watchdog.setDaemon(true);
+		watchdog.start();
+	}
+
+	/** Starts the deadline for a run executed by the calling thread. */
+	public synchronized void arm() {
+		this.appThread = Thread.currentThread();
+		this.deadline = System.nanoTime() + timeoutNanos;
+		this.timedOut = false;
+		this.armed = true;
+		notifyAll();
+	}
+
+	/** Stops the deadline of the current run; must be called by the thread that armed the watchdog. */
+	public void disarm() {
+		synchronized (this) {
+			armed = false;
+		}
+		if (timedOut) {
+			// Clear the interrupt, so that it does not leak into the next run
+			Thread.interrupted();
+		}
+	}
+
+	/** Returns whether the current (or last) run has exceeded its deadline. */
+	public boolean hasTimedOut() {
+		return timedOut;
+	}
+
+	/** Returns the timeout for a single run, in milliseconds. */
+	public long getTimeoutMillis() {
+		return TimeUnit.NANOSECONDS.toMillis(timeoutNanos);
+	}
+
+	/** Main loop of the watchdog thread. */
+	private synchronized void watch() {
+		try {
+			while (true) {
+				if (!armed) {
+					wait();
+					continue;
+				}
+				long remaining = deadline - System.nanoTime();
+				if (remaining > 0) {
+					TimeUnit.NANOSECONDS.timedWait(this, remaining);
+				} else {
+					timedOut = true;
+					armed = false;
+					appThread.interrupt();
+				}
+			}
+		} catch (InterruptedException e) {
+			// Stop watching
+		}
+	}
+}
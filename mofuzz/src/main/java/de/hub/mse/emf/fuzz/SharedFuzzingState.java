@@ -0,0 +1,180 @@
+package de.hub.mse.emf.fuzz;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * State shared between the workers of a parallel fuzzing campaign.
+ * Every worker owns its own {@link CoverageGuidance}, generator and run coverage,
+ * only the global bookkeeping lives here: the cumulative (valid) coverage, the set of unique
+ * failures and the inputs saved by each worker (in serialized form, so that
+ * other workers can import them without sharing any model objects).
+ * A saved input is only kept until every worker has read it.
+ *
+ * @author Hoang Lam Nguyen
+ */
+public class SharedFuzzingState {
+
+	/** Cumulative coverage of all workers. Access must be synchronized on the coverage object itself. */
+	private final ArrayCoverage totalCoverage = new ArrayCoverage();
+
+	/** Cumulative coverage of the valid inputs of all workers. Access must be synchronized on the coverage object itself. */
+	private final ArrayCoverage validCoverage = new ArrayCoverage();
+
+	/** The set of unique failures found by any worker. */
+	private final Set<List<StackTraceElement>> uniqueFailures = Collections.synchronizedSet(new HashSet<>());
+
+	/** Inputs saved by the workers that have not yet been read by every worker, in the order in which they were published. */
+	private final List<SharedInput> savedInputs = new ArrayList<>();
+
+	/** Number of inputs published before the first element of {@link #savedInputs}. */
+	private int numDroppedInputs = 0;
+
+	/** Number of inputs read by each worker. Access must be synchronized on {@link #savedInputs}. */
+	private final int[] numReadInputs;
+
+	/** Number of published inputs, readable without locking. */
+	private volatile int numSavedInputs = 0;
+
+	/** Number of trials completed by all workers. */
+	private final AtomicLong numTrials = new AtomicLong();
+
+	/** The number of workers taking part in the campaign. */
+	private final int numWorkers;
+
+	public SharedFuzzingState(int numWorkers) {
+		this.numWorkers = numWorkers;
+		this.numReadInputs = new int[numWorkers];
+	}
+
+	public ArrayCoverage getTotalCoverage() {
+		return totalCoverage;
+	}
+
+	public ArrayCoverage getValidCoverage() {
+		return validCoverage;
+	}
+
+	public Set<List<StackTraceElement>> getUniqueFailures() {
+		return uniqueFailures;
+	}
+
+	public int getNumWorkers() {
+		return numWorkers;
+	}
+
+	public long incrementTrials() {
+		return numTrials.incrementAndGet();
+	}
+
+	public long getNumTrials() {
+		return numTrials.get();
+	}
+
+	/**
+	 * Makes a saved input available to all other workers.
+	 * @param workerId the id of the worker that saved the input
+	 * @param serialized the serialized input
+	 * @param responsibilities the number of branches the input is responsible for
+	 * @param coveredKeys all coverage keys exercised by the input
+	 * @param execNanos the execution time of the input in nanoseconds
+	 * @param file the file the input is saved to
+	 */
+	public void publishInput(int workerId, byte[] serialized, int responsibilities, int[] coveredKeys, long execNanos,
+			File file) {
+		synchronized (savedInputs) {
+			savedInputs.add(new SharedInput(workerId, serialized, responsibilities, coveredKeys, execNanos, file));
+			numSavedInputs = numDroppedInputs + savedInputs.size();
+		}
+	}
+
+	/**
+	 * Returns all inputs published since a given position. The caller is assumed to have read
+	 * all inputs before {@code fromIndex}; inputs read by every worker are dropped.
+	 * @param workerId the id of the calling worker
+	 * @param fromIndex the number of inputs the caller has already seen
+	 * @return the inputs published after the first {@code fromIndex} inputs
+	 */
+	public List<SharedInput> getInputsSince(int workerId, int fromIndex) {
+		if (fromIndex >= numSavedInputs) {
+			return Collections.emptyList();
+		}
+		synchronized (savedInputs) {
+			List<SharedInput> inputs = new ArrayList<>(
+					savedInputs.subList(fromIndex - numDroppedInputs, savedInputs.size()));
+			numReadInputs[workerId] = numSavedInputs;
+			dropReadInputs();
+			return inputs;
+		}
+	}
+
+	/** Drops the inputs that have been read by every worker. Must be called while holding the lock on {@link #savedInputs}. */
+	private void dropReadInputs() {
+		int numReadByAll = numSavedInputs;
+		for (int numRead : numReadInputs) {
+			numReadByAll = Math.min(numReadByAll, numRead);
+		}
+		if (numReadByAll > numDroppedInputs) {
+			savedInputs.subList(0, numReadByAll - numDroppedInputs).clear();
+			numDroppedInputs = numReadByAll;
+		}
+	}
+
+	/**
+	 * An input saved by one of the workers.
+	 */
+	public static class SharedInput {
+
+		private final int workerId;
+
+		private final byte[] serialized;
+
+		private final int responsibilities;
+
+		private final int[] coveredKeys;
+
+		private final long execNanos;
+
+		private final File file;
+
+		SharedInput(int workerId, byte[] serialized, int responsibilities, int[] coveredKeys, long execNanos,
+				File file) {
+			this.workerId = workerId;
+			this.serialized = serialized;
+			this.responsibilities = responsibilities;
+			this.coveredKeys = coveredKeys;
+			this.execNanos = execNanos;
+			this.file = file;
+		}
+
+		public int getWorkerId() {
+			return workerId;
+		}
+
+		public byte[] getSerialized() {
+			return serialized;
+		}
+
+		public int getResponsibilities() {
+			return responsibilities;
+		}
+
+		public int[] getCoveredKeys() {
+			return coveredKeys;
+		}
+
+		public long getExecNanos() {
+			return execNanos;
+		}
+
+		/** Returns the file the input is saved to by the worker that published it. */
+		public File getFile() {
+			return file;
+		}
+	}
+}
@@ -9,6 +9,7 @@ import org.junit.runner.Result;
 import org.junit.runner.RunWith;
 import org.junit.runner.Runner;
 
+import de.hub.mse.emf.fuzz.CoverageGuidance;
 import de.hub.mse.emf.fuzz.JQFModelFuzzer;
 import edu.berkeley.cs.jqf.fuzz.JQF;
 import edu.berkeley.cs.jqf.fuzz.guidance.Guidance;
@@ -19,6 +20,9 @@ import edu.berkeley.cs.jqf.instrument.tracing.SingleSnoop;
 public class GuidedModelFuzzing extends GuidedFuzzing{
 	
 	private static Guidance guidance;
+	
+	/** Guidance instances of parallel fuzzing workers, registered per worker thread. */
+	private static final ThreadLocal<Guidance> workerGuidance = new ThreadLocal<>();
 
     public static long DEFAULT_MAX_TRIALS = 100;
 
@@ -31,17 +35,49 @@ public class GuidedModelFuzzing extends GuidedFuzzing{
 
     /**
      * Returns the currently registered Guidance instance.
+     * Inside a worker thread of a parallel campaign, the guidance of that worker is returned.
      *
      * @return the currently registered Guidance instance
      */
     public static Guidance getCurrentGuidance() {
-        return guidance;
+        Guidance g = workerGuidance.get();
+        return g != null ? g : guidance;
     }
 
     private static void unsetGuidance() {
         guidance = null;
     }
 
+    static void setWorkerGuidance(Guidance g) {
+        workerGuidance.set(g);
+    }
+
+    static void unsetWorkerGuidance() {
+        workerGuidance.remove();
+    }
+
+    /**
+     * Returns whether a guidance performs blind fuzzing, i.e. does not need trace events.
+     *
+     * @param guidance the fuzzing guidance
+     * @return whether the guidance is a blind {@link CoverageGuidance}
+     */
+    static boolean isBlind(Guidance guidance) {
+        return guidance instanceof CoverageGuidance && ((CoverageGuidance) guidance).isBlind();
+    }
+
+    /**
+     * Ensures that the test class uses the right test runner.
+     *
+     * @param testClass the test class containing the test method
+     */
+    static void checkTestClass(Class<?> testClass) {
+        RunWith annotation = testClass.getAnnotation(RunWith.class);
+        if (annotation == null || !annotation.value().equals(JQFModelFuzzer.class)) {
+            throw new IllegalArgumentException(testClass.getName() + " is not annotated with @RunWith(JQFModelFuzzer.class)");
+        }
+    }
+
 
     /**
      * Runs the guided fuzzing loop, using the system class loader to load
@@ -126,17 +162,19 @@ public class GuidedModelFuzzing extends GuidedFuzzing{
                                           Guidance guidance, PrintStream out) throws IllegalStateException {    	
     	
         // Ensure that the class uses the right test runner
-        RunWith annotation = testClass.getAnnotation(RunWith.class);
-        if (annotation == null || !annotation.value().equals(JQFModelFuzzer.class)) {
-            throw new IllegalArgumentException(testClass.getName() + " is not annotated with @RunWith(JQFModelFuzzer.class)");
-        }
+        checkTestClass(testClass);
 
 
         // Set the static guided instance
         setGuidance(guidance);
 
+        // Blind fuzzing runs without instrumentation, so there is nothing to trace
+        boolean blind = isBlind(guidance);
+
         // Register callback
-        SingleSnoop.setCallbackGenerator(guidance::generateCallBack);
+        if (!blind) {
+            SingleSnoop.setCallbackGenerator(guidance::generateCallBack);
+        }
 
         // Create a JUnit Request
         Request testRequest = Request.method(testClass, testMethod);
@@ -145,7 +183,9 @@ public class GuidedModelFuzzing extends GuidedFuzzing{
         Runner testRunner = testRequest.getRunner();
 
         // Start tracing for the test method
-        SingleSnoop.startSnooping(testClass.getName() + "#" + testMethod);
+        if (!blind) {
+            SingleSnoop.startSnooping(testClass.getName() + "#" + testMethod);
+        }
 
         // Run the test and make sure to de-register the guidance before returning
         try {
@@ -0,0 +1,113 @@
+package de.hub.mse.emf.fuzz.junit;
+
+import java.io.PrintStream;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+import org.junit.internal.TextListener;
+import org.junit.runner.JUnitCore;
+import org.junit.runner.Request;
+import org.junit.runner.Result;
+import org.junit.runner.Runner;
+
+import edu.berkeley.cs.jqf.fuzz.guidance.Guidance;
+import edu.berkeley.cs.jqf.instrument.tracing.SingleSnoop;
+import edu.berkeley.cs.jqf.instrument.tracing.events.TraceEvent;
+
+/**
+ * Runs several guided fuzzing loops in parallel, one per worker thread.
+ *
+ * <p>Each worker runs the test method with its own {@link Guidance} instance,
+ * and therefore with its own fuzzing loop, generator and resource set.
+ * Trace events are dispatched to the guidance of the thread that produced them.
+ * Workers may share global state (e.g. the total coverage) through their
+ * guidance instances, see {@link de.hub.mse.emf.fuzz.SharedFuzzingState}.</p>
+ *
+ * <p>Note that all workers load the test class through the same class loader,
+ * i.e. static state of the test application is shared between workers.</p>
+ *
+ * @author Hoang Lam Nguyen
+ */
+public class ParallelModelFuzzing {
+
+    /** Guidance instances of the currently running workers. */
+    private static final Map<Thread, Guidance> workers = new ConcurrentHashMap<>();
+
+    /** Callback for threads that do not belong to any worker. */
+    private static final Consumer<TraceEvent> IGNORE_EVENTS = e -> {};
+
+    /**
+     * Runs the guided fuzzing loops of all workers, using a provided classloader
+     * to load test-application classes, and waits until all of them have finished.
+     *
+     * @param testClassName the test class containing the test method
+     * @param testMethod    the test method to execute in the fuzzing loop
+     * @param loader        the classloader to load the test class with
+     * @param guidances     the fuzzing guidance of each worker
+     * @param out           an output stream to log Junit messages, or {@code null}
+     * @throws ClassNotFoundException if testClassName cannot be loaded
+     * @throws InterruptedException if interrupted while waiting for the workers
+     * @return the Junit-style test result of each worker
+     */
+    public synchronized static Result[] run(String testClassName, String testMethod, ClassLoader loader,
+                                            List<? extends Guidance> guidances, PrintStream out)
+            throws ClassNotFoundException, InterruptedException {
+        Class<?> testClass = java.lang.Class.forName(testClassName, true, loader);
+        GuidedModelFuzzing.checkTestClass(testClass);
+
+        // Dispatch trace events to the guidance of the worker thread
+        SingleSnoop.setCallbackGenerator(thread -> {
+            Guidance guidance = workers.get(thread);
+            return guidance != null ? guidance.generateCallBack(thread) : IGNORE_EVENTS;
+        });
+
+        Result[] results = new Result[guidances.size()];
+        Thread[] threads = new Thread[guidances.size()];
+        for (int i = 0; i < threads.length; i++) {
+            final int workerIdx = i;
+            final Guidance guidance = guidances.get(i);
+            threads[i] = new Thread(() -> {
+                results[workerIdx] = runWorker(testClass, testMethod, guidance, out);
+            }, "mofuzz-worker-" + i);
+        }
+
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        return results;
+    }
+
+    /** Runs the fuzzing loop of a single worker on the current thread. */
+    private static Result runWorker(Class<?> testClass, String testMethod, Guidance guidance, PrintStream out) {
+        Thread thread = Thread.currentThread();
+        workers.put(thread, guidance);
+        GuidedModelFuzzing.setWorkerGuidance(guidance);
+
+        try {
+            // Create a JUnit Request
+            Request testRequest = Request.method(testClass, testMethod);
+
+            // Instantiate a runner (may return an error)
+            Runner testRunner = testRequest.getRunner();
+
+            // Start tracing for the test method on this thread
+            if (!GuidedModelFuzzing.isBlind(guidance)) {
+                SingleSnoop.startSnooping(testClass.getName() + "#" + testMethod);
+            }
+
+            JUnitCore junit = new JUnitCore();
+            if (out != null) {
+                junit.addListener(new TextListener(out));
+            }
+            return junit.run(testRunner);
+        } finally {
+            GuidedModelFuzzing.unsetWorkerGuidance();
+            workers.remove(thread);
+        }
+    }
+}
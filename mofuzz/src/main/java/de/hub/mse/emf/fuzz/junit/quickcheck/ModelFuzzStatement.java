@@ -88,7 +88,7 @@ public class ModelFuzzStatement extends Statement{
 
 					try {
 						guidance.getInput();
-						SourceOfRandomness random = new SourceOfRandomness(new Random());
+						SourceOfRandomness random = new SourceOfRandomness(new Random(guidance.getTrialSeed()));
 						
 						args = generators.stream()
 	                            .map(g -> g.generate(random, genStatus))
@@ -115,8 +115,11 @@ public class ModelFuzzStatement extends Statement{
 					error = e;
 				} catch (Throwable e) {
 
-					// Check if this exception was expected
-					if (isExceptionExpected(e.getClass())) {
+					// The watchdog interrupted the run, e.g. while waiting or in uninstrumented code
+					if (guidance.hasRunTimedOut()) {
+						result = TIMEOUT;
+						error = e;
+					} else if (isExceptionExpected(e.getClass())) {
 						result = SUCCESS; // Swallow the error
 					} else {
 						result = FAILURE;
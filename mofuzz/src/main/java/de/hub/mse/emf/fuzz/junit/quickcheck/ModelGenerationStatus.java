@@ -1,10 +1,13 @@
 package de.hub.mse.emf.fuzz.junit.quickcheck;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
 
 import com.pholser.junit.quickcheck.generator.GenerationStatus;
@@ -32,12 +35,22 @@ public class ModelGenerationStatus implements GenerationStatus{
 	/** Number of completed cycles */
 	private int cyclesCompleted = 0;
 	
+	/** Number of favored inputs in the queue. */
+	private int numFavored = 0;
+	
+	/** Whether the current parent input is favored. */
+	private boolean currentParentFavored = false;
+	
 	/** Callback to save inputs.*/
 	Consumer<Integer> saveInputCallBack = null;
+	
+	/** The generator whose inputs are saved, if any. */
+	private InputSavingGenerator<?> inputSavingGenerator = null;
 
 	public ModelGenerationStatus(Generator generator) {
 		if (generator instanceof InputSavingGenerator) {
-			this.saveInputCallBack = ((InputSavingGenerator) generator).generateSaveCallBack();
+			this.inputSavingGenerator = (InputSavingGenerator<?>) generator;
+			this.saveInputCallBack = inputSavingGenerator.generateSaveCallBack();
 		}
 	}
 	
@@ -76,6 +89,19 @@ public class ModelGenerationStatus implements GenerationStatus{
     	return this.cyclesCompleted;
     }
     
+    public int getNumFavored() {
+    	return this.numFavored;
+    }
+    
+    public boolean isCurrentParentFavored() {
+    	return this.currentParentFavored;
+    }
+    
+    public void updateFavored(int numFavored, boolean parentFavored) {
+    	this.numFavored = numFavored;
+    	this.currentParentFavored = parentFavored;
+    }
+    
     public void update(int queueSize, int parentInputIdx, int childCount, int targetChildCount, int cycles) {
     	this.currentQueueSize = queueSize;
     	this.currentParentInputIdx = parentInputIdx;
@@ -89,5 +115,64 @@ public class ModelGenerationStatus implements GenerationStatus{
     		saveInputCallBack.accept(value);
     	}
     }
+    
+    public void saveInput(int value, int[] coveredKeys, long execNanos) {
+    	if(inputSavingGenerator != null) {
+    		inputSavingGenerator.saveInput(value, coveredKeys, execNanos);
+    	}
+    }
+    
+    public byte[] serializeSavedInput() {
+    	if(inputSavingGenerator != null) {
+    		return inputSavingGenerator.serializeSavedInput();
+    	}
+    	return null;
+    }
+    
+    public byte[] serializeCurrentInput() {
+    	if(inputSavingGenerator != null) {
+    		return inputSavingGenerator.serializeCurrentInput();
+    	}
+    	return null;
+    }
+    
+    public String getFileExtension() {
+    	if(inputSavingGenerator != null) {
+    		return inputSavingGenerator.getFileExtension();
+    	}
+    	return null;
+    }
+    
+    public int loadSeedInputs(List<File> seedFiles) {
+    	if(inputSavingGenerator != null) {
+    		return inputSavingGenerator.loadSeedInputs(seedFiles);
+    	}
+    	return 0;
+    }
+    
+    public void importInput(byte[] serialized, int value) {
+    	if(inputSavingGenerator != null) {
+    		inputSavingGenerator.importInput(serialized, value);
+    	}
+    }
+    
+    public void importInput(byte[] serialized, int value, int[] coveredKeys, long execNanos) {
+    	if(inputSavingGenerator != null) {
+    		inputSavingGenerator.importInput(serialized, value, coveredKeys, execNanos);
+    	}
+    }
+    
+    public void setUndoMutations(boolean undoMutations) {
+    	if(inputSavingGenerator != null) {
+    		inputSavingGenerator.setUndoMutations(undoMutations);
+    	}
+    }
+    
+    public AutoCloseable startMetricsDump(File file, long period, TimeUnit unit) throws IOException {
+    	if(inputSavingGenerator != null) {
+    		return inputSavingGenerator.startMetricsDump(file, period, unit);
+    	}
+    	return null;
+    }
 
 }
@@ -1,5 +1,9 @@
 package de.hub.mse.emf.fuzz.junit.quickcheck.generator;
 
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
 
 import com.pholser.junit.quickcheck.generator.Generator;
@@ -27,6 +31,18 @@ public abstract class InputSavingGenerator<T> extends Generator<T>{
 	
 	public abstract void saveInput(int value);
 	
+	/**
+	 * Save the current input, along with information that can be used to schedule it,
+	 * e.g. with an {@link de.hub.mse.emf.fuzz.InputSchedule}.
+	 * The default implementation only passes the bookkeeping value on to {@link #saveInput(int)}.
+	 * @param value some bookkeeping value, e.g. number of branch responsibilities.
+	 * @param coveredKeys all coverage keys exercised by the input.
+	 * @param execNanos the execution time of the input in nanoseconds.
+	 */
+	public void saveInput(int value, int[] coveredKeys, long execNanos) {
+		saveInput(value);
+	}
+	
 	/**
 	 * Provides a callback to the saveInput() method.
 	 * @return the saveInput() callback.
@@ -34,5 +50,89 @@ public abstract class InputSavingGenerator<T> extends Generator<T>{
 	public Consumer<Integer> generateSaveCallBack(){
 		return this::saveInput;
 	}
+	
+	/**
+	 * Serializes the input that was saved by the last call to saveInput(),
+	 * e.g. to share it with other fuzzing workers.
+	 * The default implementation does not support serialization.
+	 * @return the serialized input, or null if not supported.
+	 */
+	public byte[] serializeSavedInput() {
+		return null;
+	}
+	
+	/**
+	 * Serializes the input that was generated last, e.g. to save it after a failure.
+	 * The default implementation does not support serialization.
+	 * @return the serialized input, or null if not supported.
+	 */
+	public byte[] serializeCurrentInput() {
+		return null;
+	}
+	
+	/**
+	 * Returns the file extension of serialized inputs, e.g. "uml".
+	 * @return the file extension (without dot), or null if there is none.
+	 */
+	public String getFileExtension() {
+		return null;
+	}
+	
+	/**
+	 * Loads seed inputs from disk. The seeds are provided as the next inputs,
+	 * so that the ones exercising new coverage are saved.
+	 * The default implementation does not support seeds.
+	 * @param seedFiles the files containing serialized inputs.
+	 * @return the number of seeds that could be loaded.
+	 */
+	public int loadSeedInputs(List<File> seedFiles) {
+		return 0;
+	}
+	
+	/**
+	 * Imports an input that was saved (and serialized) by another fuzzing worker.
+	 * The default implementation ignores foreign inputs.
+	 * @param serialized the serialized input, see {@link #serializeSavedInput()}.
+	 * @param value the bookkeeping value the input was saved with.
+	 */
+	public void importInput(byte[] serialized, int value) {
+	}
+	
+	/**
+	 * Imports an input that was saved (and serialized) by another fuzzing worker,
+	 * along with the information it was saved with, see {@link #saveInput(int, int[], long)}.
+	 * The default implementation passes the input on to {@link #importInput(byte[], int)}.
+	 * @param serialized the serialized input, see {@link #serializeSavedInput()}.
+	 * @param value the bookkeeping value the input was saved with.
+	 * @param coveredKeys all coverage keys exercised by the input.
+	 * @param execNanos the execution time of the input in nanoseconds.
+	 */
+	public void importInput(byte[] serialized, int value, int[] coveredKeys, long execNanos) {
+		importInput(serialized, value);
+	}
+	
+	/**
+	 * Lets the generator produce each child input by mutating its parent in place and undoing
+	 * the mutation after the child has been executed, instead of mutating a copy of the parent.
+	 * Changes the test makes to its input cannot be undone, so this must only be enabled for tests
+	 * that do not modify their input. The default implementation does not mutate inputs and
+	 * ignores the setting.
+	 * @param undoMutations whether to undo mutations instead of copying parents.
+	 */
+	public void setUndoMutations(boolean undoMutations) {
+	}
+	
+	/**
+	 * Starts writing the metrics of the generation (e.g. success rates of setting references)
+	 * to a file periodically. The default implementation has no metrics.
+	 * @param file the file to write to.
+	 * @param period the time between two writes.
+	 * @param unit the time unit of the period.
+	 * @return a handle that stops writing once it is closed, or null if the generator has no metrics.
+	 * @throws IOException if the file cannot be created.
+	 */
+	public AutoCloseable startMetricsDump(File file, long period, TimeUnit unit) throws IOException {
+		return null;
+	}
 
 }
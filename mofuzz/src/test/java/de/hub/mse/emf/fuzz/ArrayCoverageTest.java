@@ -0,0 +1,77 @@
+package de.hub.mse.emf.fuzz;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import edu.berkeley.cs.jqf.fuzz.util.Hashing;
+
+/**
+ * Tests merging run coverage into total coverage.
+ *
+ * @author Lam
+ */
+public class ArrayCoverageTest {
+
+	private static int idx(int iid, int arm) {
+		return Hashing.hash1(iid, arm, new ArrayCoverage().size());
+	}
+
+	@Test
+	public void testNewCoverage() {
+		ArrayCoverage total = new ArrayCoverage();
+		ArrayCoverage run = new ArrayCoverage();
+
+		run.increment1(1, 0);
+		run.increment1(1, 0);
+		run.increment1(2, 1);
+		assertEquals(2, run.getNonZeroCount());
+		assertEquals(2, run.getAtIndex(idx(1, 0)));
+
+		// Both branches are new
+		assertTrue(total.updateBits(run));
+		assertEquals(2, total.getNonZeroCount());
+		assertEquals(2, run.getNewCoverageCount());
+		int[] expected = {idx(1, 0), idx(2, 1)};
+		int[] actual = run.getNewCoverage();
+		Arrays.sort(expected);
+		Arrays.sort(actual);
+		assertArrayEquals(expected, actual);
+
+		// The same run does not add anything
+		assertFalse(total.updateBits(run));
+		assertEquals(0, run.getNewCoverageCount());
+	}
+
+	@Test
+	public void testHitCountBuckets() {
+		ArrayCoverage total = new ArrayCoverage();
+		ArrayCoverage run = new ArrayCoverage();
+
+		run.increment1(1, 0);
+		total.updateBits(run);
+
+		// Two hits fall into a new bucket, but no new branch is covered
+		run.clear();
+		assertEquals(0, run.getNonZeroCount());
+		assertEquals(0, run.getAtIndex(idx(1, 0)));
+		run.increment1(1, 0);
+		run.increment1(1, 0);
+		assertTrue(total.updateBits(run));
+		assertEquals(0, run.getNewCoverageCount());
+		assertEquals(1, total.getNonZeroCount());
+		assertEquals(3, total.getAtIndex(idx(1, 0)));
+
+		// Three hits fall into the same bucket as two hits
+		run.clear();
+		for (int i = 0; i < 3; i++) {
+			run.increment1(1, 0);
+		}
+		assertFalse(total.updateBits(run));
+	}
+}
@@ -0,0 +1,99 @@
+package de.hub.mse.emf.fuzz;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.pholser.junit.quickcheck.generator.GenerationStatus;
+import com.pholser.junit.quickcheck.random.SourceOfRandomness;
+
+import de.hub.mse.emf.fuzz.junit.quickcheck.ModelGenerationStatus;
+import de.hub.mse.emf.fuzz.junit.quickcheck.generator.InputSavingGenerator;
+
+public class InputReplayTest {
+
+	/**
+	 * Runs a small campaign, saving some inputs and importing one in between, and checks
+	 * that every input can be rebuilt from the campaign seed and the replay log alone.
+	 */
+	@Test
+	public void testReplay() throws IOException {
+		File logFile = File.createTempFile("replay_log", "");
+		File importedFile = File.createTempFile("imported", ".txt");
+		logFile.deleteOnExit();
+		importedFile.deleteOnExit();
+		Files.write(importedFile.toPath(), "IMPORTED".getBytes(StandardCharsets.UTF_8));
+
+		long campaignSeed = 42;
+		int workerId = 1;
+		ReplayLog log = new ReplayLog(logFile);
+		StringGenerator generator = new StringGenerator();
+		ModelGenerationStatus genStatus = new ModelGenerationStatus(generator);
+		List<String> inputs = new ArrayList<String>();
+		for (int trial = 0; trial < 200; trial++) {
+			if (trial == 50) {
+				genStatus.importInput(Files.readAllBytes(importedFile.toPath()), 1, new int[] { 7 }, 100);
+				log.imported(trial, 1, new int[] { 7 }, 100, importedFile);
+			}
+			SourceOfRandomness random = new SourceOfRandomness(
+					new Random(CoverageGuidance.trialSeed(campaignSeed, workerId, trial)));
+			inputs.add(generator.generate(random, genStatus));
+
+			// Save some inputs, which become parents of later inputs
+			if (trial % 17 == 0) {
+				genStatus.saveInput(trial, new int[] { trial, trial + 1 }, 1000 + trial);
+				log.saved(trial, trial, new int[] { trial, trial + 1 }, 1000 + trial);
+			}
+		}
+		log.close();
+
+		List<ReplayLog.Event> events = ReplayLog.read(logFile);
+		assertEquals(1 + 12, events.size());
+		for (int trial : new int[] { 0, 17, 49, 50, 51, 123, 199 }) {
+			Object input = InputReplay.replay(campaignSeed, workerId, trial, events, new StringGenerator());
+			assertEquals(inputs.get(trial), input);
+		}
+	}
+
+	/** Mutates the saved (or imported) inputs in turn, or generates a new input if there are none. */
+	private static class StringGenerator extends InputSavingGenerator<String> {
+
+		private final List<String> queue = new ArrayList<String>();
+
+		private String current;
+
+		StringGenerator() {
+			super(String.class);
+		}
+
+		@Override
+		public String generate(SourceOfRandomness random, GenerationStatus status) {
+			if (queue.isEmpty()) {
+				current = String.valueOf(random.nextChar('A', 'Z'));
+			} else {
+				String parent = queue.get(random.nextInt(queue.size()));
+				int idx = random.nextInt(parent.length() + 1);
+				current = parent.substring(0, idx) + random.nextChar('A', 'Z') + parent.substring(idx);
+			}
+			return current;
+		}
+
+		@Override
+		public void saveInput(int value) {
+			queue.add(current);
+		}
+
+		@Override
+		public void importInput(byte[] serialized, int value) {
+			queue.add(new String(serialized, StandardCharsets.UTF_8));
+		}
+	}
+}
@@ -0,0 +1,60 @@
+package de.hub.mse.emf.fuzz;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * Tests culling of favored inputs and the energy assigned to queued inputs.
+ *
+ * @author Lam
+ */
+public class InputScheduleTest {
+
+	@Test
+	public void testCulling() {
+		InputSchedule schedule = new InputSchedule();
+
+		// Input 0 covers {1, 2}, input 1 covers {2, 3}
+		schedule.add(2, new int[] {1, 2}, 1000, 10);
+		schedule.add(1, new int[] {2, 3}, 1000, 10);
+		schedule.cull();
+		assertTrue(schedule.isFavored(0));
+		assertTrue(schedule.isFavored(1));
+		assertEquals(2, schedule.getNumFavored());
+
+		// Input 2 covers {1, 2, 3} at a lower cost, which subsumes both other inputs
+		schedule.add(0, new int[] {1, 2, 3}, 500, 10);
+		schedule.cull();
+		assertFalse(schedule.isFavored(0));
+		assertFalse(schedule.isFavored(1));
+		assertTrue(schedule.isFavored(2));
+		assertEquals(1, schedule.getNumFavored());
+
+		// Inputs with unknown coverage are always favored
+		schedule.add(5, null, 0, 0);
+		schedule.cull();
+		assertTrue(schedule.isFavored(3));
+		assertEquals(2, schedule.getNumFavored());
+	}
+
+	@Test
+	public void testEnergy() {
+		InputSchedule schedule = new InputSchedule();
+		schedule.add(1000, new int[] {1}, 1000, 10);
+		schedule.add(1000, new int[] {2}, 1000, 10);
+		schedule.cull();
+
+		// Same cost as the average: only the responsibilities count
+		assertEquals(300, schedule.getEnergy(0));
+
+		// A much slower input covering the same keys gets less energy and is not favored
+		schedule.add(1000, new int[] {1}, 100000, 10);
+		schedule.cull();
+		assertFalse(schedule.isFavored(2));
+		assertTrue(schedule.getEnergy(2) < schedule.getEnergy(0));
+		assertTrue(schedule.getEnergy(2) >= InputSchedule.MIN_ENERGY);
+	}
+}
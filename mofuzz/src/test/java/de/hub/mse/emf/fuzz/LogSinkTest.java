@@ -0,0 +1,69 @@
+package de.hub.mse.emf.fuzz;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests rotating and closing the log sink.
+ *
+ * @author Lam
+ */
+public class LogSinkTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void testRotation() throws IOException {
+		File file = new File(folder.getRoot(), "fuzz.log");
+		// Every line exceeds the maximum size, so each file holds a single line
+		LogSink sink = new LogSink(file, 10, 3);
+		for (int i = 0; i < 6; i++) {
+			sink.append("line-" + i + "-----");
+		}
+		sink.close();
+
+		assertEquals(Collections.singletonList("line-5-----"), readLines(file));
+		assertEquals(Collections.singletonList("line-4-----"), readLines(sink.rotatedFile(1)));
+		assertEquals(Collections.singletonList("line-3-----"), readLines(sink.rotatedFile(2)));
+		assertEquals(Collections.singletonList("line-2-----"), readLines(sink.rotatedFile(3)));
+		// Older files have been deleted
+		assertFalse(sink.rotatedFile(4).exists());
+		assertEquals(4, folder.getRoot().list().length);
+	}
+
+	@Test
+	public void testCloseWritesPendingLines() throws IOException {
+		File file = new File(folder.getRoot(), "stats.log");
+		LogSink sink = new LogSink(file, 0, 0);
+		// More lines than fit into the queue at once
+		int lineCount = 20000;
+		for (int i = 0; i < lineCount; i++) {
+			sink.append(Integer.toString(i));
+		}
+		sink.close();
+		// Lines appended after closing are discarded
+		sink.append("closed");
+
+		List<String> lines = readLines(file);
+		assertEquals(lineCount, lines.size());
+		for (int i = 0; i < lineCount; i++) {
+			assertEquals(Integer.toString(i), lines.get(i));
+		}
+	}
+
+	private static List<String> readLines(File file) throws IOException {
+		return Files.readAllLines(file.toPath(), StandardCharsets.UTF_8);
+	}
+}
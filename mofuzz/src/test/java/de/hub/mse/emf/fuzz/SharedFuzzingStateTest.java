@@ -0,0 +1,51 @@
+package de.hub.mse.emf.fuzz;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import org.junit.Test;
+
+public class SharedFuzzingStateTest {
+
+	@Test
+	public void testInputsAreReadByAllWorkers() {
+		SharedFuzzingState state = new SharedFuzzingState(2);
+		publish(state, 0);
+		publish(state, 1);
+
+		List<SharedFuzzingState.SharedInput> inputs = state.getInputsSince(0, 0);
+		assertEquals(2, inputs.size());
+		assertEquals(0, inputs.get(0).getWorkerId());
+		assertEquals(1, inputs.get(1).getWorkerId());
+		assertTrue(state.getInputsSince(0, 2).isEmpty());
+
+		publish(state, 0);
+		// Worker 1 still sees every input, including the ones worker 0 has already read
+		inputs = state.getInputsSince(1, 0);
+		assertEquals(3, inputs.size());
+		assertEquals(0, inputs.get(2).getWorkerId());
+
+		inputs = state.getInputsSince(0, 2);
+		assertEquals(1, inputs.size());
+		assertEquals(0, inputs.get(0).getWorkerId());
+	}
+
+	@Test
+	public void testReadInputsAreDropped() {
+		SharedFuzzingState state = new SharedFuzzingState(2);
+		for (int i = 0; i < 100; i++) {
+			publish(state, i % 2);
+			assertEquals(1, state.getInputsSince(0, i).size());
+			assertEquals(1, state.getInputsSince(1, i).size());
+		}
+		publish(state, 0);
+		assertEquals(1, state.getInputsSince(1, 100).size());
+		assertTrue(state.getInputsSince(1, 101).isEmpty());
+	}
+
+	private static void publish(SharedFuzzingState state, int workerId) {
+		state.publishInput(workerId, new byte[0], 1, new int[0], 0, null);
+	}
+}